@@ -0,0 +1,55 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Locates the icons of the plugin test resources used by the benchmarks.
+ *
+ * @author antoine vianey
+ */
+final class BenchmarkResources {
+
+    private static final String RESOURCES = "benchmarks.resources";
+
+    private BenchmarkResources() {}
+
+    /**
+     * @param test the test class that owns the resources
+     * @param name the name of the resource
+     * @return the resource file
+     */
+    static File get(String test, String name) {
+        File file = new File(new File(System.getProperty(RESOURCES, "../gradle-plugin/src/test/resources"), test), name);
+        if (!file.isFile()) {
+            throw new IllegalStateException("Missing benchmark resource " + file.getAbsolutePath());
+        }
+        return file;
+    }
+
+    /**
+     * @return a new empty directory for generated files
+     */
+    static File newOutputDirectory() throws IOException {
+        File dir = Files.createTempDirectory("svgdrawable-benchmarks").toFile();
+        dir.deleteOnExit();
+        return dir;
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import com.google.common.collect.ImmutableList;
+import fr.avianey.androidsvgdrawable.corpus.SvgCorpusGenerator;
+import fr.avianey.androidsvgdrawable.util.TestLogger;
+import fr.avianey.androidsvgdrawable.util.TestParameters;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import static fr.avianey.androidsvgdrawable.Density.Value.hdpi;
+import static fr.avianey.androidsvgdrawable.Density.Value.mdpi;
+import static fr.avianey.androidsvgdrawable.Density.Value.xhdpi;
+
+/**
+ * Full generation of a synthetic corpus, with nine-patches and masks, from discovery to the last written file.
+ *
+ * @author antoine vianey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExecuteBenchmark {
+
+    @Param({"100", "1000"})
+    public int icons;
+
+    private SvgCorpusGenerator.Corpus corpus;
+    private TestParameters parameters;
+
+    @Setup(Level.Trial)
+    public void generate() throws Exception {
+        corpus = new SvgCorpusGenerator(0).icons(icons).masks(icons / 50).generate(BenchmarkResources.newOutputDirectory());
+        parameters = new TestParameters();
+        parameters.from = ImmutableList.of(corpus.getSvgDirectory());
+        parameters.targetedDensities = new Density.Value[] {mdpi, hdpi, xhdpi};
+        parameters.ninePatchConfig = corpus.getNinePatchConfig();
+        parameters.svgMaskFiles = ImmutableList.of(corpus.getMaskDirectory());
+        parameters.svgMaskResourceFiles = ImmutableList.of(corpus.getSvgDirectory());
+    }
+
+    @Setup(Level.Iteration)
+    public void clean() throws Exception {
+        File output = new File(corpus.getDirectory(), "output");
+        FileUtils.deleteDirectory(output);
+        parameters.to = new File(output, "res");
+        parameters.svgMaskedSvgOutputDirectory = new File(output, "masked");
+    }
+
+    @Benchmark
+    public void execute() throws Exception {
+        new SvgDrawablePlugin(parameters, new TestLogger()).execute();
+    }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import fr.avianey.androidsvgdrawable.util.TestLogger;
+import fr.avianey.androidsvgdrawable.util.TestParameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Decoding of a rendered image, drawing of the nine patch marks and encoding of the nine patch image.
+ *
+ * @author antoine vianey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NinePatchBenchmark {
+
+    @Param({"mdpi", "xxxhdpi"})
+    public Density.Value density;
+
+    private SvgDrawablePlugin plugin;
+    private byte[] image;
+    private NinePatchBorders borders;
+
+    @Setup
+    public void setup() throws Exception {
+        plugin = new SvgDrawablePlugin(new TestParameters(), new TestLogger());
+        File output = BenchmarkResources.newOutputDirectory();
+        plugin.transcode(
+                plugin.getQualifiedSVGResourceFactory().fromSVGFile(BenchmarkResources.get("NinePatchGenerationTest", "ninepatch-mdpi.svg")),
+                density, output, null);
+        try (Stream<Path> files = Files.walk(output.toPath())) {
+            image = Files.readAllBytes(files.filter(p -> p.toString().endsWith(".png")).findFirst()
+                    .orElseThrow(() -> new IOException("Nothing rendered in " + output)));
+        }
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(image));
+        final int w = decoded.getWidth();
+        final int h = decoded.getHeight();
+        borders = new NinePatchBorders(w, h);
+        borders.stretchX(w / 4, w / 2);
+        borders.stretchY(h / 4, h / 2);
+        borders.contentX(w / 8, 3 * w / 4);
+        borders.contentY(h / 8, 3 * h / 4);
+    }
+
+    @Benchmark
+    public byte[] toNinePatch() throws IOException {
+        return plugin.toNinePatch(new ByteArrayInputStream(image), borders);
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import fr.avianey.androidsvgdrawable.util.TestLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup of the nine patch configuration of a resource, for matching and non matching resources.
+ *
+ * @author antoine vianey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NinePatchMapBenchmark {
+
+    @Param({"ninepatch-mdpi.svg", "ninepatch-w20mdpi.svg", "simple_square-mdpi.svg"})
+    public String icon;
+
+    private NinePatchMap ninePatchMap;
+    private QualifiedResource svg;
+
+    @Setup
+    public void setup() throws IOException {
+        try (final Reader reader = new InputStreamReader(new FileInputStream(BenchmarkResources.get("NinePatchGenerationTest", "ninepatch.json")))) {
+            Set<NinePatch> ninePatchSet = new GsonBuilder().create().fromJson(reader, new TypeToken<Set<NinePatch>>() {}.getType());
+            ninePatchMap = NinePatch.init(ninePatchSet);
+        }
+        svg = new QualifiedSVGResourceFactory(new TestLogger(), BoundsType.sensitive)
+                .fromSVGFile(BenchmarkResources.get("NinePatchGenerationTest", icon));
+    }
+
+    @Benchmark
+    public NinePatch getBestMatch() {
+        return ninePatchMap.getBestMatch(svg);
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import fr.avianey.androidsvgdrawable.util.TestLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creation of qualified resources from svg files, with and without the extraction of their bounds.
+ *
+ * @author antoine vianey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QualifiedSVGResourceFactoryBenchmark {
+
+    @Param({
+            "RenderMetricsTest/square-mdpi.svg",
+            "RenderMetricsTest/complex-mdpi.svg",
+            "BoundsExtractionTest/square_effect-mdpi.svg",
+            "VisualConversionTest/ic_screen_rotation-mdpi.svg"
+    })
+    public String icon;
+
+    private File file;
+    private QualifiedSVGResourceFactory factory;
+
+    @Setup
+    public void setup() {
+        String[] path = icon.split("/");
+        file = BenchmarkResources.get(path[0], path[1]);
+        factory = new QualifiedSVGResourceFactory(new TestLogger(), BoundsType.sensitive);
+    }
+
+    @Benchmark
+    public QualifiedResource fromSVGFile() throws IOException {
+        return factory.fromSVGFile(file);
+    }
+
+    @Benchmark
+    public Rectangle fromSVGFileWithBounds() throws IOException {
+        // a new factory comes with an empty index, bounds are extracted from the document
+        return new QualifiedSVGResourceFactory(new TestLogger(), BoundsType.sensitive).fromSVGFile(file).getBounds();
+    }
+
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the qualifiers of every discovered file name.
+ *
+ * @author antoine vianey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class QualifierBenchmark {
+
+    @Param({"mdpi", "w36mdpi", "land-w700dp-fr-xlarge", "mcc310-mnc004-fr-rFR-ldrtl-sw320dp-w720dp-h480dp-large-long-round-port-car-night-xhdpi-notouch-keysexposed-nokeys-navhidden-dpad-v21"})
+    public String qualifiers;
+
+    @Benchmark
+    public Map<Qualifier.Type, String> fromQualifiedString() {
+        return Qualifier.fromQualifiedString(qualifiers);
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import fr.avianey.androidsvgdrawable.util.TestLogger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generation of the masked svg files of a mask, for a single image and for combinations of images.
+ *
+ * @author antoine vianey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SvgMaskBenchmark {
+
+    private static final String[] RESOURCES = {
+            "circle_blue-mdpi.svg", "circle_green-mdpi.svg", "circle_pink-mdpi.svg",
+            "square_red-hdpi.svg", "square_yellow-mdpi.svg",
+            "triangle_black-mdpi.svg", "triangle_white-mdpi.svg"
+    };
+
+    @Param({"mask-mdpi.svgmask", "mask_multiple_image-mdpi.svgmask"})
+    public String mask;
+
+    @Param({"false", "true"})
+    public boolean useSameSvgOnlyOnceInMask;
+
+    private QualifiedSVGResourceFactory factory;
+    private SvgMask svgMask;
+    private List<QualifiedResource> resources;
+    private File output;
+
+    @Setup
+    public void setup() throws Exception {
+        factory = new QualifiedSVGResourceFactory(new TestLogger(), BoundsType.sensitive);
+        svgMask = new SvgMask(factory.fromSVGFile(BenchmarkResources.get("SvgMaskTest", mask)));
+        resources = new ArrayList<>(RESOURCES.length);
+        for (String name : RESOURCES) {
+            resources.add(factory.fromSVGFile(BenchmarkResources.get("SvgMaskTest", name)));
+        }
+        output = BenchmarkResources.newOutputDirectory();
+    }
+
+    @Benchmark
+    public Collection<QualifiedResource> generatesMaskedResources() throws Exception {
+        return svgMask.generatesMaskedResources(factory, output, resources, useSameSvgOnlyOnceInMask);
+    }
+
+}
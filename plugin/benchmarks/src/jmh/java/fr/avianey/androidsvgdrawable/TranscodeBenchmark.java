@@ -0,0 +1,74 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import fr.avianey.androidsvgdrawable.util.TestLogger;
+import fr.avianey.androidsvgdrawable.util.TestParameters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read, parse, render and write of a single icon, for each output format.
+ *
+ * @author antoine vianey
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TranscodeBenchmark {
+
+    @Param({"PNG", "JPG"})
+    public OutputFormat format;
+
+    @Param({"mdpi", "xxxhdpi"})
+    public Density.Value density;
+
+    @Param({
+            "RenderMetricsTest/square-mdpi.svg",
+            "RenderMetricsTest/complex-mdpi.svg",
+            "VisualConversionTest/ic_screen_rotation-mdpi.svg"
+    })
+    public String icon;
+
+    private SvgDrawablePlugin plugin;
+    private QualifiedResource svg;
+    private File output;
+
+    @Setup
+    public void setup() throws Exception {
+        TestParameters parameters = new TestParameters();
+        parameters.outputFormat = format;
+        plugin = new SvgDrawablePlugin(parameters, new TestLogger());
+        String[] path = icon.split("/");
+        svg = plugin.getQualifiedSVGResourceFactory().fromSVGFile(BenchmarkResources.get(path[0], path[1]));
+        output = BenchmarkResources.newOutputDirectory();
+    }
+
+    @Benchmark
+    public void transcode() throws Exception {
+        plugin.transcode(svg, density, output, null);
+    }
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import java.awt.Rectangle;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Admission control of concurrent renders against a memory budget.
+ * <p>
+ * Each render reserves an estimation of its peak heap usage before it starts and blocks until the budget
+ * can afford it. Reservations are granted in arrival order, so that a large render waiting for memory is
+ * never overtaken by smaller ones. A render whose estimation exceeds the whole budget reserves all of it,
+ * and thus runs alone.
+ * </p>
+ *
+ * @author antoine vianey
+ */
+public final class MemoryBudget {
+
+    private static final int RGBA_BYTES = 4;
+    private static final int RGB_BYTES = 3;
+    private static final long KB = 1024;
+
+    /**
+     * In memory PNG, decoded PNG and nine-patch copy
+     */
+    private static final int NINE_PATCH_RASTERS = 3;
+
+    private final long capacity;
+    private final int permits;
+    private final Semaphore semaphore;
+
+    /**
+     * @param capacity the budget in bytes
+     */
+    public MemoryBudget(long capacity) {
+        checkArgument(capacity >= KB, "The memory budget must be at least 1 KB");
+        this.capacity = capacity;
+        this.permits = (int) Math.min(Integer.MAX_VALUE, capacity / KB);
+        this.semaphore = new Semaphore(permits, true);
+    }
+
+    /**
+     * @return a budget of half the maximum heap size
+     */
+    public static MemoryBudget ofHeap() {
+        return new MemoryBudget(Runtime.getRuntime().maxMemory() / 2);
+    }
+
+    /**
+     * Estimates the peak heap usage of rendering a single file.
+     * <p>
+     * The renderer offscreen image is RGBA, the destination image of a JPG output has no alpha channel.
+     * A streamed output only holds one band of the renderer and one band of the destination image,
+     * nine-patch borders being drawn band per band.
+     * </p>
+     * @param outputBounds the bounds of the rendered image
+     * @param format the output format
+     * @param bandHeight the rows of a band when the output is streamed, 0 otherwise
+     * @param ninePatch whether the rendered image is post-processed into a nine-patch
+     * @return the estimated bytes
+     */
+    public static long estimate(Rectangle outputBounds, OutputFormat format, int bandHeight, boolean ninePatch) {
+        final boolean borders = ninePatch && format.hasNinePatchSupport();
+        if (bandHeight > 0) {
+            final int width = outputBounds.width + (borders ? 2 : 0);
+            final int rows = Math.min(bandHeight, outputBounds.height + (borders ? 2 : 0));
+            return (long) width * rows * RGBA_BYTES * 2;
+        }
+        final long pixels = (long) outputBounds.width * outputBounds.height;
+        long bytes = pixels * RGBA_BYTES;
+        bytes += pixels * (format == OutputFormat.JPG ? RGB_BYTES : RGBA_BYTES);
+        if (borders) {
+            bytes += pixels * RGBA_BYTES * NINE_PATCH_RASTERS;
+        }
+        return bytes;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @param bytes the bytes to reserve
+     * @return whether the reservation exceeds the budget and will run alone
+     */
+    public boolean exceeds(long bytes) {
+        return bytes > capacity;
+    }
+
+    /**
+     * Blocks until the given bytes can be reserved.
+     * Fork/join workers waiting for the budget are compensated, so that the shared pool keeps rendering.
+     * @param bytes the bytes to reserve
+     * @return the reservation, to release once the render has completed
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Reservation acquire(long bytes) throws InterruptedException {
+        final int n = (int) Math.max(1, Math.min(permits, (bytes + KB - 1) / KB));
+        ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+            private boolean acquired;
+            @Override
+            public boolean block() throws InterruptedException {
+                if (!acquired) {
+                    semaphore.acquire(n);
+                    acquired = true;
+                }
+                return true;
+            }
+            @Override
+            public boolean isReleasable() {
+                if (!acquired) {
+                    try {
+                        // unlike tryAcquire(n), honours the arrival order
+                        acquired = semaphore.tryAcquire(n, 0, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        // thrown again by block()
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return acquired;
+            }
+        });
+        return new Reservation(n);
+    }
+
+    /**
+     * Memory reserved for a single render.
+     */
+    public final class Reservation implements AutoCloseable {
+
+        private final int n;
+        private boolean released;
+
+        private Reservation(int n) {
+            this.n = n;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                semaphore.release(n);
+            }
+        }
+
+    }
+
+}
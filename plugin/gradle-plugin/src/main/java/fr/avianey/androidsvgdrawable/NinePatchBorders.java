@@ -0,0 +1,81 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.awt.Color.BLACK;
+
+/**
+ * The black marks drawn around a rasterized nine-patch, in the coordinates of the final image :
+ * the content of size width x height is drawn at (1, 1) and the marks on the 1 pixel border around it.
+ *
+ * @author antoine vianey
+ */
+public class NinePatchBorders {
+
+    private final int width;
+    private final int height;
+    private final List<Rectangle> marks = new ArrayList<>();
+
+    /**
+     * @param width the width of the content, without the borders
+     * @param height the height of the content, without the borders
+     */
+    public NinePatchBorders(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void stretchX(int start, int size) {
+        marks.add(new Rectangle(start + 1, 0, size, 1));
+    }
+
+    public void stretchY(int start, int size) {
+        marks.add(new Rectangle(0, start + 1, 1, size));
+    }
+
+    public void contentX(int start, int size) {
+        marks.add(new Rectangle(start + 1, height + 1, size, 1));
+    }
+
+    public void contentY(int start, int size) {
+        marks.add(new Rectangle(width + 1, start + 1, 1, size));
+    }
+
+    /**
+     * Draws the marks
+     * @param g graphics of the final image
+     */
+    public void draw(Graphics g) {
+        g.setColor(BLACK);
+        for (Rectangle mark : marks) {
+            g.fillRect(mark.x, mark.y, mark.width, mark.height);
+        }
+    }
+
+}
@@ -15,9 +15,9 @@
  */
 package fr.avianey.androidsvgdrawable;
 
+import fr.avianey.androidsvgdrawable.batik.BandedPNGTranscoder;
+import fr.avianey.androidsvgdrawable.batik.CachingJPEGTranscoder;
 import org.apache.batik.transcoder.image.ImageTranscoder;
-import org.apache.batik.transcoder.image.JPEGTranscoder;
-import org.apache.batik.transcoder.image.PNGTranscoder;
 
 /**
  * Format of the generated resources
@@ -26,8 +26,8 @@ import org.apache.batik.transcoder.image.PNGTranscoder;
  */
 public enum OutputFormat {
 
-    PNG(PNGTranscoder.class),
-    JPG(JPEGTranscoder.class);
+    PNG(BandedPNGTranscoder.class),
+    JPG(CachingJPEGTranscoder.class);
 
     private final Class<? extends ImageTranscoder> transcoderClass;
 
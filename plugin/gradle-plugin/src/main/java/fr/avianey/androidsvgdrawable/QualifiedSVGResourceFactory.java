@@ -15,17 +15,15 @@
  */
 package fr.avianey.androidsvgdrawable;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import fr.avianey.androidsvgdrawable.Qualifier.Type;
-import fr.avianey.androidsvgdrawable.batik.DensityAwareUserAgent;
+import fr.avianey.androidsvgdrawable.batik.RendererContext;
 import fr.avianey.androidsvgdrawable.util.Log;
-import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
 import org.apache.batik.bridge.BridgeContext;
-import org.apache.batik.bridge.DocumentLoader;
 import org.apache.batik.bridge.GVTBuilder;
-import org.apache.batik.bridge.UserAgent;
 import org.apache.batik.gvt.GraphicsNode;
 import org.apache.batik.parser.UnitProcessor;
-import org.apache.batik.util.XMLResourceDescriptor;
 import org.apache.commons.io.FilenameUtils;
 import org.w3c.dom.svg.SVGDocument;
 import org.w3c.dom.svg.SVGLength;
@@ -37,20 +35,42 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.Math.*;
+import static java.util.Collections.unmodifiableMap;
 import static org.apache.commons.io.FilenameUtils.getBaseName;
 
 public class QualifiedSVGResourceFactory {
 
     private final Log log;
     private final BoundsType boundsType;
+    private final SvgMetadataIndex index;
+
+    // resources share their names, qualifiers and densities
+    // to keep the footprint of large inputs low
+    private final Interner<String> names = Interners.newWeakInterner();
+    private final Interner<Map<Type, String>> qualifiers = Interners.newWeakInterner();
+    private final ConcurrentMap<String, Density> densities = new ConcurrentHashMap<>();
+    private final AtomicLong boundsExtractionNanos = new AtomicLong();
 
     public QualifiedSVGResourceFactory(Log log, BoundsType boundsType) {
+        this(log, boundsType, new SvgMetadataIndex());
+    }
+
+    /**
+     * @param log the logger
+     * @param boundsType the type of bounds to extract
+     * @param index the index of bounds to share with other factories
+     */
+    public QualifiedSVGResourceFactory(Log log, BoundsType boundsType, SvgMetadataIndex index) {
         this.log = log;
         this.boundsType = boundsType;
+        this.index = index;
     }
 
     public QualifiedResource fromSVGFile(final File file) throws IOException {
@@ -69,7 +89,18 @@ public class QualifiedSVGResourceFactory {
         // a density qualifier must be provided
         checkNotNull(typedQualifiers.get(Type.density), "No density qualifier for input svg file " + fileName);
 
-        return new QualifiedSVGResource(file, unqualifiedName, typedQualifiers);
+        return new QualifiedSVGResource(file, names.intern(unqualifiedName), qualifiers.intern(unmodifiableMap(typedQualifiers)));
+    }
+
+    /**
+     * @return the time spent extracting bounds not found in the index, cumulated over the threads
+     */
+    public long getBoundsExtractionNanos() {
+        return boundsExtractionNanos.get();
+    }
+
+    private Density densityOf(String density) {
+        return densities.computeIfAbsent(density, Density::from);
     }
 
     /**
@@ -80,53 +111,47 @@ public class QualifiedSVGResourceFactory {
      */
     private Rectangle extractSVGBounds(QualifiedSVGResource svg) throws IOException {
         // check <svg> attributes first : x, y, width, height
-        SVGDocument svgDocument = getSVGDocument(svg);
+        final RendererContext renderer = RendererContext.get();
+        SVGDocument svgDocument = renderer.createDocument(svg.toURI().toURL().toString());
         SVGSVGElement svgElement = svgDocument.getRootElement();
-        if (svgElement.getAttributeNode("width") != null && svgElement.getAttribute("height") != null) {
-
-            UserAgent userAgent = new DensityAwareUserAgent(svg.getDensity().getDpi());
-            UnitProcessor.Context context = org.apache.batik.bridge.UnitProcessor.createContext(
-                    new BridgeContext(userAgent), svgElement);
-
-            float width = svgLengthInPixels(svgElement.getWidth().getBaseVal(), context);
-            float height = svgLengthInPixels(svgElement.getHeight().getBaseVal(), context);
-            float x = 0;
-            float y = 0;
-            // check x and y attributes
-            if (svgElement.getX() != null && svgElement.getX().getBaseVal() != null) {
-                x = svgLengthInPixels(svgElement.getX().getBaseVal(), context);
-            }
-            if (svgElement.getY() != null && svgElement.getY().getBaseVal() != null) {
-                y = svgLengthInPixels(svgElement.getY().getBaseVal(), context);
+        BridgeContext ctx = renderer.createBridgeContext(svg.getDensity().getDpi());
+        try {
+            if (svgElement.getAttributeNode("width") != null && svgElement.getAttribute("height") != null) {
+
+                UnitProcessor.Context context = org.apache.batik.bridge.UnitProcessor.createContext(ctx, svgElement);
+
+                float width = svgLengthInPixels(svgElement.getWidth().getBaseVal(), context);
+                float height = svgLengthInPixels(svgElement.getHeight().getBaseVal(), context);
+                float x = 0;
+                float y = 0;
+                // check x and y attributes
+                if (svgElement.getX() != null && svgElement.getX().getBaseVal() != null) {
+                    x = svgLengthInPixels(svgElement.getX().getBaseVal(), context);
+                }
+                if (svgElement.getY() != null && svgElement.getY().getBaseVal() != null) {
+                    y = svgLengthInPixels(svgElement.getY().getBaseVal(), context);
+                }
+
+                return new Rectangle((int) floor(x), (int) floor(y), (int) ceil(width), (int) ceil(height));
             }
 
-            return new Rectangle((int) floor(x), (int) floor(y), (int) ceil(width), (int) ceil(height));
+            // use computed bounds
+            log.warn("Take time to fix desired width and height attributes of the root <svg> node for this file... " +
+                    "ROI will be computed by magic using Batik " + boundsType.name() + " bounds");
+            return boundsType.getBounds(getGraphicsNode(ctx, svgDocument));
+        } finally {
+            renderer.release(ctx);
         }
-
-        // use computed bounds
-        log.warn("Take time to fix desired width and height attributes of the root <svg> node for this file... " +
-                "ROI will be computed by magic using Batik " + boundsType.name() + " bounds");
-        return boundsType.getBounds(getGraphicsNode(svgDocument, svg.getDensity().getDpi()));
     }
 
     private float svgLengthInPixels(SVGLength length, UnitProcessor.Context context) {
         return UnitProcessor.svgToUserSpace(length.getValueAsString(), "px", UnitProcessor.OTHER_LENGTH, context);
     }
 
-    private GraphicsNode getGraphicsNode(SVGDocument svgDocument, int dpi) throws IOException {
-        UserAgent userAgent = new DensityAwareUserAgent(dpi);
-        DocumentLoader loader = new DocumentLoader(userAgent);
-        BridgeContext ctx = new BridgeContext(userAgent, loader);
+    private GraphicsNode getGraphicsNode(BridgeContext ctx, SVGDocument svgDocument) {
         ctx.setDynamicState(BridgeContext.DYNAMIC);
         GVTBuilder builder = new GVTBuilder();
-        GraphicsNode rootGN = builder.build(ctx, svgDocument);
-        return rootGN;
-    }
-
-    private SVGDocument getSVGDocument(QualifiedSVGResource svg) throws IOException {
-        String parser = XMLResourceDescriptor.getXMLParserClassName();
-        SAXSVGDocumentFactory f = new SAXSVGDocumentFactory(parser);
-        return (SVGDocument) f.createDocument(svg.toURI().toURL().toString());
+        return builder.build(ctx, svgDocument);
     }
 
     private class QualifiedSVGResource extends QualifiedResource {
@@ -136,14 +161,31 @@ public class QualifiedSVGResourceFactory {
         private final String name;
         private final Density density;
         private final Map<Type, String> typedQualifiers;
-        private final Rectangle bounds;
+        private final int x;
+        private final int y;
+        private final int width;
+        private final int height;
 
         private QualifiedSVGResource(final File file, final String name, final Map<Type, String> qualifiers) throws IOException {
             super(file.getAbsolutePath());
             this.name = name;
             this.typedQualifiers = qualifiers;
-            this.density = Density.from(typedQualifiers.get(Type.density));
-            this.bounds = extractSVGBounds(this);
+            this.density = densityOf(typedQualifiers.get(Type.density));
+            final Rectangle bounds = index.getBounds(this, boundsType, new SvgMetadataIndex.BoundsExtractor() {
+                @Override
+                public Rectangle extract() throws IOException {
+                    final long start = System.nanoTime();
+                    try {
+                        return extractSVGBounds(QualifiedSVGResource.this);
+                    } finally {
+                        boundsExtractionNanos.addAndGet(System.nanoTime() - start);
+                    }
+                }
+            });
+            this.x = bounds.x;
+            this.y = bounds.y;
+            this.width = bounds.width;
+            this.height = bounds.height;
         }
 
         @Override
@@ -173,15 +215,15 @@ public class QualifiedSVGResourceFactory {
 
         @Override
         public Rectangle getBounds() {
-            return bounds;
+            return new Rectangle(x, y, width, height);
         }
 
         @Override
         public Rectangle getScaledBounds(Density.Value targetDensity) {
             double ratio = getDensity().ratio(getBounds(), targetDensity);
-            final int width = max((int) floor(bounds.getWidth() * ratio), 1);
-            final int height = max((int) floor(bounds.getHeight() * ratio), 1);
-            return new Rectangle(0, 0, width, height);
+            final int scaledWidth = max((int) floor(width * ratio), 1);
+            final int scaledHeight = max((int) floor(height * ratio), 1);
+            return new Rectangle(0, 0, scaledWidth, scaledHeight);
         }
 
         public String toString() {
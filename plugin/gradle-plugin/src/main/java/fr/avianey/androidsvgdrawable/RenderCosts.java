@@ -0,0 +1,215 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import fr.avianey.androidsvgdrawable.util.Log;
+
+import javax.annotation.Nullable;
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+
+/**
+ * Predicts how long a render unit takes, from the output pixel area weighted by the {@link SvgComplexity}
+ * of the file, and refines the predictions with the timings persisted by previous runs :
+ * <ul>
+ * <li>units rendered before are predicted from their last timing, scaled by the change of their weight</li>
+ * <li>other units use the average time per weighted pixel of the history</li>
+ * </ul>
+ * Predictions and actual timings are reported at the end of the run, and saved for the next one.
+ *
+ * @author antoine vianey
+ */
+public final class RenderCosts {
+
+    // ms per weighted megapixel when there is no history
+    private static final double DEFAULT_MILLIS_PER_UNIT = 40;
+
+    private final Log log;
+    @Nullable
+    private final File file;
+    private final Map<String, Timing> history;
+    private final Map<String, Timing> timings = new ConcurrentHashMap<>();
+    private final double millisPerUnit;
+    private final AtomicLong predicted = new AtomicLong();
+    private final AtomicLong actual = new AtomicLong();
+    private final AtomicLong error = new AtomicLong();
+
+    private RenderCosts(Log log, @Nullable File file, Map<String, Timing> history) {
+        this.log = log;
+        this.file = file;
+        this.history = history;
+        double weights = 0;
+        long millis = 0;
+        for (Timing timing : history.values()) {
+            weights += timing.weight;
+            millis += timing.millis;
+        }
+        this.millisPerUnit = weights > 0 && millis > 0 ? millis / weights : DEFAULT_MILLIS_PER_UNIT;
+    }
+
+    /**
+     * @param log the logger
+     * @param file timings of the previous runs, null to keep no history
+     * @return the cost model
+     */
+    public static RenderCosts load(Log log, @Nullable File file) {
+        final Map<String, Timing> history = new HashMap<>();
+        if (file != null && file.isFile()) {
+            final Properties properties = new Properties();
+            try (InputStream is = new FileInputStream(file)) {
+                properties.load(is);
+                for (String key : properties.stringPropertyNames()) {
+                    Timing timing = Timing.parse(properties.getProperty(key));
+                    if (timing != null) {
+                        history.put(key, timing);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Unable to read render timings from " + file.getAbsolutePath(), e);
+            }
+        }
+        return new RenderCosts(log, file, history);
+    }
+
+    /**
+     * @param svg the rendered file
+     * @param density the density of the output
+     * @return the key of the render unit
+     */
+    public static String key(File svg, Density.Value density) {
+        return svg.getAbsolutePath() + '@' + density.name();
+    }
+
+    /**
+     * @param outputBounds the bounds of the output
+     * @param complexity the complexity of the file
+     * @return the weighted megapixels of the output
+     */
+    public static double weight(Rectangle outputBounds, SvgComplexity complexity) {
+        return (double) outputBounds.width * outputBounds.height * complexity.getWeight() / 1_000_000;
+    }
+
+    /**
+     * @param key identifies the render unit from one run to the other
+     * @param weight the weight of the render unit
+     * @return the predicted duration in ms
+     */
+    public long predict(String key, double weight) {
+        final Timing last = history.get(key);
+        if (last != null && last.weight > 0) {
+            return max(1, Math.round(last.millis * weight / last.weight));
+        }
+        return max(1, Math.round(weight * millisPerUnit));
+    }
+
+    /**
+     * Records the actual duration of a render unit
+     * @param key identifies the render unit from one run to the other
+     * @param name the name of the unit in the reports
+     * @param weight the weight of the render unit
+     * @param predictedMillis the predicted duration
+     * @param actualMillis the actual duration
+     */
+    public void record(String key, String name, double weight, long predictedMillis, long actualMillis) {
+        timings.put(key, new Timing(weight, actualMillis));
+        predicted.addAndGet(predictedMillis);
+        actual.addAndGet(actualMillis);
+        error.addAndGet(abs(actualMillis - predictedMillis));
+        if (log.isDebugEnabled()) {
+            log.debug("+ rendered " + name + " in " + actualMillis + " ms (predicted " + predictedMillis + " ms)");
+        }
+    }
+
+    /**
+     * Logs the predicted and actual times of the units rendered so far
+     */
+    public void report() {
+        if (!timings.isEmpty()) {
+            log.info("Rendered " + timings.size() + " units in " + actual.get() + " ms of cumulated time, " +
+                    "predicted " + predicted.get() + " ms (mean absolute error " + error.get() / timings.size() + " ms)");
+        }
+    }
+
+    /**
+     * Saves the timings of this run merged with the ones of the previous runs
+     */
+    public void save() {
+        if (file == null || timings.isEmpty()) {
+            return;
+        }
+        final Properties properties = new Properties();
+        for (Map.Entry<String, Timing> e : history.entrySet()) {
+            // forget deleted files
+            final String key = e.getKey();
+            if (key.indexOf('@') > 0 && new File(key.substring(0, key.lastIndexOf('@'))).exists()) {
+                properties.setProperty(key, e.getValue().toString());
+            }
+        }
+        for (Map.Entry<String, Timing> e : timings.entrySet()) {
+            properties.setProperty(e.getKey(), e.getValue().toString());
+        }
+        file.getParentFile().mkdirs();
+        try (OutputStream os = new FileOutputStream(file)) {
+            properties.store(os, "render timings : weight and duration in ms");
+        } catch (IOException e) {
+            log.warn("Unable to save render timings to " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private static final class Timing {
+
+        private final double weight;
+        private final long millis;
+
+        private Timing(double weight, long millis) {
+            this.weight = weight;
+            this.millis = millis;
+        }
+
+        @Nullable
+        private static Timing parse(String value) {
+            final String[] values = value.split(",");
+            if (values.length != 2) {
+                return null;
+            }
+            try {
+                return new Timing(Double.parseDouble(values[0]), Long.parseLong(values[1]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return weight + "," + millis;
+        }
+
+    }
+
+}
@@ -0,0 +1,392 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import fr.avianey.androidsvgdrawable.util.Log;
+
+import javax.annotation.Nullable;
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.io.Files.asByteSource;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Records, for each output file, a fingerprint of the exact inputs it was produced from :
+ * <ul>
+ * <li>the content of the svg file and of the local files it references (masked svg, images, ...)</li>
+ * <li>the name of the svg file, with its density and size qualifiers, and the size of the output</li>
+ * <li>the targeted density</li>
+ * <li>the format parameters (format, jpg quality and background, output type, bounds type, reproducible output, parallel tiles)</li>
+ * <li>the nine-patch configuration applied to the svg</li>
+ * </ul>
+ * The graph is also the manifest of the files produced by the generation : the size, last modified time and hash
+ * of each output are recorded, with paths relative to the output directory. On the next run :
+ * <ul>
+ * <li>outputs whose fingerprint is unchanged are not rendered again if they are left untouched, which is checked from
+ * their size and last modified time, or from their hash when only the last modified time changed</li>
+ * <li>outputs recorded by the previous run and not produced anymore are deleted, unless their content changed since</li>
+ * </ul>
+ * Only the files of the manifest are checked, the output directory is never scanned.
+ *
+ * @author antoine vianey
+ */
+public final class RenderGraph {
+
+    // to bump whenever unchanged inputs are rendered differently
+    private static final int VERSION = 1;
+    private static final HashFunction HASH = Hashing.murmur3_128();
+    private static final Pattern HREF = Pattern.compile("href\\s*=\\s*[\"']([^\"'#][^\"']*)[\"']");
+    private static final Gson GSON = new Gson();
+
+    private final Log log;
+    @Nullable
+    private final File file;
+    @Nullable
+    private final File base;
+    private final Map<String, Output> previous;
+    private final Map<String, Output> current = new ConcurrentHashMap<>();
+    // inputs hashed during this run
+    private final Map<File, HashCode> inputs = new ConcurrentHashMap<>();
+    private final AtomicInteger upToDate = new AtomicInteger();
+    private final AtomicInteger verified = new AtomicInteger();
+    private final AtomicInteger rendered = new AtomicInteger();
+    private final AtomicInteger deleted = new AtomicInteger();
+
+    private RenderGraph(Log log, @Nullable File file, @Nullable File base, Map<String, Output> previous) {
+        this.log = log;
+        this.file = file;
+        this.base = base == null ? null : base.getAbsoluteFile();
+        this.previous = previous;
+    }
+
+    /**
+     * @param log the logger
+     * @param file the graph of the previous run, null to render every output
+     * @param base the directory the paths of the outputs are relative to, null for absolute paths
+     * @return the render graph
+     */
+    public static RenderGraph load(Log log, @Nullable File file, @Nullable File base) {
+        final Map<String, Output> previous = new HashMap<>();
+        if (file != null && file.isFile()) {
+            final Properties properties = new Properties();
+            try (InputStream is = new FileInputStream(file)) {
+                properties.load(is);
+                for (String key : properties.stringPropertyNames()) {
+                    Output output = Output.parse(properties.getProperty(key));
+                    if (output != null) {
+                        previous.put(key, output);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Unable to read the render graph from " + file.getAbsolutePath(), e);
+            }
+        }
+        return new RenderGraph(log, file, base, previous);
+    }
+
+    /**
+     * @param parameters the parameters of the generation
+     * @return the parameters that apply to every output
+     */
+    public static String parameters(SvgDrawablePlugin.Parameters parameters) {
+        final StringBuilder sb = new StringBuilder()
+                .append(VERSION).append(',')
+                .append(parameters.getOutputFormat()).append(',')
+                .append(parameters.getOutputType()).append(',')
+                .append(parameters.getSvgBoundsType()).append(',')
+                .append(parameters.isReproducible());
+        if (parameters.getOutputFormat() == OutputFormat.PNG) {
+            // small png are rendered tile per tile with parallel tiles only
+            sb.append(',').append(parameters.isParallelTiles());
+        }
+        if (parameters.getOutputFormat() == OutputFormat.JPG) {
+            sb.append(',').append(parameters.getJpgQuality()).append(',').append(parameters.getJpgBackgroundColor());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param svg the qualified svg file
+     * @param density the targeted density
+     * @param parameters the parameters that apply to every output
+     * @param ninePatch the nine-patch configuration applied to the svg, if any
+     * @return the fingerprint of the inputs of the output
+     * @throws IOException if the svg file can't be read
+     */
+    public String fingerprint(QualifiedResource svg, Density.Value density, String parameters, @Nullable NinePatch ninePatch) throws IOException {
+        final Rectangle bounds = svg.getScaledBounds(density);
+        return HASH.newHasher()
+                .putBytes(hash(svg).asBytes())
+                // the qualified name, renaming the file changes the density or the size it is rendered from
+                .putString(svg.toPath().getFileName().toString(), UTF_8)
+                .putInt(bounds.width)
+                .putInt(bounds.height)
+                .putString(density.name(), UTF_8)
+                .putString(parameters, UTF_8)
+                .putString(ninePatch == null ? "" : GSON.toJson(ninePatch), UTF_8)
+                .hash().toString();
+    }
+
+    /**
+     * Hashes the content of a file and, for svg files, of the local files it references
+     */
+    private HashCode hash(File svg) throws IOException {
+        final File key = svg.getAbsoluteFile();
+        HashCode hash = inputs.get(key);
+        if (hash == null) {
+            final Hasher hasher = HASH.newHasher();
+            final Set<File> visited = new TreeSet<>();
+            visited.add(key);
+            hashReferences(key, hasher, visited);
+            hash = hasher.hash();
+            inputs.put(key, hash);
+        }
+        return hash;
+    }
+
+    private void hashReferences(File file, Hasher hasher, Set<File> visited) throws IOException {
+        final byte[] bytes = Files.readAllBytes(file.toPath());
+        hasher.putBytes(bytes);
+        final String name = file.getName().toLowerCase();
+        if (!name.endsWith(".svg") && !name.endsWith(".svgmask")) {
+            return;
+        }
+        final Set<File> references = new TreeSet<>();
+        final Matcher matcher = HREF.matcher(new String(bytes, UTF_8));
+        while (matcher.find()) {
+            final File reference = resolve(file, matcher.group(1));
+            if (reference != null && visited.add(reference)) {
+                references.add(reference);
+            }
+        }
+        for (File reference : references) {
+            // paths are part of the content already, only their resolution matters
+            hasher.putBoolean(reference.isFile());
+            if (reference.isFile()) {
+                hashReferences(reference, hasher, visited);
+            }
+        }
+    }
+
+    /**
+     * @return the local file referenced by the href, null for data, remote or unparsable references
+     */
+    @Nullable
+    private static File resolve(File from, String href) {
+        if (href.startsWith("data:")) {
+            return null;
+        }
+        try {
+            final URI uri = from.toURI().resolve(href.replace(" ", "%20"));
+            return "file".equals(uri.getScheme()) ? new File(uri.getPath()).getAbsoluteFile() : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param output the output file
+     * @param fingerprint the fingerprint of its inputs
+     * @return true if the output was produced from the same inputs by the previous run and was left untouched since
+     */
+    public boolean isUpToDate(File output, String fingerprint) {
+        final String key = key(output);
+        final Output last = previous.get(key);
+        if (last == null || !last.fingerprint.equals(fingerprint) || !isUntouched(output, last)) {
+            return false;
+        }
+        current.put(key, last.lastModified == output.lastModified() ? last :
+                new Output(last.fingerprint, last.size, output.lastModified(), last.hash));
+        upToDate.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @return true if the file still holds the content recorded in the manifest
+     */
+    private boolean isUntouched(File output, Output last) {
+        if (last.hash.isEmpty() || !output.isFile() || output.length() != last.size) {
+            return false;
+        }
+        if (output.lastModified() == last.lastModified) {
+            return true;
+        }
+        // touched, or restored from a cache
+        verified.incrementAndGet();
+        try {
+            return hashContent(output).equals(last.hash);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Records an output produced from the given inputs
+     * @param output the output file
+     * @param fingerprint the fingerprint of its inputs, null if unknown
+     */
+    public void record(File output, @Nullable String fingerprint) {
+        String hash;
+        try {
+            hash = hashContent(output);
+        } catch (IOException e) {
+            log.debug("+ unable to hash " + output.getName());
+            hash = "";
+        }
+        current.put(key(output), new Output(fingerprint == null ? "" : fingerprint, output.length(), output.lastModified(), hash));
+        rendered.incrementAndGet();
+    }
+
+    /**
+     * Keeps an output that failed to render, so that it is rendered again by the next run
+     * @param output the output file
+     */
+    public void failed(File output) {
+        final String key = key(output);
+        final Output last = previous.get(key);
+        // the previous content, if any, is left as is and remains owned by the generation
+        current.put(key, last == null ? new Output("", -1, 0, "") : new Output("", last.size, last.lastModified, last.hash));
+    }
+
+    /**
+     * Deletes the outputs of the previous run that were not produced by this one, unless they changed since
+     */
+    public void deleteStale() {
+        for (Map.Entry<String, Output> e : previous.entrySet()) {
+            final String key = e.getKey();
+            if (!current.containsKey(key)) {
+                final File output = file(key);
+                if (!output.isFile()) {
+                    continue;
+                }
+                if (!isUntouched(output, e.getValue())) {
+                    log.info("Keeping stale output " + output.getAbsolutePath() + " that changed since it was generated");
+                } else if (output.delete()) {
+                    log.debug("+ deleted stale output " + key);
+                    deleted.incrementAndGet();
+                } else {
+                    log.warn("Unable to delete stale output " + output.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    /**
+     * Logs the number of outputs rendered, up-to-date and deleted
+     */
+    public void report() {
+        if (file != null) {
+            log.info("Render graph : " + rendered.get() + " outputs rendered, " + upToDate.get() + " up-to-date ("
+                    + verified.get() + " verified from their hash), " + deleted.get() + " stale outputs deleted");
+        }
+    }
+
+    /**
+     * @return the path of the output in the manifest
+     */
+    private String key(File output) {
+        final File absolute = output.getAbsoluteFile();
+        if (base != null && absolute.toPath().startsWith(base.toPath())) {
+            return base.toPath().relativize(absolute.toPath()).toString().replace(File.separatorChar, '/');
+        }
+        return absolute.getPath();
+    }
+
+    private File file(String key) {
+        final File output = new File(key);
+        return output.isAbsolute() || base == null ? output : new File(base, key);
+    }
+
+    private static String hashContent(File output) throws IOException {
+        return asByteSource(output).hash(HASH).toString();
+    }
+
+    /**
+     * Saves the outputs of this run
+     */
+    public void save() {
+        if (file == null) {
+            return;
+        }
+        final Properties properties = new Properties();
+        for (Map.Entry<String, Output> e : current.entrySet()) {
+            properties.setProperty(e.getKey(), e.getValue().toString());
+        }
+        file.getParentFile().mkdirs();
+        try (OutputStream os = new FileOutputStream(file)) {
+            properties.store(os, "render graph : inputs fingerprint, size, last modified time and hash of each output");
+        } catch (IOException e) {
+            log.warn("Unable to save the render graph to " + file.getAbsolutePath(), e);
+        }
+    }
+
+    private static final class Output {
+
+        private final String fingerprint;
+        private final long size;
+        private final long lastModified;
+        private final String hash;
+
+        private Output(String fingerprint, long size, long lastModified, String hash) {
+            this.fingerprint = fingerprint;
+            this.size = size;
+            this.lastModified = lastModified;
+            this.hash = hash;
+        }
+
+        @Nullable
+        private static Output parse(String value) {
+            final String[] values = value.split(",", -1);
+            if (values.length != 4) {
+                return null;
+            }
+            try {
+                return new Output(values[0], Long.parseLong(values[1]), Long.parseLong(values[2]), values[3]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return fingerprint + "," + size + "," + lastModified + "," + hash;
+        }
+
+    }
+
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import javax.annotation.Nullable;
+
+/**
+ * Receives the lifecycle events of a generation, to feed a metrics sink, a progress UI or a cache.
+ * <p>
+ * Events are delivered asynchronously, in order, one at a time per listener : a listener needs not be thread safe
+ * and a slow listener only delays its own events, never the renders. Every event has been delivered when the
+ * generation ends. Exceptions thrown by a listener are logged and ignored.
+ * </p>
+ *
+ * @author antoine vianey
+ */
+public interface RenderListener {
+
+    /**
+     * @param svg a svg or svgmask file found in the inputs
+     */
+    default void resourceDiscovered(QualifiedResource svg) {
+    }
+
+    /**
+     * @param mask the svgmask file
+     * @param generated a masked svg file generated from the mask
+     */
+    default void maskedResourceGenerated(QualifiedResource mask, QualifiedResource generated) {
+    }
+
+    /**
+     * @param svg a svg file whose complexity was found in the metadata index shared with the other tasks of the build
+     */
+    default void metadataCacheHit(QualifiedResource svg) {
+    }
+
+    /**
+     * @param svg the svg file
+     * @param density the density it is rendered to
+     */
+    default void renderStarted(QualifiedResource svg, Density.Value density) {
+    }
+
+    /**
+     * @param render the timings and sizes of the render
+     */
+    default void renderFinished(RenderMetrics.Render render) {
+    }
+
+    /**
+     * @param svg the svg file
+     * @param density the density it was not rendered to
+     * @param reason why the render was skipped
+     */
+    default void renderSkipped(QualifiedResource svg, Density.Value density, String reason) {
+    }
+
+    /**
+     * @param svg the svg file
+     * @param density the density it failed to render to, null if the file failed before its renders were scheduled
+     * @param e the cause
+     */
+    default void renderFailed(QualifiedResource svg, @Nullable Density.Value density, Exception e) {
+    }
+
+    /**
+     * The generation ended, no more events follow
+     */
+    default void generationFinished() {
+    }
+
+}
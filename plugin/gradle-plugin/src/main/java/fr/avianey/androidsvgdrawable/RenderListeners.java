@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import fr.avianey.androidsvgdrawable.util.EventDispatcher;
+import fr.avianey.androidsvgdrawable.util.Log;
+
+import javax.annotation.Nullable;
+import java.util.concurrent.Executor;
+
+/**
+ * Forwards the events of a generation to the registered {@link RenderListener}s through an {@link EventDispatcher}.
+ *
+ * @author antoine vianey
+ */
+final class RenderListeners implements RenderListener {
+
+    private final EventDispatcher<RenderListener> dispatcher;
+
+    RenderListeners(Log log, Iterable<? extends RenderListener> listeners, Executor executor) {
+        this.dispatcher = new EventDispatcher<>(log, listeners, executor);
+    }
+
+    /**
+     * @return true if there is no listener to notify
+     */
+    boolean isEmpty() {
+        return dispatcher.isEmpty();
+    }
+
+    /**
+     * Waits for every event to be delivered
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void flush() throws InterruptedException {
+        dispatcher.flush();
+    }
+
+    @Override
+    public void resourceDiscovered(QualifiedResource svg) {
+        dispatcher.dispatch(l -> l.resourceDiscovered(svg));
+    }
+
+    @Override
+    public void maskedResourceGenerated(QualifiedResource mask, QualifiedResource generated) {
+        dispatcher.dispatch(l -> l.maskedResourceGenerated(mask, generated));
+    }
+
+    @Override
+    public void metadataCacheHit(QualifiedResource svg) {
+        dispatcher.dispatch(l -> l.metadataCacheHit(svg));
+    }
+
+    @Override
+    public void renderStarted(QualifiedResource svg, Density.Value density) {
+        dispatcher.dispatch(l -> l.renderStarted(svg, density));
+    }
+
+    @Override
+    public void renderFinished(RenderMetrics.Render render) {
+        dispatcher.dispatch(l -> l.renderFinished(render));
+    }
+
+    @Override
+    public void renderSkipped(QualifiedResource svg, Density.Value density, String reason) {
+        dispatcher.dispatch(l -> l.renderSkipped(svg, density, reason));
+    }
+
+    @Override
+    public void renderFailed(QualifiedResource svg, @Nullable Density.Value density, Exception e) {
+        dispatcher.dispatch(l -> l.renderFailed(svg, density, e));
+    }
+
+    @Override
+    public void generationFinished() {
+        dispatcher.dispatch(RenderListener::generationFinished);
+    }
+
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import com.google.gson.stream.JsonWriter;
+import fr.avianey.androidsvgdrawable.util.Log;
+import fr.avianey.androidsvgdrawable.util.StagedPipeline;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingLong;
+
+/**
+ * Timings of a generation, per phase and per render unit, with the bytes read and written and the pixels rendered.
+ * <p>
+ * The slowest renders are summarized in the log, and every measure is written as a machine readable
+ * report : {@value #JSON_REPORT} and {@value #CSV_REPORT}. Render units are recorded concurrently.
+ * </p>
+ *
+ * @author antoine vianey
+ */
+public final class RenderMetrics {
+
+    public static final String JSON_REPORT = "svgdrawable-metrics.json";
+    public static final String CSV_REPORT = "svgdrawable-metrics.csv";
+
+    private static final String[] COLUMNS = {
+            "file", "name", "density", "width", "height", "pixels", "bytesIn", "bytesOut",
+            "readMs", "parseMs", "gvtMs", "rasterizeMs", "encodeMs", "ninePatchMs", "writeMs", "totalMs"
+    };
+
+    /**
+     * Phases of the whole generation, as opposed to the phases of a single render.
+     */
+    public enum Phase {
+        /** listing the svg files, wall time */
+        discovery,
+        /** extracting the bounds of the svg files, cumulated over the threads */
+        boundsExtraction,
+        /** generating the masked svg files, wall time */
+        maskGeneration,
+        /** rendering the svg files, wall time */
+        transcode
+    }
+
+    private final Map<Phase, AtomicLong> phases = new EnumMap<>(Phase.class);
+    private final Queue<Render> renders = new ConcurrentLinkedQueue<>();
+    private volatile List<StagedPipeline.StageStats> stages = Collections.emptyList();
+
+    public RenderMetrics() {
+        for (Phase phase : Phase.values()) {
+            phases.put(phase, new AtomicLong());
+        }
+    }
+
+    public void add(Phase phase, long nanos) {
+        phases.get(phase).addAndGet(nanos);
+    }
+
+    public long getNanos(Phase phase) {
+        return phases.get(phase).get();
+    }
+
+    public void add(Render render) {
+        renders.add(render);
+    }
+
+    /**
+     * @param stages the statistics of the stages of the render pipeline
+     */
+    public void setStages(List<StagedPipeline.StageStats> stages) {
+        this.stages = stages;
+    }
+
+    /**
+     * @return the recorded renders, sorted by file and density
+     */
+    public List<Render> getRenders() {
+        final List<Render> sorted = new ArrayList<>(renders);
+        sorted.sort(comparing(Render::getFile).thenComparing(Render::getDensity));
+        return sorted;
+    }
+
+    /**
+     * Logs the duration of each phase and the slowest renders
+     * @param log the logger
+     * @param top the number of renders to log
+     */
+    public void report(Log log, int top) {
+        final StringBuilder summary = new StringBuilder("Phases :");
+        for (Phase phase : Phase.values()) {
+            summary.append(' ').append(phase.name()).append(' ').append(millis(getNanos(phase))).append(" ms");
+            if (phase != Phase.transcode) {
+                summary.append(',');
+            }
+        }
+        log.info(summary.toString());
+        final List<Render> slowest = new ArrayList<>(renders);
+        if (slowest.isEmpty()) {
+            return;
+        }
+        slowest.sort(comparingLong(Render::getTotalNanos).reversed());
+        log.info("Slowest renders :");
+        for (Render render : slowest.subList(0, Math.min(top, slowest.size()))) {
+            log.info("+ " + render.name + " (" + render.density + ") " + render.width + "x" + render.height
+                    + " in " + millis(render.getTotalNanos()) + " ms : parse " + millis(render.parseNanos)
+                    + " ms, gvt " + millis(render.gvtNanos) + " ms, rasterize " + millis(render.rasterizeNanos)
+                    + " ms, encode " + millis(render.encodeNanos) + " ms, nine-patch " + millis(render.ninePatchNanos)
+                    + " ms, write " + millis(render.writeNanos) + " ms");
+        }
+    }
+
+    /**
+     * Writes the JSON and CSV reports
+     * @param directory the directory of the reports
+     * @throws IOException
+     */
+    public void write(File directory) throws IOException {
+        Files.createDirectories(directory.toPath());
+        final List<Render> sorted = getRenders();
+        try (JsonWriter json = new JsonWriter(Files.newBufferedWriter(new File(directory, JSON_REPORT).toPath(), StandardCharsets.UTF_8))) {
+            json.setIndent("  ");
+            json.beginObject();
+            json.name("phases").beginObject();
+            for (Phase phase : Phase.values()) {
+                json.name(phase.name() + "Ms").value(millis(getNanos(phase)));
+            }
+            json.endObject();
+            json.name("stages").beginArray();
+            for (StagedPipeline.StageStats stage : stages) {
+                json.beginObject()
+                        .name("name").value(stage.getName())
+                        .name("workers").value(stage.getWorkers())
+                        .name("processed").value(stage.getProcessed())
+                        .name("busyMs").value(millis(stage.getBusyNanos()))
+                        .name("utilisation").value(stage.getUtilisation())
+                        .name("maxDepth").value(stage.getMaxDepth())
+                        .name("capacity").value(stage.getCapacity())
+                        .endObject();
+            }
+            json.endArray();
+            json.name("renders").beginArray();
+            for (Render render : sorted) {
+                final Object[] values = render.values();
+                json.beginObject();
+                for (int i = 0; i < COLUMNS.length; i++) {
+                    json.name(COLUMNS[i]);
+                    if (values[i] instanceof Number) {
+                        json.value((Number) values[i]);
+                    } else {
+                        json.value(String.valueOf(values[i]));
+                    }
+                }
+                json.endObject();
+            }
+            json.endArray();
+            json.endObject();
+        }
+        try (Writer writer = Files.newBufferedWriter(new File(directory, CSV_REPORT).toPath(), StandardCharsets.UTF_8);
+             PrintWriter csv = new PrintWriter(writer)) {
+            csv.print(String.join(",", COLUMNS));
+            csv.print('\n');
+            for (Render render : sorted) {
+                final Object[] values = render.values();
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        csv.print(',');
+                    }
+                    csv.print(csv(values[i]));
+                }
+                csv.print('\n');
+            }
+        }
+    }
+
+    private static String csv(Object value) {
+        final String s = value instanceof Double ? String.format(Locale.ROOT, "%.3f", value) : String.valueOf(value);
+        if (s.indexOf(',') >= 0 || s.indexOf('"') >= 0 || s.indexOf('\n') >= 0) {
+            return '"' + s.replace("\"", "\"\"") + '"';
+        }
+        return s;
+    }
+
+    private static double millis(long nanos) {
+        return Math.round(nanos / 1_000d) / 1_000d;
+    }
+
+    /**
+     * Measures of a single svg file rendered to a density, filled by the stages of the render.
+     */
+    public static final class Render {
+
+        private final String file;
+        private final String name;
+        private final Density.Value density;
+        int width;
+        int height;
+        long bytesIn;
+        long bytesOut;
+        long readNanos;
+        long parseNanos;
+        long gvtNanos;
+        long rasterizeNanos;
+        long encodeNanos;
+        long ninePatchNanos;
+        long writeNanos;
+
+        public Render(QualifiedResource svg, Density.Value density) {
+            this.file = svg.getAbsolutePath();
+            this.name = svg.getName();
+            this.density = density;
+        }
+
+        public String getFile() {
+            return file;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Density.Value getDensity() {
+            return density;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public long getBytesIn() {
+            return bytesIn;
+        }
+
+        public long getBytesOut() {
+            return bytesOut;
+        }
+
+        public long getPixels() {
+            return (long) width * height;
+        }
+
+        public long getReadNanos() {
+            return readNanos;
+        }
+
+        public long getParseNanos() {
+            return parseNanos;
+        }
+
+        public long getGvtNanos() {
+            return gvtNanos;
+        }
+
+        public long getRasterizeNanos() {
+            return rasterizeNanos;
+        }
+
+        public long getEncodeNanos() {
+            return encodeNanos;
+        }
+
+        public long getNinePatchNanos() {
+            return ninePatchNanos;
+        }
+
+        public long getWriteNanos() {
+            return writeNanos;
+        }
+
+        /**
+         * @return the time spent in every phase of the render, waiting excluded
+         */
+        public long getTotalNanos() {
+            return readNanos + parseNanos + gvtNanos + rasterizeNanos + encodeNanos + ninePatchNanos + writeNanos;
+        }
+
+        private Object[] values() {
+            return new Object[] {
+                    file, name, density.name(), width, height, getPixels(), bytesIn, bytesOut,
+                    millis(readNanos), millis(parseNanos), millis(gvtNanos), millis(rasterizeNanos),
+                    millis(encodeNanos), millis(ninePatchNanos), millis(writeNanos), millis(getTotalNanos())
+            };
+        }
+
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the elements of a SVG file that drive the cost of its rendering.
+ * The file is streamed, no DOM is built and no external entity is loaded.
+ *
+ * @author antoine vianey
+ */
+public final class SvgComplexity {
+
+    public static final SvgComplexity EMPTY = new SvgComplexity(0, 0, 0, 0, 0);
+
+    // factories are not guaranteed to be thread safe
+    private static final ThreadLocal<XMLInputFactory> FACTORIES = new ThreadLocal<XMLInputFactory>() {
+        @Override
+        protected XMLInputFactory initialValue() {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            return factory;
+        }
+    };
+
+    private final int nodes;
+    private final int filters;
+    private final int masks;
+    private final int gradients;
+    private final int texts;
+
+    public SvgComplexity(int nodes, int filters, int masks, int gradients, int texts) {
+        this.nodes = nodes;
+        this.filters = filters;
+        this.masks = masks;
+        this.gradients = gradients;
+        this.texts = texts;
+    }
+
+    /**
+     * @param svg the SVG file to scan
+     * @return the complexity of the file
+     * @throws IOException if the file cannot be read or parsed
+     */
+    public static SvgComplexity scan(File svg) throws IOException {
+        int nodes = 0;
+        int filters = 0;
+        int masks = 0;
+        int gradients = 0;
+        int texts = 0;
+        try (InputStream is = new FileInputStream(svg)) {
+            final XMLStreamReader reader = FACTORIES.get().createXMLStreamReader(is);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                        continue;
+                    }
+                    nodes++;
+                    switch (reader.getLocalName()) {
+                        case "filter":
+                            filters++;
+                            break;
+                        case "mask":
+                        case "clipPath":
+                        case "pattern":
+                            masks++;
+                            break;
+                        case "linearGradient":
+                        case "radialGradient":
+                            gradients++;
+                            break;
+                        case "text":
+                            texts++;
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to scan " + svg.getAbsolutePath(), e);
+        }
+        return new SvgComplexity(nodes, filters, masks, gradients, texts);
+    }
+
+    /**
+     * @return the cost of rendering one pixel, relatively to a plain shape
+     */
+    public double getWeight() {
+        return 1 + 0.02 * nodes + 1.5 * filters + 0.5 * masks + 0.25 * gradients + 0.5 * texts;
+    }
+
+    public int getNodes() {
+        return nodes;
+    }
+
+    public int getFilters() {
+        return filters;
+    }
+
+    public int getMasks() {
+        return masks;
+    }
+
+    public int getGradients() {
+        return gradients;
+    }
+
+    public int getTexts() {
+        return texts;
+    }
+
+}
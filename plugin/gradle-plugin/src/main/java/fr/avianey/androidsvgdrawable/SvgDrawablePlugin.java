@@ -19,8 +19,20 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.gson.GsonBuilder;
 import com.google.gson.reflect.TypeToken;
 import fr.avianey.androidsvgdrawable.NinePatch.Zone;
+import fr.avianey.androidsvgdrawable.batik.BandedPNGTranscoder;
+import fr.avianey.androidsvgdrawable.batik.RenderPhases;
+import fr.avianey.androidsvgdrawable.batik.RendererContext;
+import fr.avianey.androidsvgdrawable.batik.ReproducibleOutput;
+import fr.avianey.androidsvgdrawable.jfr.MaskGenerationEvent;
+import fr.avianey.androidsvgdrawable.jfr.NinePatchEvent;
+import fr.avianey.androidsvgdrawable.jfr.RenderEvent;
 import fr.avianey.androidsvgdrawable.util.Log;
 import fr.avianey.androidsvgdrawable.util.QualifiedResourceFilter;
+import fr.avianey.androidsvgdrawable.util.QualifiedResourceWalker;
+import fr.avianey.androidsvgdrawable.util.RenderScheduler;
+import fr.avianey.androidsvgdrawable.util.OutputFiles;
+import fr.avianey.androidsvgdrawable.util.StagedPipeline;
+import fr.avianey.androidsvgdrawable.util.TraceRecorder;
 import org.apache.batik.transcoder.TranscoderException;
 import org.apache.batik.transcoder.TranscoderInput;
 import org.apache.batik.transcoder.TranscoderOutput;
@@ -38,15 +50,23 @@ import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.*;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
+import java.nio.file.Files;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import static com.google.common.base.Joiner.on;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static fr.avianey.androidsvgdrawable.util.Constants.MM_PER_INCH;
-import static java.awt.Color.BLACK;
 import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
 import static java.lang.Math.max;
 import static java.lang.Math.min;
@@ -55,8 +75,6 @@ import static java.util.Collections.singletonList;
 import static org.apache.batik.transcoder.SVGAbstractTranscoder.*;
 import static org.apache.batik.transcoder.image.ImageTranscoder.KEY_BACKGROUND_COLOR;
 import static org.apache.batik.transcoder.image.JPEGTranscoder.KEY_QUALITY;
-import static org.apache.commons.io.FileUtils.listFiles;
-import static org.apache.commons.io.filefilter.TrueFileFilter.INSTANCE;
 
 /**
  * Generates drawable from Scalable Vector Graphics (SVG) files.
@@ -68,6 +86,11 @@ public class SvgDrawablePlugin {
     private static final String SVG_EXTENSION = "svg";
     private static final String SVGMASK_EXTENSION = "svgmask";
     private static final String PNG_EXTENSION = "png";
+    // slowest renders logged at the end of the generation
+    private static final int SLOWEST_RENDERS = 10;
+    private static final String TRACE_FILE = "svgdrawable-trace.json";
+    // delivers the events of every generation to their listeners, threads are not kept when idle
+    private static final Executor LISTENER_EXECUTOR = StagedPipeline.newIoExecutor("svgdrawable-listener");
 
     public interface Parameters {
 
@@ -77,6 +100,9 @@ public class SvgDrawablePlugin {
         OutputType DEFAULT_OUTPUT_TYPE = OutputType.drawable;
         BoundsType DEFAULT_BOUNDS_TYPE = BoundsType.sensitive;
         Boolean DEFAULT_CREATE_MISSING_DIRECTORIES = true;
+        Boolean DEFAULT_PARALLEL_TILES = false;
+        Boolean DEFAULT_TRACE = false;
+        Boolean DEFAULT_REPRODUCIBLE = false;
 
         Iterable<File> getFiles();
 
@@ -109,19 +135,73 @@ public class SvgDrawablePlugin {
 
         int getJpgBackgroundColor();
 
+        /**
+         * @return true to render byte identical files from identical inputs
+         */
+        boolean isReproducible();
+
         BoundsType getSvgBoundsType();
 
+        boolean isParallelTiles();
+
+        /**
+         * @return where render timings are kept from one run to the other, null to keep no history
+         */
+        @Nullable
+        File getRenderHistoryFile();
+
+        /**
+         * @return the manifest of the outputs and of their inputs kept from one run to the other, null to render every output
+         */
+        @Nullable
+        File getRenderGraphFile();
+
+        /**
+         * @return where the performance report is written, null to write no report
+         */
+        @Nullable
+        File getReportDirectory();
+
+        /**
+         * @return true to write a timeline of the generation in the report directory
+         */
+        boolean isTrace();
+
+        /**
+         * @return the listeners notified of the lifecycle of the generation
+         */
+        Iterable<RenderListener> getRenderListeners();
+
     }
 
     // log
     private final Log log;
     private final Parameters parameters;
     private final QualifiedSVGResourceFactory qualifiedSVGResourceFactory;
+    private final MemoryBudget memoryBudget;
+    private final SvgMetadataIndex index;
+    private final TraceRecorder trace;
+    private final RenderListeners listeners;
+    private final AtomicLong jobs = new AtomicLong();
 
     public SvgDrawablePlugin(final Parameters parameters, final Log log) {
+        this(parameters, log, new SvgMetadataIndex(), MemoryBudget.ofHeap());
+    }
+
+    /**
+     * @param parameters the parameters of the generation
+     * @param log the logger
+     * @param index bounds already extracted by other generations
+     * @param memoryBudget the budget shared with other generations running concurrently
+     */
+    public SvgDrawablePlugin(final Parameters parameters, final Log log, final SvgMetadataIndex index, final MemoryBudget memoryBudget) {
         this.parameters = parameters;
         this.log = log;
-        this.qualifiedSVGResourceFactory = new QualifiedSVGResourceFactory(getLog(), parameters.getSvgBoundsType());
+        this.qualifiedSVGResourceFactory = new QualifiedSVGResourceFactory(getLog(), parameters.getSvgBoundsType(), index);
+        this.memoryBudget = memoryBudget;
+        this.index = index;
+        this.trace = parameters.isTrace() ? new TraceRecorder() : TraceRecorder.DISABLED;
+        this.listeners = new RenderListeners(log, parameters.getRenderListeners(), LISTENER_EXECUTOR);
     }
 
     private Log getLog() {
@@ -129,6 +209,19 @@ public class SvgDrawablePlugin {
     }
 
     public void execute() {
+        final ForkJoinPool pool = newForkJoinPool(Runtime.getRuntime().availableProcessors());
+        try {
+            execute(pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Runs the generation on a pool shared with other generations.
+     * @param pool the pool to run the generation on, it is not shut down
+     */
+    public void execute(final ForkJoinPool pool) {
 
         /**********************
          * Targeted densities *
@@ -174,13 +267,93 @@ public class SvgDrawablePlugin {
             getLog().info("No NinePatch configuration file specified");
         }
 
-        /*****************************
-         * List input SVG to convert *
-         *****************************/
+        /********************************
+         * Transcode SVG files as found *
+         ********************************/
 
+        final NinePatchMap ninePatches = ninePatchMap;
+        final AtomicInteger transcoded = new AtomicInteger();
+        final RenderCosts costs = RenderCosts.load(getLog(), parameters.getRenderHistoryFile());
+        final RenderGraph graph = RenderGraph.load(getLog(), parameters.getRenderGraphFile(), parameters.getTo());
+        // units only describe the renders : all of them are ordered by cost before being dispatched
+        final RenderScheduler scheduler = new RenderScheduler(pool);
+        final RenderMetrics metrics = new RenderMetrics();
+        final StagedPipeline<RenderJob> pipeline = newPipeline(pool, costs, graph, metrics);
+        final long start = System.nanoTime();
+        try {
+            transcode(pool, scheduler, pipeline, costs, graph, metrics, targetDensities, ninePatches, transcoded);
+            // outputs of the previous run not produced anymore
+            graph.deleteStale();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            getLog().error("Interrupted while transcoding SVG files", e);
+        } finally {
+            try {
+                pipeline.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        metrics.add(RenderMetrics.Phase.transcode, System.nanoTime() - start);
+        metrics.add(RenderMetrics.Phase.boundsExtraction, qualifiedSVGResourceFactory.getBoundsExtractionNanos());
+        metrics.setStages(pipeline.getStats());
+        for (StagedPipeline.StageStats stats : pipeline.getStats()) {
+            getLog().info("Pipeline stage " + stats);
+        }
+
+        listeners.generationFinished();
+        costs.report();
+        costs.save();
+        graph.report();
+        graph.save();
+        metrics.report(getLog(), SLOWEST_RENDERS);
+        if (parameters.getReportDirectory() != null) {
+            try {
+                metrics.write(parameters.getReportDirectory());
+                getLog().info("Performance report written to " + parameters.getReportDirectory().getAbsolutePath());
+            } catch (IOException e) {
+                getLog().warn("Unable to write the performance report to " + parameters.getReportDirectory().getAbsolutePath(), e);
+            }
+            if (trace.isEnabled()) {
+                final File traceFile = new File(parameters.getReportDirectory(), TRACE_FILE);
+                try {
+                    trace.write(traceFile);
+                    getLog().info("Trace written to " + traceFile.getAbsolutePath());
+                } catch (IOException e) {
+                    getLog().warn("Unable to write the trace to " + traceFile.getAbsolutePath(), e);
+                }
+            }
+        }
+        try {
+            listeners.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+    }
+
+    /**
+     * Transcodes the svg files and the masked svg files through the pipeline, blocking until every render is written
+     */
+    private void transcode(final ForkJoinPool pool, final RenderScheduler scheduler, final StagedPipeline<RenderJob> pipeline,
+                           final RenderCosts costs, final RenderGraph graph, final RenderMetrics metrics,
+                           final Set<Density.Value> targetDensities, final NinePatchMap ninePatches, final AtomicInteger transcoded) throws InterruptedException {
         getLog().info("Listing SVG files : " + on(", ").join(parameters.getFiles()));
-        final Collection<QualifiedResource> svgToConvert = listQualifiedResources(parameters.getFiles(), SVG_EXTENSION);
-        getLog().info("SVG files found : " + on(", ").join(svgToConvert));
+        long start = System.nanoTime();
+        new QualifiedResourceWalker(getLog(), pool).walk(parameters.getFiles(),
+                new QualifiedResourceFilter(getLog(), qualifiedSVGResourceFactory, SVG_EXTENSION, new Consumer<QualifiedResource>() {
+                    @Override
+                    public void accept(QualifiedResource svg) {
+                        listeners.resourceDiscovered(svg);
+                        schedule(scheduler, pipeline, costs, graph, svg, targetDensities, ninePatches);
+                        transcoded.incrementAndGet();
+                    }
+                }));
+        metrics.add(RenderMetrics.Phase.discovery, System.nanoTime() - start);
+        trace.complete("discovery", "discovery", start, System.nanoTime());
+        scheduler.drain();
+        pipeline.await();
+        getLog().info("SVG files found : " + transcoded.get());
 
         /*****************************
          * List input SVGMASK to use *
@@ -189,79 +362,209 @@ public class SvgDrawablePlugin {
         Iterable<File> svgMaskFiles = parameters.getSvgMaskFiles() == null ? parameters.getFiles() : parameters.getSvgMaskFiles();
 
         getLog().info("Listing SVGMASK files : " + on(", ").join(svgMaskFiles));
-        final Collection<QualifiedResource> svgMasks = listQualifiedResources(svgMaskFiles, SVGMASK_EXTENSION);
-        getLog().info("SVGMASK files found : " + on(", ").join(svgMasks));
+        start = System.nanoTime();
+        final Collection<QualifiedResource> svgMasks = listQualifiedResources(pool, svgMaskFiles, SVGMASK_EXTENSION);
+        metrics.add(RenderMetrics.Phase.discovery, System.nanoTime() - start);
+        trace.complete("mask discovery", "discovery", start, System.nanoTime());
+        for (QualifiedResource svgMask : svgMasks) {
+            listeners.resourceDiscovered(svgMask);
+        }
+        getLog().info("SVGMASK files found : " + svgMasks.size());
         if (!svgMasks.isEmpty()) {
             // list resources to mask
             Iterable<File> svgMaskedResourcesFiles = parameters.getSvgMaskResourceFiles() == null ? svgMaskFiles : parameters.getSvgMaskResourceFiles();
             getLog().info("Listing SVG files to mask : " + on(", ").join(svgMaskedResourcesFiles));
-            final Collection<QualifiedResource> svgMaskResources = listQualifiedResources(svgMaskedResourcesFiles, SVG_EXTENSION);
-            getLog().info("SVG files to mask found : " + on(", ").join(svgMasks));
-            // generate masked svg
-            svgToConvert.addAll(generateMaskedSvg(svgMasks, svgMaskResources));
+            start = System.nanoTime();
+            final Collection<QualifiedResource> svgMaskResources = listQualifiedResources(pool, svgMaskedResourcesFiles, SVG_EXTENSION);
+            metrics.add(RenderMetrics.Phase.discovery, System.nanoTime() - start);
+            trace.complete("masked discovery", "discovery", start, System.nanoTime());
+            getLog().info("SVG files to mask found : " + svgMaskResources.size());
+            // generate and transcode masked svg, one mask at a time
+            for (QualifiedResource maskFile : svgMasks) {
+                start = System.nanoTime();
+                final Collection<QualifiedResource> maskedSvgs = generateMaskedSvg(maskFile, svgMaskResources);
+                metrics.add(RenderMetrics.Phase.maskGeneration, System.nanoTime() - start);
+                trace.complete("mask " + maskFile.getName(), "mask", start, System.nanoTime());
+                for (QualifiedResource svg : maskedSvgs) {
+                    listeners.maskedResourceGenerated(maskFile, svg);
+                    schedule(scheduler, pipeline, costs, graph, svg, targetDensities, ninePatches);
+                }
+                scheduler.drain();
+                pipeline.await();
+            }
         } else {
             getLog().info("No SVGMASK file found.");
         }
+    }
 
-        /*********************************
-         * Create svg in res/* folder(s) *
-         *********************************/
+    /**
+     * Creates the pipeline rendering the scheduled units : the svg file is read and the png (or jpg) file
+     * is written on I/O threads, while the document is parsed and rendered by tasks of the shared pool, so that
+     * concurrent tasks share the same CPU threads. Bounded queues between stages keep at most a few sources,
+     * documents and encoded images in memory.
+     * @param pool the pool on which the documents are parsed and rendered, and the tiles of a drawable forked
+     * @param costs records the actual duration of each render
+     * @param graph records the inputs of each output
+     * @param metrics records the measures of each render
+     * @return the started pipeline
+     */
+    private StagedPipeline<RenderJob> newPipeline(final ForkJoinPool pool, final RenderCosts costs, final RenderGraph graph,
+                                                 final RenderMetrics metrics) {
+        final int parallelism = pool.getParallelism();
+        final int parseWorkers = max(1, parallelism / 2);
+        final int capacity = 2 * parallelism;
+        final ExecutorService io = StagedPipeline.newIoExecutor("svgdrawable-io");
+        return new StagedPipeline<>(new StagedPipeline.Listener<RenderJob>() {
+            @Override
+            public void completed(RenderJob job) {
+                if (job.finalName != null) {
+                    costs.record(job.key, job.svg.getName() + " (" + job.density.name() + ")", job.weight, job.predicted,
+                            job.metrics.getTotalNanos() / 1_000_000);
+                    graph.record(new File(job.finalName), job.fingerprint);
+                    metrics.add(job.metrics);
+                    listeners.renderFinished(job.metrics);
+                }
+            }
+            @Override
+            public void failed(RenderJob job, Exception e) {
+                getLog().error("Error while converting " + job.svg, e);
+                listeners.renderFailed(job.svg, job.density, e);
+                if (job.output != null) {
+                    graph.failed(job.output);
+                }
+            }
+        })
+                .stage("read", io, parallelism, capacity, new StagedPipeline.Action<RenderJob>() {
+                    @Override
+                    public boolean process(RenderJob job) throws IOException {
+                        return read(job);
+                    }
+                })
+                .pooledStage("parse", pool, parseWorkers, capacity, new StagedPipeline.Action<RenderJob>() {
+                    @Override
+                    public boolean process(RenderJob job) throws IOException {
+                        return parse(job);
+                    }
+                })
+                .pooledStage("render", pool, parallelism, capacity, new StagedPipeline.Action<RenderJob>() {
+                    @Override
+                    public boolean process(RenderJob job) throws Exception {
+                        // parallel tiles are forked to the pool running the render
+                        return render(job);
+                    }
+                })
+                .stage("write", io, parallelism, capacity, new StagedPipeline.Action<RenderJob>() {
+                    @Override
+                    public boolean process(RenderJob job) throws IOException {
+                        return write(job);
+                    }
+                })
+                .start();
+    }
 
-        for (QualifiedResource svg : svgToConvert) {
+    /**
+     * Schedules the transcoding of a svg file to each of the targeted densities
+     * @param scheduler the scheduler dispatching the most expensive renders first
+     * @param pipeline the pipeline rendering the dispatched units
+     * @param costs predicts the cost of each render
+     * @param graph skips the outputs produced from the same inputs by the previous run
+     * @param svg the svg to transcode
+     * @param targetDensities the targeted densities
+     * @param ninePatchMap the nine patch configurations
+     */
+    private void schedule(final RenderScheduler scheduler, final StagedPipeline<RenderJob> pipeline, final RenderCosts costs,
+                          final RenderGraph graph, final QualifiedResource svg, final Set<Density.Value> targetDensities, final NinePatchMap ninePatchMap) {
+        getLog().info("Transcoding " + FilenameUtils.getName(svg.getAbsolutePath()) + " to targeted densities");
+        SvgComplexity complexity;
+        final AtomicBoolean scanned = new AtomicBoolean();
+        try {
+            complexity = index.getComplexity(svg, new SvgMetadataIndex.Extractor<SvgComplexity>() {
+                @Override
+                public SvgComplexity extract() throws IOException {
+                    scanned.set(true);
+                    return SvgComplexity.scan(svg);
+                }
+            });
+        } catch (IOException e) {
+            getLog().debug("+ unable to scan the complexity of " + svg.getName());
+            complexity = SvgComplexity.EMPTY;
+        }
+        if (!scanned.get()) {
+            listeners.metadataCacheHit(svg);
+        }
+        final NinePatch ninePatch = ninePatchMap.getBestMatch(svg);
+        final boolean hasNinePatch = ninePatch != null && parameters.getOutputFormat().hasNinePatchSupport();
+        final String graphParameters = RenderGraph.parameters(parameters);
+        Collection<Density.Value> _targetedDensities = parameters.getOutputType() == OutputType.raw ?
+                singletonList(svg.getDensity().getValue()) :
+                targetDensities;
+        for (final Density.Value d : _targetedDensities) {
+            final File output = new File(getDestination(svg, d), getOutputName(svg, hasNinePatch));
+            String fingerprint;
             try {
-                getLog().info("Transcoding " + FilenameUtils.getName(svg.getAbsolutePath()) + " to targeted densities");
-                Collection<Density.Value> _targetedDensities = parameters.getOutputType() == OutputType.raw ?
-                        singletonList(svg.getDensity().getValue()) :
-                        targetDensities;
-                for (Density.Value d : _targetedDensities) {
-                    NinePatch ninePatch = ninePatchMap.getBestMatch(svg);
-                    File destination = parameters.getOutputType() == OutputType.raw ?
-                            parameters.getTo() :
-                            svg.getOutputFor(d, parameters.getTo(), parameters.getOutputType(), parameters.getNoDpiDensity());
-                    if (!destination.exists() && parameters.isCreateMissingDirectories()) {
-                        destination.mkdirs();
-                    }
-                    if (destination.exists()) {
-                        getLog().debug("+ transcoding " + svg.getName() + " into " + destination.getName());
-                        transcode(svg, d, destination, ninePatch);
-                    } else {
-                        getLog().info("Qualified output directory " + destination.getName() + " does not exists. " +
-                        		"Set 'createMissingDirectories' to true if you want it to be created when missing...");
+                fingerprint = graph.fingerprint(svg, d, graphParameters, hasNinePatch ? ninePatch : null);
+            } catch (IOException e) {
+                getLog().debug("+ unable to fingerprint the inputs of " + output.getName());
+                fingerprint = null;
+            }
+            if (fingerprint != null && graph.isUpToDate(output, fingerprint)) {
+                listeners.renderSkipped(svg, d, "up-to-date");
+                continue;
+            }
+            final RenderJob job = new RenderJob(svg, d, ninePatch, null);
+            job.output = output;
+            job.fingerprint = fingerprint;
+            job.key = RenderCosts.key(svg, d);
+            job.weight = RenderCosts.weight(svg.getScaledBounds(d), complexity);
+            job.predicted = costs.predict(job.key, job.weight);
+            job.metadataCached = !scanned.get();
+            scheduler.submit(job.predicted, new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        job.queuedAt = System.nanoTime();
+                        pipeline.submit(job);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        getLog().error("Interrupted while converting " + svg, e);
                     }
                 }
-            } catch (Exception e) {
-                getLog().error("Error while converting " + svg, e);
-			}
+            });
         }
-
     }
 
     /**
      * Generate masked SVG files to be handle like regular SVG files
-     * @param svgMasks SVGMASK files
+     * @param maskFile SVGMASK file
      * @param svgMaskResources SVG files to mask
      * @return masked qualified resources
      */
-    private Collection<QualifiedResource> generateMaskedSvg(Collection<QualifiedResource> svgMasks, Collection<QualifiedResource> svgMaskResources) {
-        Collection<QualifiedResource> maskedFiles = new ArrayList<>();
-        for (QualifiedResource maskFile : svgMasks) {
-            getLog().info("Generating masked files for " + maskFile);
-            try {
-                Collection<QualifiedResource> generatedResources = new SvgMask(maskFile).generatesMaskedResources(
-                        qualifiedSVGResourceFactory,
-                        parameters.getSvgMaskedSvgOutputDirectory(), svgMaskResources,
-                        parameters.isUseSameSvgOnlyOnceInMask());
-                if (!generatedResources.isEmpty()) {
-                    getLog().debug("+ " + on(", ").join(generatedResources));
-                } else {
-                    getLog().debug("+ no matching masked resource file was found");
-                }
-                maskedFiles.addAll(generatedResources);
-            } catch (XPathExpressionException | TransformerException | ParserConfigurationException | SAXException | IOException e) {
-                getLog().error(e);
+    private Collection<QualifiedResource> generateMaskedSvg(QualifiedResource maskFile, Collection<QualifiedResource> svgMaskResources) {
+        getLog().info("Generating masked files for " + maskFile);
+        final MaskGenerationEvent event = new MaskGenerationEvent();
+        event.begin();
+        try {
+            Collection<QualifiedResource> generatedResources = new SvgMask(maskFile).generatesMaskedResources(
+                    qualifiedSVGResourceFactory,
+                    parameters.getSvgMaskedSvgOutputDirectory(), svgMaskResources,
+                    parameters.isUseSameSvgOnlyOnceInMask());
+            if (event.shouldCommit()) {
+                event.mask = maskFile.getAbsolutePath();
+                event.candidates = svgMaskResources.size();
+                event.generated = generatedResources.size();
+                event.commit();
+            }
+            if (!generatedResources.isEmpty()) {
+                getLog().debug("+ " + generatedResources.size() + " masked resource files generated");
+            } else {
+                getLog().debug("+ no matching masked resource file was found");
             }
+            return generatedResources;
+        } catch (XPathExpressionException | TransformerException | ParserConfigurationException | SAXException | IOException e) {
+            getLog().error(e);
+            listeners.renderFailed(maskFile, null, e);
+            return Collections.emptyList();
         }
-        return maskedFiles;
     }
 
     /**
@@ -272,86 +575,340 @@ public class SvgDrawablePlugin {
      * @param ninePatch the nine patch configuration for the svg to transcode (if any)
      * @throws IOException
      * @throws TranscoderException
-     * @throws IllegalAccessException
-     * @throws InstantiationException
      */
     @VisibleForTesting
-    void transcode(QualifiedResource svg, Density.Value targetDensity, File destination, @Nullable NinePatch ninePatch) throws IOException, TranscoderException, InstantiationException, IllegalAccessException {
-        final Rectangle outputBounds = svg.getScaledBounds(targetDensity);
+    void transcode(QualifiedResource svg, Density.Value targetDensity, File destination, @Nullable NinePatch ninePatch) throws IOException, TranscoderException {
+        // runs the stages of the pipeline in the calling thread
+        RenderJob job = new RenderJob(svg, targetDensity, ninePatch, destination);
+        try {
+            if (read(job) && parse(job) && render(job)) {
+                write(job);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the memory budget");
+        }
+    }
+
+    /**
+     * Resolves the destination directory and reads the svg file
+     * @param job the render unit
+     * @return false if the destination directory does not exist
+     * @throws IOException
+     */
+    private boolean read(final RenderJob job) throws IOException {
+        listeners.renderStarted(job.svg, job.density);
+        if (job.destination == null) {
+            File destination = getDestination(job.svg, job.density);
+            if (!destination.exists() && parameters.isCreateMissingDirectories()) {
+                destination.mkdirs();
+            }
+            if (!destination.exists()) {
+                getLog().info("Qualified output directory " + destination.getName() + " does not exists. " +
+                        "Set 'createMissingDirectories' to true if you want it to be created when missing...");
+                listeners.renderSkipped(job.svg, job.density, "missing output directory " + destination.getAbsolutePath());
+                return false;
+            }
+            getLog().debug("+ transcoding " + job.svg.getName() + " into " + destination.getName());
+            job.destination = destination;
+        }
+        final long start = System.nanoTime();
+        waited(job, "read", start);
+        job.source = Files.readAllBytes(job.svg.toPath());
+        job.metrics.readNanos = traced(job, "read", start);
+        job.metrics.bytesIn = job.source.length;
+        return true;
+    }
+
+    /**
+     * Parses the svg document from the source read
+     * @param job the render unit
+     * @return true
+     * @throws IOException
+     */
+    private boolean parse(final RenderJob job) throws IOException {
+        final long start = System.nanoTime();
+        waited(job, "parse", start);
+        final String uri = job.svg.toURI().toString();
+        job.input = new TranscoderInput(RendererContext.get().createDocument(uri, new ByteArrayInputStream(job.source)));
+        job.input.setURI(uri);
+        job.source = null;
+        job.metrics.parseNanos = traced(job, "parse", start);
+        return true;
+    }
+
+    /**
+     * Renders and encodes the parsed document.
+     * Large png are streamed to their file as they are rendered, other images are encoded in memory to be written.
+     * @param job the render unit
+     * @return true if the encoded image remains to be written
+     * @throws IOException
+     * @throws TranscoderException
+     * @throws InterruptedException if interrupted while waiting for the memory budget
+     */
+    private boolean render(final RenderJob job) throws IOException, TranscoderException, InterruptedException {
+        final QualifiedResource svg = job.svg;
+        final NinePatch ninePatch = job.ninePatch;
+        final Rectangle outputBounds = svg.getScaledBounds(job.density);
         if (getLog().isDebugEnabled()) {
             getLog().debug("+ target dimensions [width=" + outputBounds.getWidth() + " - height=" + outputBounds.getHeight() +"]");
         }
-        try (FileInputStream svgInputStream = new FileInputStream(svg)) {
-            TranscoderInput input = new TranscoderInput(svgInputStream);
+        final ImageTranscoder t = RendererContext.get().getTranscoder(parameters.getOutputFormat());
+        final boolean hasNinePatch = ninePatch != null && parameters.getOutputFormat().hasNinePatchSupport();
+        final BandedPNGTranscoder banded = t instanceof BandedPNGTranscoder
+                && ((BandedPNGTranscoder) t).isBanded(outputBounds.width, outputBounds.height) ? (BandedPNGTranscoder) t : null;
+        final int bandHeight = banded == null ? 0 : banded.getBandHeight(outputBounds.width + (hasNinePatch ? 2 : 0));
+        final long peakBytes = MemoryBudget.estimate(outputBounds, parameters.getOutputFormat(), bandHeight, hasNinePatch);
+        if (memoryBudget.exceeds(peakBytes)) {
+            getLog().warn("Rendering " + svg.getName() + " requires about " + (peakBytes >> 20) + " MB, " +
+                    "more than the memory budget of " + (memoryBudget.getCapacity() >> 20) + " MB : waiting to render it alone...");
+        }
+        try (MemoryBudget.Reservation reservation = memoryBudget.acquire(peakBytes)) {
+            final long start = System.nanoTime();
+            waited(job, "render", start);
+            final RenderEvent event = new RenderEvent();
+            event.begin();
+            final TranscoderInput input = job.input;
+            job.input = null;
 
             // final name
-            final String finalName = new StringBuilder(destination.getAbsolutePath())                              //
-                    .append(System.getProperty("file.separator"))                                                  //
-                    .append(svg.getName())                                                                         //
-                    .append(ninePatch != null && parameters.getOutputFormat().hasNinePatchSupport() ? ".9" : "")   //
-                    .append(".")                                                                                   //
-                    .append(parameters.getOutputFormat().name().toLowerCase()).toString();                         //
+            job.finalName = new File(job.destination, getOutputName(svg, hasNinePatch)).getAbsolutePath();
 
             // unit conversion for size not in pixel (in, mm, ...)
-            ImageTranscoder t = parameters.getOutputFormat().getTranscoderClass().newInstance();
             if (t instanceof JPEGTranscoder) {
                 // custom jpg hints
                 t.addTranscodingHint(KEY_QUALITY, min(1, max(0, parameters.getJpgQuality() / 100f)));
                 t.addTranscodingHint(KEY_BACKGROUND_COLOR, new Color(parameters.getJpgBackgroundColor()));
             }
-            t.addTranscodingHint(KEY_WIDTH, new Float(outputBounds.getWidth()));
-            t.addTranscodingHint(KEY_HEIGHT, new Float(outputBounds.getHeight()));
+            t.addTranscodingHint(KEY_WIDTH, (float) outputBounds.getWidth());
+            t.addTranscodingHint(KEY_HEIGHT, (float) outputBounds.getHeight());
             t.addTranscodingHint(KEY_PIXEL_UNIT_TO_MILLIMETER, MM_PER_INCH / svg.getDensity().getDpi());
+            if (t instanceof BandedPNGTranscoder) {
+                t.addTranscodingHint(BandedPNGTranscoder.KEY_PARALLEL_TILES, parameters.isParallelTiles());
+            }
+            if (parameters.isReproducible()) {
+                t.addTranscodingHint(ReproducibleOutput.KEY_REPRODUCIBLE, true);
+            }
+            final RenderPhases phases = new RenderPhases();
+            t.addTranscodingHint(RenderPhases.KEY_RENDER_PHASES, phases);
+            job.metrics.width = outputBounds.width;
+            job.metrics.height = outputBounds.height;
 
-            if (ninePatch == null || !parameters.getOutputFormat().hasNinePatchSupport()) {
-                if (ninePatch != null) {
-                    getLog().warn("skipping the nine-patch configuration for the JPG output format !!!");
+            if (ninePatch != null && !hasNinePatch) {
+                getLog().warn("skipping the nine-patch configuration for the JPG output format !!!");
+            }
+            if (banded != null) {
+                if (hasNinePatch) {
+                    // the patch is drawn while streaming the bands
+                    t.addTranscodingHint(BandedPNGTranscoder.KEY_NINE_PATCH_BORDERS,
+                            toNinePatchBorders(ninePatch, svg.getBounds(), outputBounds));
                 }
-                // write file directly
-                OutputStream os = new FileOutputStream(finalName);
-                TranscoderOutput output = new TranscoderOutput(os);
-                t.transcode(input, output);
-                os.flush();
-                os.close();
-            } else {
-                // write in memory
-                try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
-                    TranscoderOutput output = new TranscoderOutput(os);
-                    t.transcode(input, output);
-                    os.flush();
+                // write file directly, next to the output to replace
+                final File output = new File(job.finalName);
+                final File staged = OutputFiles.stage(output);
+                try {
+                    try (OutputStream os = new FileOutputStream(staged)) {
+                        phases.start();
+                        t.transcode(input, new TranscoderOutput(os));
+                    }
+                    record(job, phases);
+                    job.metrics.bytesOut = staged.length();
+                    if (!OutputFiles.replace(staged, output)) {
+                        getLog().debug("+ " + output.getName() + " is unchanged");
+                    }
+                } finally {
+                    Files.deleteIfExists(staged.toPath());
+                }
+                // the bands are written while encoding
+                event.end();
+                commit(event, job);
+                traced(job, "render", start);
+                return false;
+            }
+            // encode in memory
+            try (ByteArrayOutputStream os = new ByteArrayOutputStream()) {
+                phases.start();
+                t.transcode(input, new TranscoderOutput(os));
+                record(job, phases);
+                if (hasNinePatch) {
+                    final NinePatchEvent ninePatchEvent = new NinePatchEvent();
+                    ninePatchEvent.begin();
+                    final long ninePatchStart = System.nanoTime();
                     try (InputStream is = new ByteArrayInputStream(os.toByteArray())) {
                         // fill the patch
-                        toNinePatch(is, finalName, ninePatch, svg.getBounds(), outputBounds);
+                        job.encoded = toNinePatch(is, toNinePatchBorders(ninePatch, svg.getBounds(), outputBounds));
+                    }
+                    job.metrics.ninePatchNanos = System.nanoTime() - ninePatchStart;
+                    if (trace.isEnabled()) {
+                        trace.complete("nine-patch", "render", ninePatchStart, ninePatchStart + job.metrics.ninePatchNanos);
                     }
+                    if (ninePatchEvent.shouldCommit()) {
+                        ninePatchEvent.file = svg.getAbsolutePath();
+                        ninePatchEvent.density = job.density.name();
+                        ninePatchEvent.width = outputBounds.width + 2;
+                        ninePatchEvent.height = outputBounds.height + 2;
+                        ninePatchEvent.commit();
+                    }
+                } else {
+                    job.encoded = os.toByteArray();
                 }
             }
+            job.metrics.bytesOut = job.encoded.length;
+            // committed once written
+            event.end();
+            job.event = event;
+            traced(job, "render", start);
+            return true;
+        }
+    }
+
+    private void commit(final RenderEvent event, final RenderJob job) {
+        if (event.shouldCommit()) {
+            final RenderMetrics.Render metrics = job.metrics;
+            event.file = job.svg.getAbsolutePath();
+            event.density = job.density.name();
+            event.format = parameters.getOutputFormat().name();
+            event.width = metrics.width;
+            event.height = metrics.height;
+            event.bytesIn = metrics.bytesIn;
+            event.bytesOut = metrics.bytesOut;
+            event.readTime = metrics.readNanos;
+            event.parseTime = metrics.parseNanos;
+            event.gvtTime = metrics.gvtNanos;
+            event.rasterizeTime = metrics.rasterizeNanos;
+            event.encodeTime = metrics.encodeNanos;
+            event.ninePatchTime = metrics.ninePatchNanos;
+            event.writeTime = metrics.writeNanos;
+            event.metadataCached = job.metadataCached;
+            event.commit();
+        }
+    }
+
+    private void record(final RenderJob job, final RenderPhases phases) {
+        final RenderMetrics.Render metrics = job.metrics;
+        metrics.gvtNanos = phases.getGvtNanos();
+        metrics.rasterizeNanos = phases.getRasterizeNanos();
+        metrics.encodeNanos = phases.getEncodeNanos();
+        if (trace.isEnabled()) {
+            // streamed outputs paint their bands while encoding, they are drawn before the encoding
+            final long gvt = phases.getStartNanos();
+            final long rasterize = gvt + metrics.gvtNanos;
+            final long encode = rasterize + metrics.rasterizeNanos;
+            trace.complete("gvt", "render", gvt, rasterize);
+            trace.complete("rasterize", "render", rasterize, encode);
+            trace.complete("encode", "render", encode, encode + metrics.encodeNanos);
         }
     }
 
     /**
-     * Draw the stretch and content area defined by the {@link NinePatch} around the given image
+     * Traces the time spent by a job in the queue of a stage
+     * @param job the render unit
+     * @param stage the stage taking the job
+     * @param now the time at which the stage took the job
+     */
+    private void waited(final RenderJob job, final String stage, final long now) {
+        if (trace.isEnabled() && job.queuedAt != 0) {
+            trace.async("wait " + stage, "queue", job.id, job.queuedAt, now);
+        }
+    }
+
+    /**
+     * Traces the time spent by a job in a stage
+     * @param job the render unit
+     * @param stage the stage
+     * @param start the time at which the stage took the job
+     * @return the time spent in the stage
+     */
+    private long traced(final RenderJob job, final String stage, final long start) {
+        final long end = System.nanoTime();
+        if (trace.isEnabled()) {
+            trace.complete(stage + " " + job.svg.getName() + " (" + job.density.name() + ")", stage, start, end);
+        }
+        job.queuedAt = end;
+        return end - start;
+    }
+
+    /**
+     * @param svg the svg to transcode
+     * @param density the density to transcode to
+     * @return the directory of the output
+     */
+    private File getDestination(QualifiedResource svg, Density.Value density) {
+        return parameters.getOutputType() == OutputType.raw ?
+                parameters.getTo() :
+                svg.getOutputFor(density, parameters.getTo(), parameters.getOutputType(), parameters.getNoDpiDensity());
+    }
+
+    /**
+     * @param svg the svg to transcode
+     * @param hasNinePatch true if a nine-patch configuration is applied
+     * @return the name of the output file
+     */
+    private String getOutputName(QualifiedResource svg, boolean hasNinePatch) {
+        return svg.getName() + (hasNinePatch ? ".9" : "") + "." + parameters.getOutputFormat().name().toLowerCase();
+    }
+
+    /**
+     * Writes the encoded image to its final name, unless the existing file holds the same image
+     * @param job the render unit
+     * @return true
+     * @throws IOException
+     */
+    private boolean write(final RenderJob job) throws IOException {
+        final long start = System.nanoTime();
+        waited(job, "write", start);
+        if (!OutputFiles.write(new File(job.finalName), job.encoded)) {
+            getLog().debug("+ " + job.svg.getName() + " is unchanged");
+        }
+        job.metrics.writeNanos = traced(job, "write", start);
+        job.encoded = null;
+        commit(job.event, job);
+        job.event = null;
+        return true;
+    }
+
+    /**
+     * Draw the stretch and content area around the given image
      * @param is the generated PNG input file
-     * @param finalName the targeted filename
-     * @param ninePatch the nine patch configuration
-     * @param svgBounds original svg bounds
-     * @param outputBounds targeted bounds
+     * @param borders the nine patch marks
+     * @return the encoded nine patch image
      * @throws IOException
      */
-    private void toNinePatch(final InputStream is, final String finalName, final NinePatch ninePatch, final Rectangle svgBounds, final Rectangle outputBounds) throws IOException {
+    @VisibleForTesting
+    byte[] toNinePatch(final InputStream is, final NinePatchBorders borders) throws IOException {
         BufferedImage image = ImageIO.read(is);
-        final double wRatio = outputBounds.getWidth() / svgBounds.getWidth();
-        final double hRatio = outputBounds.getHeight() / svgBounds.getHeight();
-        final int w = image.getWidth();
-        final int h = image.getHeight();
         BufferedImage ninePatchImage = new BufferedImage(
-                w + 2,
-                h + 2,
+                image.getWidth() + 2,
+                image.getHeight() + 2,
                 TYPE_INT_ARGB);
         Graphics g = ninePatchImage.getGraphics();
         g.drawImage(image, 1, 1, null);
 
         // draw patch
-        g.setColor(BLACK);
+        borders.draw(g);
+
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        if (parameters.isReproducible()) {
+            ReproducibleOutput.writePNG(ninePatchImage, os);
+        } else {
+            ImageIO.write(ninePatchImage, PNG_EXTENSION, os);
+        }
+        return os.toByteArray();
+    }
+
+    /**
+     * Computes the stretch and content area defined by the {@link NinePatch} for the targeted bounds
+     * @param ninePatch the nine patch configuration
+     * @param svgBounds original svg bounds
+     * @param outputBounds targeted bounds
+     * @return the marks to draw around the image
+     */
+    private NinePatchBorders toNinePatchBorders(final NinePatch ninePatch, final Rectangle svgBounds, final Rectangle outputBounds) {
+        final double wRatio = outputBounds.getWidth() / svgBounds.getWidth();
+        final double hRatio = outputBounds.getHeight() / svgBounds.getHeight();
+        final int w = outputBounds.width;
+        final int h = outputBounds.height;
+        final NinePatchBorders borders = new NinePatchBorders(w, h);
 
         Zone stretch = ninePatch.getStretch();
         Zone content = ninePatch.getContent();
@@ -360,86 +917,142 @@ public class SvgDrawablePlugin {
             if (getLog().isDebugEnabled()) {
                 getLog().debug("+ ninepatch stretch(x) [start=0 - size=" + w + "]");
             }
-        	g.fillRect(1, 0, w, 1);
+            borders.stretchX(0, w);
         } else {
-	        for (int[] seg : stretch.getX()) {
-	            final int start = NinePatch.start(seg[0], w, wRatio);
-	            final int size = NinePatch.size(seg[0], seg[1], w, wRatio);
-	            if (getLog().isDebugEnabled()) {
-	                getLog().debug("+ ninepatch stretch(x) [start=" + start + " - size=" + size + "]");
-	            }
-	            g.fillRect(start + 1, 0, size, 1);
-	        }
+            for (int[] seg : stretch.getX()) {
+                final int start = NinePatch.start(seg[0], w, wRatio);
+                final int size = NinePatch.size(seg[0], seg[1], w, wRatio);
+                if (getLog().isDebugEnabled()) {
+                    getLog().debug("+ ninepatch stretch(x) [start=" + start + " - size=" + size + "]");
+                }
+                borders.stretchX(start, size);
+            }
         }
 
         if (stretch.getY() == null) {
             if (getLog().isDebugEnabled()) {
                 getLog().debug("+ ninepatch stretch(y) [start=0 - size=" + h + "]");
             }
-        	g.fillRect(0, 1, 1, h);
+            borders.stretchY(0, h);
         } else {
-	        for (int[] seg : stretch.getY()) {
-	            final int start = NinePatch.start(seg[0], h, hRatio);
-	            final int size = NinePatch.size(seg[0], seg[1], h, hRatio);
-	            if (getLog().isDebugEnabled()) {
-	                getLog().debug("+ ninepatch stretch(y) [start=" + start + " - size=" + size + "]");
-	            }
-	            g.fillRect(0, start + 1, 1, size);
-	        }
+            for (int[] seg : stretch.getY()) {
+                final int start = NinePatch.start(seg[0], h, hRatio);
+                final int size = NinePatch.size(seg[0], seg[1], h, hRatio);
+                if (getLog().isDebugEnabled()) {
+                    getLog().debug("+ ninepatch stretch(y) [start=" + start + " - size=" + size + "]");
+                }
+                borders.stretchY(start, size);
+            }
         }
 
         if (content.getX() == null) {
             if (getLog().isDebugEnabled()) {
                 getLog().debug("+ ninepatch content(x) [start=0 - size=" + w + "]");
             }
-        	g.fillRect(1, h + 1, w, 1);
+            borders.contentX(0, w);
         } else {
-	        for (int[] seg : content.getX()) {
-	            final int start = NinePatch.start(seg[0], w, hRatio);
-	            final int size = NinePatch.size(seg[0], seg[1], w, hRatio);
-	            if (getLog().isDebugEnabled()) {
-	                getLog().debug("+ ninepatch content(x) [start=" + start + " - size=" + size + "]");
-	            }
-	            g.fillRect(start + 1, h + 1, size, 1);
-	        }
+            for (int[] seg : content.getX()) {
+                final int start = NinePatch.start(seg[0], w, hRatio);
+                final int size = NinePatch.size(seg[0], seg[1], w, hRatio);
+                if (getLog().isDebugEnabled()) {
+                    getLog().debug("+ ninepatch content(x) [start=" + start + " - size=" + size + "]");
+                }
+                borders.contentX(start, size);
+            }
         }
 
         if (content.getY() == null) {
             if (getLog().isDebugEnabled()) {
                 getLog().debug("+ ninepatch content(y) [start=0 - size=" + h + "]");
             }
-        	g.fillRect(w + 1, 1, 1, h);
+            borders.contentY(0, h);
         } else {
-	        for (int[] seg : content.getY()) {
-	            final int start = NinePatch.start(seg[0], h, hRatio);
-	            final int size = NinePatch.size(seg[0], seg[1], h, hRatio);
-	            if (getLog().isDebugEnabled()) {
-	                getLog().debug("+ ninepatch content(y) [start=" + start + " - size=" + size + "]");
-	            }
-	            g.fillRect(w + 1, start + 1, 1, size);
-	        }
+            for (int[] seg : content.getY()) {
+                final int start = NinePatch.start(seg[0], h, hRatio);
+                final int size = NinePatch.size(seg[0], seg[1], h, hRatio);
+                if (getLog().isDebugEnabled()) {
+                    getLog().debug("+ ninepatch content(y) [start=" + start + " - size=" + size + "]");
+                }
+                borders.contentY(start, size);
+            }
         }
 
-        ImageIO.write(ninePatchImage, PNG_EXTENSION, new File(finalName));
+        return borders;
     }
 
     /**
      * List {@link QualifiedResource} from various input files / directories.
+     * Independent files and directories are walked in parallel.
+     * @param pool the pool used to walk the input files
      * @param files files where to pick svg to convert from
      * @param extension the extension from which qualified resources should be extracted
      * @return qualified resource from the specified files (recursively)
      */
-    private Collection<QualifiedResource> listQualifiedResources(final Iterable<File> files, final String extension) {
+    private Collection<QualifiedResource> listQualifiedResources(final ForkJoinPool pool, final Iterable<File> files, final String extension) {
         checkNotNull(extension);
         QualifiedResourceFilter filter = new QualifiedResourceFilter(getLog(), qualifiedSVGResourceFactory, extension);
-        for (File from : files) {
-            if (from.isDirectory()) {
-                listFiles(from, filter, INSTANCE);
-            } else {
-                filter.accept(from);
+        new QualifiedResourceWalker(getLog(), pool).walk(files, filter);
+        return filter.filteredResources();
+    }
+
+    /**
+     * Workers inherit the plugin class loader as their context class loader
+     * so that Batik and ImageIO services are resolved from the plugin classpath.
+     * @param parallelism the parallelism of the pool
+     * @return a new pool
+     */
+    public static ForkJoinPool newForkJoinPool(int parallelism) {
+        final ClassLoader classLoader = SvgDrawablePlugin.class.getClassLoader();
+        return new ForkJoinPool(parallelism, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+            @Override
+            public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setContextClassLoader(classLoader);
+                return thread;
             }
+        }, null, false);
+    }
+
+    /**
+     * A svg file to render to a density, handed over from one stage of the pipeline to the next.
+     */
+    private final class RenderJob {
+
+        private final QualifiedResource svg;
+        private final Density.Value density;
+        @Nullable
+        private final NinePatch ninePatch;
+        private File destination;
+        // inputs
+        @Nullable
+        private File output;
+        @Nullable
+        private String fingerprint;
+        // predicted cost
+        private String key;
+        private double weight;
+        private long predicted;
+        // state between stages
+        private byte[] source;
+        private TranscoderInput input;
+        private String finalName;
+        private byte[] encoded;
+        private RenderEvent event;
+        private final RenderMetrics.Render metrics;
+        private boolean metadataCached;
+        // trace
+        private final long id;
+        private long queuedAt;
+
+        private RenderJob(QualifiedResource svg, Density.Value density, @Nullable NinePatch ninePatch, @Nullable File destination) {
+            this.svg = svg;
+            this.density = density;
+            this.ninePatch = ninePatch;
+            this.destination = destination;
+            this.metrics = new RenderMetrics.Render(svg, density);
+            this.id = jobs.incrementAndGet();
         }
-        return filter.filteredResources();
+
     }
 
     @VisibleForTesting
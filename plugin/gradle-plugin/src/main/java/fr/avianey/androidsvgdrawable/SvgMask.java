@@ -16,6 +16,7 @@
 package fr.avianey.androidsvgdrawable;
 
 import fr.avianey.androidsvgdrawable.Qualifier.Type;
+import fr.avianey.androidsvgdrawable.util.SvgEntityResolver;
 import org.w3c.dom.Document;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
@@ -23,7 +24,6 @@ import org.xml.sax.SAXException;
 
 import javax.xml.namespace.NamespaceContext;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
@@ -78,9 +78,7 @@ public class SvgMask {
 		dest.mkdirs();
 
 		// parse mask
-		DocumentBuilderFactory dfactory = DocumentBuilderFactory.newInstance();
-		dfactory.setNamespaceAware(true);
-		DocumentBuilder builder = dfactory.newDocumentBuilder();
+		DocumentBuilder builder = SvgEntityResolver.newDocumentBuilder();
 		Document svgmaskDom = builder.parse(svgMask);
 		final String svgNamespace = svgmaskDom.getDocumentElement().getNamespaceURI();
 
@@ -204,8 +202,9 @@ public class SvgMask {
 							// problem occurred
 							continue;
 						}
-						StreamResult result = new StreamResult(new FileOutputStream(maskedFile));
-						transformer.transform(source, result);
+						try (FileOutputStream os = new FileOutputStream(maskedFile)) {
+							transformer.transform(source, new StreamResult(os));
+						}
 						maskedResources.add(qualifiedSVGResourceFactory.fromSVGFile(maskedFile));
 
 					}
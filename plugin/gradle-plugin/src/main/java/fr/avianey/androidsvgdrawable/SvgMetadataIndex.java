@@ -0,0 +1,107 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index of the metadata extracted from SVG files, shared by every {@link QualifiedSVGResourceFactory}
+ * that processes the same files during a build.
+ * <p>
+ * Bounds and complexity are keyed by path, and are dropped as soon as the size or the last modification
+ * time of the file changes.
+ * </p>
+ *
+ * @author antoine vianey
+ */
+public final class SvgMetadataIndex {
+
+    /**
+     * Extracts metadata of a file missing from the index.
+     */
+    public interface Extractor<T> {
+        T extract() throws IOException;
+    }
+
+    /**
+     * Extracts the bounds of a file missing from the index.
+     */
+    public interface BoundsExtractor extends Extractor<Rectangle> {
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param svg the SVG file
+     * @param boundsType the type of bounds to extract
+     * @param extractor extracts the bounds when they are not indexed yet
+     * @return a copy of the bounds of the file
+     * @throws IOException if the bounds cannot be extracted
+     */
+    public Rectangle getBounds(File svg, BoundsType boundsType, BoundsExtractor extractor) throws IOException {
+        return new Rectangle(get(boundsType.name() + ':' + svg.getAbsolutePath(), svg, extractor));
+    }
+
+    /**
+     * @param svg the SVG file
+     * @param extractor scans the file when its complexity is not indexed yet
+     * @return the complexity of the file
+     * @throws IOException if the file cannot be scanned
+     */
+    public SvgComplexity getComplexity(File svg, Extractor<SvgComplexity> extractor) throws IOException {
+        return get("complexity:" + svg.getAbsolutePath(), svg, extractor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T get(String key, File svg, Extractor<? extends T> extractor) throws IOException {
+        final long lastModified = svg.lastModified();
+        final long length = svg.length();
+        Entry entry = entries.get(key);
+        if (entry == null || entry.lastModified != lastModified || entry.length != length) {
+            entry = new Entry(lastModified, length, extractor.extract());
+            entries.put(key, entry);
+        }
+        return (T) entry.value;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private static final class Entry {
+
+        private final long lastModified;
+        private final long length;
+        private final Object value;
+
+        private Entry(long lastModified, long length, Object value) {
+            this.lastModified = lastModified;
+            this.length = length;
+            // keep our own copy of mutable bounds
+            this.value = value instanceof Rectangle ? new Rectangle((Rectangle) value) : value;
+        }
+
+    }
+
+}
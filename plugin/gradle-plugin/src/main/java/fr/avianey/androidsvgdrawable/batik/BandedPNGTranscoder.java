@@ -0,0 +1,524 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.batik;
+
+import fr.avianey.androidsvgdrawable.NinePatchBorders;
+import org.apache.batik.ext.awt.image.GraphicsUtil;
+import org.apache.batik.ext.awt.image.rendered.AbstractRed;
+import org.apache.batik.ext.awt.image.rendered.AbstractTiledRed;
+import org.apache.batik.ext.awt.image.rendered.CachableRed;
+import org.apache.batik.gvt.CompositeGraphicsNode;
+import org.apache.batik.gvt.CompositeShapePainter;
+import org.apache.batik.gvt.FillShapePainter;
+import org.apache.batik.gvt.GraphicsNode;
+import org.apache.batik.gvt.ImageNode;
+import org.apache.batik.gvt.PatternPaint;
+import org.apache.batik.gvt.RasterImageNode;
+import org.apache.batik.gvt.ShapeNode;
+import org.apache.batik.gvt.ShapePainter;
+import org.apache.batik.gvt.StrokeShapePainter;
+import org.apache.batik.gvt.renderer.ImageRenderer;
+import org.apache.batik.gvt.renderer.StaticRenderer;
+import org.apache.batik.transcoder.TranscoderException;
+import org.apache.batik.transcoder.TranscoderOutput;
+import org.apache.batik.transcoder.TranscodingHints;
+import org.apache.batik.transcoder.keys.BooleanKey;
+import org.apache.batik.transcoder.keys.IntegerKey;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * A {@link CachingPNGTranscoder} that streams large outputs.
+ * <p>
+ * Above {@link #KEY_BAND_THRESHOLD} pixels, the GVT tree is not rendered into a single offscreen image :
+ * horizontal bands are rendered on demand, one at a time, while the ImageIO PNG encoder pulls the rows
+ * it compresses. Peak memory is about one band instead of the whole image and its encoded bytes.
+ * Below the threshold, outputs are rendered and written as by the {@link CachingPNGTranscoder}, unless
+ * {@link #KEY_PARALLEL_TILES} is set.
+ * </p>
+ * <p>
+ * Streamed and parallel outputs are rendered tile per tile : Java2D clips the shapes it rasterizes, so
+ * antialiased pixels along the tiles may differ from the ones of a single offscreen rendering. Streamed or
+ * parallel, outputs rendered tile per tile are the same.
+ * </p>
+ * <p>
+ * When {@link #KEY_NINE_PATCH_BORDERS} is given, the output is enlarged by 1 pixel on each side and the
+ * nine-patch marks are drawn band per band as well.
+ * </p>
+ * <p>
+ * Indexed, gamma corrected or transparent white outputs need the whole image and are never streamed.
+ * </p>
+ * <p>
+ * With {@link #KEY_PARALLEL_TILES}, the tiles of an image or of a band are rendered concurrently from the
+ * same GVT tree. Lazily computed state of the tree is warmed up by a first single threaded tile, the tree is
+ * then only read. Filters, masks, pattern paints, markers and images fill caches of their own while they are
+ * painted : the tiles of documents using them are rendered one at a time (see {@link #isConcurrentlyPaintable}).
+ * Tiles being rendered independently, outputs are the same as single threaded ones.
+ * </p>
+ *
+ * @author antoine vianey
+ */
+public class BandedPNGTranscoder extends CachingPNGTranscoder {
+
+    /**
+     * Outputs with more pixels than this threshold are streamed, 4 Mpx by default
+     */
+    public static final TranscodingHints.Key KEY_BAND_THRESHOLD = new IntegerKey();
+
+    /**
+     * Rows per band, defaults to about 1 Mpx per band aligned on the rendering tiles
+     */
+    public static final TranscodingHints.Key KEY_BAND_HEIGHT = new IntegerKey();
+
+    /**
+     * The {@link NinePatchBorders} to draw around a streamed output
+     */
+    public static final TranscodingHints.Key KEY_NINE_PATCH_BORDERS = new TranscodingHints.Key() {
+        @Override
+        public boolean isCompatibleValue(Object value) {
+            return value instanceof NinePatchBorders;
+        }
+    };
+
+    /**
+     * Renders the tiles concurrently, in the current fork/join pool or in the common pool
+     */
+    public static final TranscodingHints.Key KEY_PARALLEL_TILES = new BooleanKey();
+
+    public static final int DEFAULT_BAND_THRESHOLD = 1 << 22;
+    private static final int BAND_PIXELS = 1 << 20;
+
+    private TileRenderer renderer;
+    private boolean banded;
+
+    /**
+     * @param width the width of the output
+     * @param height the height of the output
+     * @return true if an output of that size is rendered in bands with the current hints
+     */
+    public boolean isBanded(int width, int height) {
+        final int threshold = hints.containsKey(KEY_BAND_THRESHOLD) ? (Integer) hints.get(KEY_BAND_THRESHOLD) : DEFAULT_BAND_THRESHOLD;
+        return (long) width * height > threshold
+                && !hints.containsKey(KEY_INDEXED)
+                && !hints.containsKey(KEY_GAMMA)
+                && !Boolean.TRUE.equals(hints.get(KEY_FORCE_TRANSPARENT_WHITE));
+    }
+
+    /**
+     * @param width the width of the output
+     * @return the number of rows rendered at once for an output of that width
+     */
+    public int getBandHeight(int width) {
+        if (hints.containsKey(KEY_BAND_HEIGHT)) {
+            return max(1, (Integer) hints.get(KEY_BAND_HEIGHT));
+        }
+        final int tileSize = AbstractTiledRed.getDefaultTileSize();
+        return max(1, BAND_PIXELS / max(1, width) / tileSize) * tileSize;
+    }
+
+    /**
+     * @param node the root of a GVT tree
+     * @return true if tiles of the tree can be painted concurrently once its bounds and a first tile are computed
+     */
+    public static boolean isConcurrentlyPaintable(GraphicsNode node) {
+        if (node.getFilter() != null || node.getMask() != null
+                || node instanceof ImageNode || node instanceof RasterImageNode) {
+            return false;
+        }
+        if (node instanceof ShapeNode && !isConcurrentlyPaintable(((ShapeNode) node).getShapePainter())) {
+            return false;
+        }
+        if (node instanceof CompositeGraphicsNode) {
+            for (Object child : ((CompositeGraphicsNode) node).getChildren()) {
+                if (!isConcurrentlyPaintable((GraphicsNode) child)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean isConcurrentlyPaintable(ShapePainter painter) {
+        if (painter == null) {
+            return true;
+        }
+        if (painter instanceof CompositeShapePainter) {
+            final CompositeShapePainter composite = (CompositeShapePainter) painter;
+            for (int i = 0; i < composite.getShapePainterCount(); i++) {
+                if (!isConcurrentlyPaintable(composite.getShapePainter(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (painter instanceof FillShapePainter) {
+            return !(((FillShapePainter) painter).getPaint() instanceof PatternPaint);
+        }
+        if (painter instanceof StrokeShapePainter) {
+            return !(((StrokeShapePainter) painter).getPaint() instanceof PatternPaint);
+        }
+        // markers
+        return false;
+    }
+
+    @Override
+    protected ImageRenderer createRenderer() {
+        banded = isBanded((int) (width + 0.5), (int) (height + 0.5));
+        final boolean parallel = Boolean.TRUE.equals(hints.get(KEY_PARALLEL_TILES));
+        if (!banded && !parallel) {
+            // the stock renderer of Batik
+            renderer = null;
+            return super.createRenderer();
+        }
+        renderer = CachingTranscoders.createRenderer(new TileRenderer(!banded, parallel), hints);
+        return renderer;
+    }
+
+    @Override
+    public BufferedImage createImage(int w, int h) {
+        // the image rendered by the ImageTranscoder stays empty, bands are rendered when written
+        return banded ? super.createImage(1, 1) : super.createImage(w, h);
+    }
+
+    @Override
+    public void writeImage(BufferedImage img, TranscoderOutput output) throws TranscoderException {
+        try {
+            if (banded) {
+                CachingTranscoders.rasterized(hints);
+                writeBands(output);
+                CachingTranscoders.encoded(hints);
+            } else {
+                super.writeImage(img, output);
+            }
+        } finally {
+            if (renderer != null) {
+                renderer.dispose();
+                renderer = null;
+            }
+        }
+    }
+
+    private void writeBands(TranscoderOutput output) throws TranscoderException {
+        final OutputStream os = output.getOutputStream();
+        if (os == null) {
+            throw new TranscoderException("Streamed PNG can only be written to an OutputStream");
+        }
+        final BandedImage image = new BandedImage(renderer.width, renderer.height,
+                (NinePatchBorders) hints.get(KEY_NINE_PATCH_BORDERS));
+        if (isReproducible()) {
+            try {
+                ReproducibleOutput.writePNG(image, os);
+            } catch (IOException e) {
+                throw new TranscoderException(e);
+            }
+            return;
+        }
+        final ImageWriter writer = ImageIO.getImageWritersByFormatName("png").next();
+        try (ImageOutputStream ios = new MemoryCacheImageOutputStream(os)) {
+            final ImageWriteParam param = writer.getDefaultWriteParam();
+            final IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(image), param);
+            metadata.mergeTree("javax_imageio_png_1.0", createMetadata());
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, metadata), param);
+            ios.flush();
+        } catch (IOException e) {
+            throw new TranscoderException(e);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Same chunks as the ones written by the Batik PNG encoder : sRGB, white background and physical dimension.
+     */
+    private IIOMetadataNode createMetadata() {
+        final IIOMetadataNode root = new IIOMetadataNode("javax_imageio_png_1.0");
+
+        final IIOMetadataNode chrm = new IIOMetadataNode("cHRM");
+        chrm.setAttribute("whitePointX", "31270");
+        chrm.setAttribute("whitePointY", "32900");
+        chrm.setAttribute("redX", "64000");
+        chrm.setAttribute("redY", "33000");
+        chrm.setAttribute("greenX", "30000");
+        chrm.setAttribute("greenY", "60000");
+        chrm.setAttribute("blueX", "15000");
+        chrm.setAttribute("blueY", "6000");
+        root.appendChild(chrm);
+
+        final IIOMetadataNode gama = new IIOMetadataNode("gAMA");
+        gama.setAttribute("value", "45454");
+        root.appendChild(gama);
+
+        final IIOMetadataNode srgb = new IIOMetadataNode("sRGB");
+        srgb.setAttribute("renderingIntent", "Perceptual");
+        root.appendChild(srgb);
+
+        final IIOMetadataNode bkgd = new IIOMetadataNode("bKGD");
+        final IIOMetadataNode rgb = new IIOMetadataNode("bKGD_RGB");
+        rgb.setAttribute("red", "255");
+        rgb.setAttribute("green", "255");
+        rgb.setAttribute("blue", "255");
+        bkgd.appendChild(rgb);
+        root.appendChild(bkgd);
+
+        final String ppm = Integer.toString((int) (1000 / getUserAgent().getPixelUnitToMillimeter() + 0.5));
+        final IIOMetadataNode phys = new IIOMetadataNode("pHYs");
+        phys.setAttribute("pixelsPerUnitXAxis", ppm);
+        phys.setAttribute("pixelsPerUnitYAxis", ppm);
+        phys.setAttribute("unitSpecifier", "meter");
+        root.appendChild(phys);
+
+        return root;
+    }
+
+    /**
+     * Keeps the tree and the transform given by the {@link org.apache.batik.transcoder.image.ImageTranscoder}
+     * and copies the requested areas out of the rendering, one tile at a time.
+     */
+    private static final class TileRenderer extends StaticRenderer {
+
+        private final boolean offScreen;
+        private final boolean parallel;
+        private boolean concurrent;
+        private int width;
+        private int height;
+        private BufferedImage image;
+        private boolean warmedUp;
+
+        /**
+         * @param offScreen true to render the whole image on repaint, false to render bands on demand
+         * @param parallel true to render tiles concurrently
+         */
+        private TileRenderer(boolean offScreen, boolean parallel) {
+            this.offScreen = offScreen;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected CachableRed setupCache(CachableRed img) {
+            // the tile cache is not thread safe, each tile is requested once anyway
+            return concurrent ? img : super.setupCache(img);
+        }
+
+        @Override
+        public void updateOffScreen(int width, int height) {
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        public void repaint(Shape area) {
+            // the ImageTranscoder always repaints the whole image
+            if (offScreen) {
+                image = paint(0, height);
+            }
+        }
+
+        @Override
+        public BufferedImage getOffScreen() {
+            return image;
+        }
+
+        @Override
+        public void dispose() {
+            super.dispose();
+            image = null;
+        }
+
+        /**
+         * @return the rows y to y + rows of the rendering, null if the document is empty
+         */
+        private BufferedImage paint(int y, int rows) {
+            if (rootGN == null) {
+                return null;
+            }
+            if (rootCR == null) {
+                concurrent = parallel && isConcurrentlyPaintable(rootGN);
+                if (rootFilter == null) {
+                    rootFilter = rootGN.getGraphicsNodeRable(true);
+                }
+                rootCR = renderGNR();
+                if (rootCR == null) {
+                    return null;
+                }
+            }
+            final WritableRaster raster = Raster.createWritableRaster(
+                    rootCR.getSampleModel().createCompatibleSampleModel(width, rows), new Point(0, y));
+            final Rectangle area = raster.getBounds().intersection(rootCR.getBounds());
+            if (!area.isEmpty()) {
+                final int tx0 = tileIndex(area.x, rootCR.getTileGridXOffset(), rootCR.getTileWidth());
+                final int tx1 = tileIndex(area.x + area.width - 1, rootCR.getTileGridXOffset(), rootCR.getTileWidth());
+                final int ty0 = tileIndex(area.y, rootCR.getTileGridYOffset(), rootCR.getTileHeight());
+                final int ty1 = tileIndex(area.y + area.height - 1, rootCR.getTileGridYOffset(), rootCR.getTileHeight());
+                final CachableRed cr = rootCR;
+                final List<RecursiveAction> tiles = new ArrayList<>();
+                for (int ty = ty0; ty <= ty1; ty++) {
+                    for (int tx = tx0; tx <= tx1; tx++) {
+                        final int tileX = tx;
+                        final int tileY = ty;
+                        tiles.add(new RecursiveAction() {
+                            @Override
+                            protected void compute() {
+                                final Raster tile = cr.getTile(tileX, tileY);
+                                // tiles are painted concurrently, copied one at a time
+                                synchronized (raster) {
+                                    raster.setRect(tile);
+                                }
+                            }
+                        });
+                    }
+                }
+                if (concurrent && tiles.size() > 1) {
+                    if (!warmedUp) {
+                        rootGN.getBounds();
+                        tiles.remove(0).invoke();
+                        warmedUp = true;
+                    }
+                    ForkJoinTask.invokeAll(tiles);
+                } else {
+                    for (RecursiveAction tile : tiles) {
+                        tile.invoke();
+                    }
+                }
+            }
+            final ColorModel cm = rootCR.getColorModel();
+            return new BufferedImage(cm, raster.createWritableTranslatedChild(0, 0), cm.isAlphaPremultiplied(), null);
+        }
+
+        private static int tileIndex(int location, int offset, int size) {
+            return Math.floorDiv(location - offset, size);
+        }
+
+    }
+
+    /**
+     * The output image, which tiles are the bands.
+     * Only the last band is kept, the PNG encoder pulls rows in order.
+     */
+    private final class BandedImage extends AbstractRed {
+
+        private final int contentWidth;
+        private final int contentHeight;
+        private final int border;
+        private final int bandHeight;
+        private final NinePatchBorders borders;
+
+        private int bandIndex = -1;
+        private Raster band;
+
+        private BandedImage(int width, int height, NinePatchBorders borders) {
+            this.contentWidth = width;
+            this.contentHeight = height;
+            this.borders = borders;
+            this.border = borders == null ? 0 : 1;
+            this.bandHeight = min(getBandHeight(width + 2 * border), height + 2 * border);
+            final ColorModel cm = ColorModel.getRGBdefault();
+            init((CachableRed) null, new Rectangle(0, 0, width + 2 * border, height + 2 * border),
+                    cm, cm.createCompatibleSampleModel(width + 2 * border, bandHeight), 0, 0, null);
+        }
+
+        @Override
+        public Vector<RenderedImage> getSources() {
+            // bands are painted from the GVT tree, not from other images
+            return new Vector<>();
+        }
+
+        @Override
+        public WritableRaster copyData(WritableRaster wr) {
+            final Rectangle area = wr.getBounds().intersection(getBounds());
+            if (!area.isEmpty()) {
+                for (int ty = getYTile(area.y); ty <= getYTile(area.y + area.height - 1); ty++) {
+                    wr.setRect(getBand(ty));
+                }
+            }
+            return wr;
+        }
+
+        private Raster getBand(int index) {
+            if (index != bandIndex) {
+                band = null;
+                band = paintBand(index * bandHeight);
+                bandIndex = index;
+            }
+            return band;
+        }
+
+        private Raster paintBand(int y) {
+            final long start = System.nanoTime();
+            final int rows = min(bandHeight, getHeight() - y);
+            final BufferedImage image = new BufferedImage(getWidth(), rows, TYPE_INT_ARGB);
+            final Graphics2D g2d = GraphicsUtil.createGraphics(image);
+            g2d.translate(0, -y);
+
+            // same steps as the ImageTranscoder, on the content rows of the band
+            final int top = max(0, y - border);
+            final int bottom = min(contentHeight, y + rows - border);
+            if (bottom > top) {
+                if (hints.containsKey(KEY_BACKGROUND_COLOR)) {
+                    g2d.setComposite(AlphaComposite.SrcOver);
+                    g2d.setPaint((Paint) hints.get(KEY_BACKGROUND_COLOR));
+                    g2d.fillRect(border, top + border, contentWidth, bottom - top);
+                }
+                BufferedImage rend = renderer.paint(top, bottom - top);
+                if (rend != null) {
+                    g2d.drawRenderedImage(rend, AffineTransform.getTranslateInstance(border, top + border));
+                }
+            }
+            if (borders != null) {
+                borders.draw(g2d);
+            }
+            g2d.dispose();
+            final RenderPhases phases = RenderPhases.of(hints);
+            if (phases != null) {
+                phases.streamed(System.nanoTime() - start);
+            }
+            return image.getRaster().createTranslatedChild(0, y);
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.batik;
+
+import org.apache.batik.bridge.DocumentLoader;
+import org.apache.batik.bridge.UserAgent;
+import org.w3c.dom.Document;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import static fr.avianey.androidsvgdrawable.batik.ExternalResourceCache.documentURI;
+
+/**
+ * A {@link DocumentLoader} backed by the {@link ExternalResourceCache}.
+ * <p>
+ * A document is copied from the process wide cache once per loader, so that every reference made
+ * from the rendered document resolves to the same instance until the loader is disposed.
+ * </p>
+ *
+ * @author antoine vianey
+ */
+public class CachingDocumentLoader extends DocumentLoader {
+
+    private final Map<String, Document> documents = new HashMap<>();
+
+    public CachingDocumentLoader(UserAgent userAgent) {
+        super(userAgent);
+    }
+
+    @Override
+    public Document checkCache(String uri) {
+        uri = documentURI(uri);
+        Document document = documents.get(uri);
+        if (document == null) {
+            document = ExternalResourceCache.get().checkCache(uri);
+            if (document != null) {
+                documents.put(uri, document);
+            }
+        }
+        return document;
+    }
+
+    @Override
+    public Document loadDocument(final String uri) throws IOException {
+        Document document = checkCache(uri);
+        if (document == null) {
+            document = ExternalResourceCache.get().loadDocument(documentURI(uri), new ExternalResourceCache.Loader() {
+                @Override
+                public Document load() throws IOException {
+                    return documentFactory.createSVGDocument(uri);
+                }
+            });
+            documents.put(documentURI(uri), document);
+        }
+        return document;
+    }
+
+    @Override
+    public Document loadDocument(final String uri, final InputStream is) throws IOException {
+        Document document = checkCache(uri);
+        if (document == null) {
+            document = ExternalResourceCache.get().loadDocument(documentURI(uri), new ExternalResourceCache.Loader() {
+                @Override
+                public Document load() throws IOException {
+                    return documentFactory.createSVGDocument(uri, is);
+                }
+            });
+            documents.put(documentURI(uri), document);
+        }
+        return document;
+    }
+
+    @Override
+    public void dispose() {
+        documents.clear();
+        super.dispose();
+    }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.batik;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import org.apache.batik.bridge.DefaultFontFamilyResolver;
+import org.apache.batik.bridge.FontFace;
+import org.apache.batik.bridge.FontFamilyResolver;
+import org.apache.batik.gvt.font.AWTFontFamily;
+import org.apache.batik.gvt.font.GVTFontFamily;
+
+import java.awt.Font;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A {@link FontFamilyResolver} that decodes each web font once per process.
+ * <p>
+ * Batik hands the font stream over without its URL, so decoded fonts are keyed by the hash of their content.
+ * {@link Font} instances are immutable and shared by all renders, while font families are still created per
+ * {@link FontFace} as they are bound to the rendered document.
+ * </p>
+ *
+ * @author antoine vianey
+ */
+public final class CachingFontFamilyResolver implements FontFamilyResolver {
+
+    public static final CachingFontFamilyResolver INSTANCE = new CachingFontFamilyResolver();
+
+    private static final int MAX_FONTS = 64;
+
+    private final FontFamilyResolver delegate = DefaultFontFamilyResolver.SINGLETON;
+    private final Cache<HashCode, Font> fonts = CacheBuilder.newBuilder()
+            .softValues()
+            .maximumSize(MAX_FONTS)
+            .build();
+
+    private CachingFontFamilyResolver() {
+    }
+
+    @Override
+    public GVTFontFamily resolve(String familyName) {
+        return delegate.resolve(familyName);
+    }
+
+    @Override
+    public GVTFontFamily resolve(String familyName, FontFace fontFace) {
+        return delegate.resolve(familyName, fontFace);
+    }
+
+    @Override
+    public GVTFontFamily loadFont(InputStream in, FontFace fontFace) throws Exception {
+        final byte[] bytes = ByteStreams.toByteArray(in);
+        Font font;
+        try {
+            font = fonts.get(Hashing.murmur3_128().hashBytes(bytes), () ->
+                    Font.createFont(Font.TRUETYPE_FONT, new ByteArrayInputStream(bytes)));
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+        return new AWTFontFamily(fontFace, font);
+    }
+
+    @Override
+    public GVTFontFamily getDefault() {
+        return delegate.getDefault();
+    }
+
+    @Override
+    public GVTFontFamily getFamilyThatCanDisplay(char c) {
+        return delegate.getFamilyThatCanDisplay(c);
+    }
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.batik;
+
+import org.apache.batik.bridge.BridgeContext;
+import org.apache.batik.bridge.FontFamilyResolver;
+import org.apache.batik.bridge.UserAgent;
+import org.apache.batik.gvt.renderer.ImageRenderer;
+import org.apache.batik.transcoder.TranscoderException;
+import org.apache.batik.transcoder.TranscoderOutput;
+import org.apache.batik.transcoder.image.JPEGTranscoder;
+import org.apache.batik.util.ParsedURL;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * A {@link JPEGTranscoder} that shares external documents, raster images and fonts with every other render
+ * through the {@link ExternalResourceCache} and the {@link CachingFontFamilyResolver}.
+ *
+ * @author antoine vianey
+ */
+public class CachingJPEGTranscoder extends JPEGTranscoder {
+
+    @Override
+    protected UserAgent createUserAgent() {
+        return new SVGAbstractTranscoderUserAgent() {
+
+            @Override
+            public void checkLoadExternalResource(ParsedURL resourceURL, ParsedURL docURL) {
+                super.checkLoadExternalResource(resourceURL, docURL);
+                CachingTranscoders.checkLoadExternalResource(resourceURL);
+            }
+
+            @Override
+            public FontFamilyResolver getFontFamilyResolver() {
+                return CachingTranscoders.getFontFamilyResolver();
+            }
+
+        };
+    }
+
+    @Override
+    protected ImageRenderer createRenderer() {
+        return CachingTranscoders.createRenderer(super.createRenderer(), hints);
+    }
+
+    @Override
+    public void writeImage(BufferedImage img, TranscoderOutput output) throws TranscoderException {
+        CachingTranscoders.rasterized(hints);
+        super.writeImage(img, output);
+        CachingTranscoders.encoded(hints);
+    }
+
+    @Override
+    protected BridgeContext createBridgeContext(String svgVersion) {
+        return CachingTranscoders.createBridgeContext(userAgent, svgVersion);
+    }
+
+}
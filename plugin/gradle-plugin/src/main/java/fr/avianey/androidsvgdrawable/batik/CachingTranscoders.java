@@ -0,0 +1,101 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.batik;
+
+import org.apache.batik.bridge.BridgeContext;
+import org.apache.batik.bridge.FontFamilyResolver;
+import org.apache.batik.bridge.UserAgent;
+import org.apache.batik.bridge.svg12.SVG12BridgeContext;
+import org.apache.batik.gvt.renderer.ImageRenderer;
+import org.apache.batik.transcoder.TranscodingHints;
+import org.apache.batik.util.ParsedURL;
+
+/**
+ * What the caching transcoders and their {@link UserAgent}s share : external resources and fonts
+ * go through the {@link ExternalResourceCache} and the {@link CachingFontFamilyResolver},
+ * renderers honor the {@link ReproducibleOutput} and the {@link RenderPhases} are measured.
+ *
+ * @author antoine vianey
+ */
+final class CachingTranscoders {
+
+    private CachingTranscoders() {}
+
+    /**
+     * To call once the {@link UserAgent} allowed the external resource to load.
+     *
+     * @param resourceURL the external resource to load
+     */
+    static void checkLoadExternalResource(ParsedURL resourceURL) {
+        ExternalResourceCache.get().checkResource(resourceURL);
+    }
+
+    static FontFamilyResolver getFontFamilyResolver() {
+        return CachingFontFamilyResolver.INSTANCE;
+    }
+
+    /**
+     * Ends the GVT phase and configures the renderer of the image.
+     *
+     * @param renderer the renderer created by the transcoder
+     * @param hints the hints of the transcoder
+     * @return the renderer
+     */
+    static <R extends ImageRenderer> R createRenderer(R renderer, TranscodingHints hints) {
+        final RenderPhases phases = RenderPhases.of(hints);
+        if (phases != null) {
+            phases.gvtBuilt();
+        }
+        if (ReproducibleOutput.isEnabled(hints)) {
+            renderer.setRenderingHints(ReproducibleOutput.RENDERING_HINTS);
+        }
+        return renderer;
+    }
+
+    /**
+     * To call when the transcoder starts writing the image.
+     */
+    static void rasterized(TranscodingHints hints) {
+        final RenderPhases phases = RenderPhases.of(hints);
+        if (phases != null) {
+            phases.rasterized();
+        }
+    }
+
+    /**
+     * To call when the transcoder wrote the image.
+     */
+    static void encoded(TranscodingHints hints) {
+        final RenderPhases phases = RenderPhases.of(hints);
+        if (phases != null) {
+            phases.encoded();
+        }
+    }
+
+    /**
+     * @param userAgent the user agent of the transcoder
+     * @param svgVersion the version of the document
+     * @return a {@link BridgeContext} that loads documents through the {@link CachingDocumentLoader}
+     */
+    static BridgeContext createBridgeContext(UserAgent userAgent, String svgVersion) {
+        if ("1.2".equals(svgVersion)) {
+            return new SVG12BridgeContext(userAgent, new CachingDocumentLoader(userAgent));
+        } else {
+            return new BridgeContext(userAgent, new CachingDocumentLoader(userAgent));
+        }
+    }
+
+}
@@ -15,9 +15,11 @@
  */
 package fr.avianey.androidsvgdrawable.batik;
 
+import org.apache.batik.bridge.FontFamilyResolver;
 import org.apache.batik.bridge.UserAgent;
 import org.apache.batik.bridge.UserAgentAdapter;
 import org.apache.batik.parser.UnitProcessor;
+import org.apache.batik.util.ParsedURL;
 
 import fr.avianey.androidsvgdrawable.util.Constants;
 
@@ -42,4 +44,15 @@ public class DensityAwareUserAgent extends UserAgentAdapter {
 		return getPixelUnitToMillimeter();
 	}
 
+	@Override
+	public void checkLoadExternalResource(ParsedURL resourceURL, ParsedURL docURL) {
+		super.checkLoadExternalResource(resourceURL, docURL);
+		CachingTranscoders.checkLoadExternalResource(resourceURL);
+	}
+
+	@Override
+	public FontFamilyResolver getFontFamilyResolver() {
+		return CachingTranscoders.getFontFamilyResolver();
+	}
+
 }
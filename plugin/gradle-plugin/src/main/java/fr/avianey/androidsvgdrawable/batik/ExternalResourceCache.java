@@ -0,0 +1,186 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.batik;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import fr.avianey.androidsvgdrawable.jfr.ExternalDocumentEvent;
+import org.apache.batik.ext.awt.image.spi.ImageTagRegistry;
+import org.apache.batik.util.ParsedURL;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process wide cache of the external documents referenced by the rendered SVG files.
+ * <p>
+ * Documents are keyed by URL and reloaded as soon as the last modification time of the file they come from changes.
+ * They are softly referenced, so that the cache never prevents a large build from completing, and each render gets
+ * its own copy of the cached document as Batik documents are neither thread safe nor reusable across contexts.
+ * </p>
+ * <p>
+ * Raster images are already cached process wide by Batik's {@link ImageTagRegistry}, but regardless of the
+ * modification time of their file : stale entries are flushed when an external resource is checked by a user agent.
+ * </p>
+ *
+ * @author antoine vianey
+ */
+public final class ExternalResourceCache {
+
+    private static final ExternalResourceCache INSTANCE = new ExternalResourceCache();
+
+    private static final int MAX_DOCUMENTS = 256;
+
+    /**
+     * Loads a document that is not cached yet.
+     */
+    public interface Loader {
+        Document load() throws IOException;
+    }
+
+    private final Cache<String, CachedDocument> documents = CacheBuilder.newBuilder()
+            .softValues()
+            .maximumSize(MAX_DOCUMENTS)
+            .build();
+    private final ConcurrentMap<String, Long> resourceStamps = new ConcurrentHashMap<>();
+
+    private ExternalResourceCache() {
+    }
+
+    public static ExternalResourceCache get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Returns a private copy of the cached document for the given URL, if it is still up to date.
+     * @param uri the URL of the document, without fragment
+     * @return a copy of the document or null if it is not cached
+     */
+    public Document checkCache(String uri) {
+        CachedDocument cached = documents.getIfPresent(uri);
+        if (cached == null) {
+            return null;
+        }
+        if (cached.stamp != stamp(uri)) {
+            documents.invalidate(uri);
+            return null;
+        }
+        return cached.copy();
+    }
+
+    /**
+     * Returns a private copy of the document for the given URL, loading and caching it if needed.
+     * @param uri the URL of the document, without fragment
+     * @param loader loads the document when it is not cached or out of date
+     * @return a copy of the document
+     * @throws IOException if the document cannot be loaded
+     */
+    public Document loadDocument(String uri, Loader loader) throws IOException {
+        ExternalDocumentEvent event = new ExternalDocumentEvent();
+        event.begin();
+        Document document = checkCache(uri);
+        event.cached = document != null;
+        if (document == null) {
+            long stamp = stamp(uri);
+            CachedDocument cached = new CachedDocument(loader.load(), stamp);
+            documents.put(uri, cached);
+            document = cached.copy();
+        }
+        if (event.shouldCommit()) {
+            event.uri = uri;
+            event.commit();
+        }
+        return document;
+    }
+
+    /**
+     * Flushes the raster images decoded by Batik from the given resource if its file has changed since it was last checked.
+     * @param resource the URL of an external resource about to be loaded
+     */
+    public void checkResource(ParsedURL resource) {
+        if (resource == null || !"file".equals(resource.getProtocol())) {
+            return;
+        }
+        String uri = documentURI(resource.toString());
+        long stamp = stamp(uri);
+        Long previous = resourceStamps.put(uri, stamp);
+        if (previous != null && previous != stamp) {
+            ImageTagRegistry.getRegistry().flushImage(resource);
+            documents.invalidate(uri);
+        }
+    }
+
+    /**
+     * Drops every cached document.
+     */
+    public void invalidateAll() {
+        documents.invalidateAll();
+        resourceStamps.clear();
+    }
+
+    /**
+     * @param uri the URL of a resource
+     * @return the URL of the document holding the resource, without fragment
+     */
+    public static String documentURI(String uri) {
+        int n = uri.indexOf('#', Math.max(uri.lastIndexOf('/'), 0));
+        return n == -1 ? uri : uri.substring(0, n);
+    }
+
+    private static long stamp(String uri) {
+        if (!uri.startsWith("file:")) {
+            return 0;
+        }
+        try {
+            return new File(new URI(uri)).lastModified();
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return 0;
+        }
+    }
+
+    private static final class CachedDocument {
+
+        private final Document document;
+        private final long stamp;
+
+        private CachedDocument(Document document, long stamp) {
+            this.document = document;
+            this.stamp = stamp;
+        }
+
+        private Document copy() {
+            // importing nodes only reads the source, but Batik's DOM is not documented as thread safe
+            synchronized (document) {
+                Document copy = (Document) document.cloneNode(false);
+                for (Node child = document.getFirstChild(); child != null; child = child.getNextSibling()) {
+                    // document types cannot be imported
+                    if (child.getNodeType() != Node.DOCUMENT_TYPE_NODE) {
+                        copy.appendChild(copy.importNode(child, true));
+                    }
+                }
+                return copy;
+            }
+        }
+
+    }
+
+}
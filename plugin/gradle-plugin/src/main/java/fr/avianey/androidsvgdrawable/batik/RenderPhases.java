@@ -0,0 +1,117 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.batik;
+
+import org.apache.batik.transcoder.TranscodingHints;
+
+import javax.annotation.Nullable;
+
+/**
+ * Splits the time spent in a transcoder between the phases of the render :
+ * <ul>
+ * <li>GVT build, from {@link #start()} until the renderer is created</li>
+ * <li>rasterization, until the image is handed over to the encoder</li>
+ * <li>encoding, until the image is written</li>
+ * </ul>
+ * Streamed outputs are rasterized while they are encoded, the time spent painting the bands is accounted as rasterization.
+ * Instances are given to the transcoder with the {@link #KEY_RENDER_PHASES} hint and are not thread safe.
+ *
+ * @author antoine vianey
+ */
+public final class RenderPhases {
+
+    /**
+     * The {@link RenderPhases} measuring the next transcode.
+     */
+    public static final TranscodingHints.Key KEY_RENDER_PHASES = new TranscodingHints.Key() {
+        @Override
+        public boolean isCompatibleValue(Object value) {
+            return value instanceof RenderPhases;
+        }
+    };
+
+    private long start;
+    private long mark;
+    private long gvt;
+    private long rasterize;
+    private long encode;
+    private long streamed;
+
+    /**
+     * Starts measuring, before the transcoder is called
+     */
+    public void start() {
+        start = System.nanoTime();
+        mark = start;
+    }
+
+    /**
+     * @return the {@link System#nanoTime()} at which the measure started
+     */
+    public long getStartNanos() {
+        return start;
+    }
+
+    public long getGvtNanos() {
+        return gvt;
+    }
+
+    public long getRasterizeNanos() {
+        return rasterize;
+    }
+
+    public long getEncodeNanos() {
+        return encode;
+    }
+
+    void gvtBuilt() {
+        gvt += lap();
+    }
+
+    void rasterized() {
+        rasterize += lap();
+    }
+
+    void encoded() {
+        encode += lap() - streamed;
+        rasterize += streamed;
+        streamed = 0;
+    }
+
+    /**
+     * @param nanos time spent rasterizing while encoding
+     */
+    void streamed(long nanos) {
+        streamed += nanos;
+    }
+
+    private long lap() {
+        final long now = System.nanoTime();
+        final long lap = now - mark;
+        mark = now;
+        return lap;
+    }
+
+    /**
+     * @param hints the hints of a transcoder
+     * @return the phases to measure, if any
+     */
+    @Nullable
+    static RenderPhases of(TranscodingHints hints) {
+        return (RenderPhases) hints.get(KEY_RENDER_PHASES);
+    }
+
+}
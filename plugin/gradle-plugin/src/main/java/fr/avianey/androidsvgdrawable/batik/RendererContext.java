@@ -0,0 +1,138 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.batik;
+
+import fr.avianey.androidsvgdrawable.OutputFormat;
+import org.apache.batik.anim.dom.SAXSVGDocumentFactory;
+import org.apache.batik.bridge.BridgeContext;
+import org.apache.batik.bridge.DocumentLoader;
+import org.apache.batik.bridge.UserAgent;
+import org.apache.batik.transcoder.TranscodingHints;
+import org.apache.batik.transcoder.image.ImageTranscoder;
+import org.apache.batik.util.XMLResourceDescriptor;
+import org.w3c.dom.svg.SVGDocument;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Thread confined Batik infrastructure reused from one document to the other.
+ * <p>
+ * Creating a document factory, a user agent or a transcoder costs more than rendering
+ * a small icon, so each thread keeps its own warmed instances :
+ * </p>
+ * <ul>
+ * <li>one {@link SAXSVGDocumentFactory}</li>
+ * <li>one {@link DensityAwareUserAgent} and {@link CachingDocumentLoader} per dpi</li>
+ * <li>one {@link ImageTranscoder} per {@link OutputFormat}</li>
+ * </ul>
+ * Per document state is dropped when a {@link BridgeContext} is released or when a
+ * transcoder is handed out again, so that nothing leaks from one document to the next.
+ *
+ * @author antoine vianey
+ */
+public final class RendererContext {
+
+    private static final ThreadLocal<RendererContext> CONTEXTS = new ThreadLocal<RendererContext>() {
+        @Override
+        protected RendererContext initialValue() {
+            return new RendererContext();
+        }
+    };
+
+    private final SAXSVGDocumentFactory documentFactory;
+    private final Map<Integer, DocumentLoader> documentLoaders = new HashMap<>();
+    private final Map<OutputFormat, ImageTranscoder> transcoders = new EnumMap<>(OutputFormat.class);
+    private final Map<OutputFormat, TranscodingHints> defaultHints = new EnumMap<>(OutputFormat.class);
+
+    private RendererContext() {
+        this.documentFactory = new SAXSVGDocumentFactory(XMLResourceDescriptor.getXMLParserClassName());
+    }
+
+    /**
+     * @return the context of the current thread
+     */
+    public static RendererContext get() {
+        return CONTEXTS.get();
+    }
+
+    public SVGDocument createDocument(String uri) throws IOException {
+        return documentFactory.createSVGDocument(uri);
+    }
+
+    public SVGDocument createDocument(String uri, InputStream is) throws IOException {
+        return documentFactory.createSVGDocument(uri, is);
+    }
+
+    public UserAgent getUserAgent(int dpi) {
+        return getDocumentLoader(dpi).getUserAgent();
+    }
+
+    /**
+     * Creates a {@link BridgeContext} for a single document, backed by the shared user agent of the given dpi.
+     * The context MUST be released with {@link #release(BridgeContext)} once the document has been processed.
+     * @param dpi the density of the document
+     * @return a new bridge context
+     */
+    public BridgeContext createBridgeContext(int dpi) {
+        DocumentLoader loader = getDocumentLoader(dpi);
+        return new BridgeContext(loader.getUserAgent(), loader);
+    }
+
+    /**
+     * Disposes the given context and clears documents cached by its loader.
+     * @param ctx the context to release
+     */
+    public void release(BridgeContext ctx) {
+        ctx.dispose();
+        ctx.getDocumentLoader().dispose();
+    }
+
+    /**
+     * Returns the transcoder of this thread for the given format, with its default transcoding hints only.
+     * @param format the output format
+     * @return a reset transcoder
+     */
+    public ImageTranscoder getTranscoder(OutputFormat format) {
+        ImageTranscoder transcoder = transcoders.get(format);
+        if (transcoder == null) {
+            try {
+                transcoder = format.getTranscoderClass().getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Unable to create a transcoder for " + format, e);
+            }
+            transcoders.put(format, transcoder);
+            defaultHints.put(format, transcoder.getTranscodingHints());
+        } else {
+            // the transcoder keeps the given hints as is, never hand over the defaults themselves
+            transcoder.setTranscodingHints(new TranscodingHints(defaultHints.get(format)));
+        }
+        return transcoder;
+    }
+
+    private DocumentLoader getDocumentLoader(int dpi) {
+        DocumentLoader loader = documentLoaders.get(dpi);
+        if (loader == null) {
+            loader = new CachingDocumentLoader(new DensityAwareUserAgent(dpi));
+            documentLoaders.put(dpi, loader);
+        }
+        return loader;
+    }
+
+}
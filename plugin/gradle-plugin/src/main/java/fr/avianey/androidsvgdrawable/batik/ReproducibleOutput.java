@@ -0,0 +1,299 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.batik;
+
+import org.apache.batik.transcoder.TranscodingHints;
+import org.apache.batik.transcoder.keys.BooleanKey;
+
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+/**
+ * Byte identical outputs for identical inputs.
+ * <p>
+ * When {@link #KEY_REPRODUCIBLE} is set, documents are rendered with the fixed {@link #RENDERING_HINTS} and PNG images,
+ * nine-patches and streamed bands included, are written by {@link #writePNG(RenderedImage, OutputStream)} instead of
+ * the Batik or ImageIO encoders, whose chunks and compression choices depend on the library and JDK versions :
+ * </p>
+ * <ul>
+ * <li>8 bits RGBA pixels, whatever the content of the image</li>
+ * <li>IHDR, sRGB, IDAT and IEND chunks only, in this order, without time or text chunks</li>
+ * <li>the filter of each row chosen by the minimum sum of absolute differences</li>
+ * <li>a fixed deflate level and strategy, and IDAT chunks of a fixed size</li>
+ * </ul>
+ * The same svg files, fonts and plugin version give the same bytes, repeated or rendered in parallel.
+ * Compressed data come from the zlib of the JDK, which has produced the same streams for years
+ * but is not bound to.
+ *
+ * @author antoine vianey
+ */
+public final class ReproducibleOutput {
+
+    /**
+     * Renders with fixed rendering hints and writes PNG images with {@link #writePNG(RenderedImage, OutputStream)}
+     */
+    public static final TranscodingHints.Key KEY_REPRODUCIBLE = new BooleanKey();
+
+    /**
+     * Rendering hints of reproducible renders, instead of the defaults of the platform
+     */
+    public static final RenderingHints RENDERING_HINTS = new RenderingHints(null);
+
+    static {
+        RENDERING_HINTS.put(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        RENDERING_HINTS.put(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+        RENDERING_HINTS.put(RenderingHints.KEY_COLOR_RENDERING, RenderingHints.VALUE_COLOR_RENDER_QUALITY);
+        RENDERING_HINTS.put(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        RENDERING_HINTS.put(RenderingHints.KEY_ALPHA_INTERPOLATION, RenderingHints.VALUE_ALPHA_INTERPOLATION_QUALITY);
+        RENDERING_HINTS.put(RenderingHints.KEY_DITHERING, RenderingHints.VALUE_DITHER_DISABLE);
+        RENDERING_HINTS.put(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        RENDERING_HINTS.put(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        RENDERING_HINTS.put(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+    }
+
+    private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+    private static final int DEFLATE_LEVEL = 6;
+    private static final int IDAT_SIZE = 1 << 16;
+    // ancillary chunk : perceptual rendering intent
+    private static final byte[] SRGB = {0};
+
+    private ReproducibleOutput() {
+    }
+
+    /**
+     * @param hints the hints of a transcoder
+     * @return true if the transcoder renders reproducible outputs
+     */
+    public static boolean isEnabled(Map<?, ?> hints) {
+        return Boolean.TRUE.equals(hints.get(KEY_REPRODUCIBLE));
+    }
+
+    /**
+     * Writes a PNG image, the rows of the image are pulled in order
+     * @param image the image to encode
+     * @param os where to write the image, not closed
+     * @throws IOException
+     */
+    public static void writePNG(RenderedImage image, OutputStream os) throws IOException {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final DataOutputStream out = new DataOutputStream(os);
+        out.write(SIGNATURE);
+
+        final byte[] ihdr = new byte[13];
+        putInt(ihdr, 0, width);
+        putInt(ihdr, 4, height);
+        ihdr[8] = 8; // bit depth
+        ihdr[9] = 6; // truecolor with alpha
+        // compression, filter and interlace methods : 0
+        writeChunk(out, "IHDR", ihdr, ihdr.length);
+        writeChunk(out, "sRGB", SRGB, SRGB.length);
+
+        final Deflater deflater = new Deflater(DEFLATE_LEVEL);
+        deflater.setStrategy(Deflater.DEFAULT_STRATEGY);
+        try {
+            final IdatOutputStream idat = new IdatOutputStream(out);
+            try (DeflaterOutputStream zos = new DeflaterOutputStream(idat, deflater, IDAT_SIZE)) {
+                final int[] argb = new int[width];
+                final int stride = width * 4;
+                byte[] previous = new byte[stride];
+                byte[] current = new byte[stride];
+                final byte[][] filtered = new byte[5][stride + 1];
+                for (int y = 0; y < height; y++) {
+                    getRow(image, y, argb);
+                    for (int x = 0, i = 0; x < width; x++) {
+                        final int p = argb[x];
+                        current[i++] = (byte) (p >> 16);
+                        current[i++] = (byte) (p >> 8);
+                        current[i++] = (byte) p;
+                        current[i++] = (byte) (p >>> 24);
+                    }
+                    zos.write(filter(current, previous, filtered));
+                    final byte[] swap = previous;
+                    previous = current;
+                    current = swap;
+                }
+            }
+            idat.flushChunk();
+        } finally {
+            deflater.end();
+        }
+
+        writeChunk(out, "IEND", new byte[0], 0);
+        out.flush();
+    }
+
+    /**
+     * Reads a row of non premultiplied ARGB pixels
+     */
+    private static void getRow(RenderedImage image, int y, int[] argb) {
+        final int width = argb.length;
+        if (image instanceof BufferedImage) {
+            ((BufferedImage) image).getRGB(0, y, width, 1, argb, 0, width);
+            return;
+        }
+        final Raster row = image.getData(new Rectangle(image.getMinX(), image.getMinY() + y, width, 1));
+        final ColorModel cm = image.getColorModel();
+        if (ColorModel.getRGBdefault().equals(cm) && row.getTransferType() == DataBuffer.TYPE_INT) {
+            row.getDataElements(row.getMinX(), row.getMinY(), width, 1, argb);
+        } else {
+            Object pixel = null;
+            for (int x = 0; x < width; x++) {
+                pixel = row.getDataElements(row.getMinX() + x, row.getMinY(), pixel);
+                argb[x] = cm.getRGB(pixel);
+            }
+        }
+    }
+
+    /**
+     * Filters a row with each of the 5 PNG filters and keeps the one with the minimum sum of absolute differences
+     * @return the filter type followed by the filtered row
+     */
+    private static byte[] filter(byte[] row, byte[] previous, byte[][] filtered) {
+        final int bpp = 4;
+        long best = Long.MAX_VALUE;
+        int bestType = 0;
+        for (int type = 0; type < 5; type++) {
+            final byte[] f = filtered[type];
+            f[0] = (byte) type;
+            long sum = 0;
+            for (int i = 0; i < row.length; i++) {
+                final int a = i >= bpp ? row[i - bpp] & 0xff : 0;
+                final int b = previous[i] & 0xff;
+                final int c = i >= bpp ? previous[i - bpp] & 0xff : 0;
+                final int predictor;
+                switch (type) {
+                    case 1:
+                        predictor = a;
+                        break;
+                    case 2:
+                        predictor = b;
+                        break;
+                    case 3:
+                        predictor = (a + b) >> 1;
+                        break;
+                    case 4:
+                        predictor = paeth(a, b, c);
+                        break;
+                    default:
+                        predictor = 0;
+                        break;
+                }
+                final byte value = (byte) (row[i] - predictor);
+                f[i + 1] = value;
+                sum += Math.abs(value);
+            }
+            if (sum < best) {
+                best = sum;
+                bestType = type;
+            }
+        }
+        return filtered[bestType];
+    }
+
+    private static int paeth(int a, int b, int c) {
+        final int p = a + b - c;
+        final int pa = Math.abs(p - a);
+        final int pb = Math.abs(p - b);
+        final int pc = Math.abs(p - c);
+        if (pa <= pb && pa <= pc) {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+
+    private static void writeChunk(DataOutputStream out, String type, byte[] data, int length) throws IOException {
+        final byte[] name = type.getBytes(US_ASCII);
+        final CRC32 crc = new CRC32();
+        crc.update(name);
+        crc.update(data, 0, length);
+        out.writeInt(length);
+        out.write(name);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static void putInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
+    }
+
+    /**
+     * Cuts the compressed stream in IDAT chunks of {@link #IDAT_SIZE} bytes, whatever the size of the writes
+     */
+    private static final class IdatOutputStream extends OutputStream {
+
+        private final DataOutputStream out;
+        private final byte[] buffer = new byte[IDAT_SIZE];
+        private int count;
+
+        private IdatOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == IDAT_SIZE) {
+                flushChunk();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == IDAT_SIZE) {
+                    flushChunk();
+                }
+                final int n = Math.min(len, IDAT_SIZE - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void close() {
+            // the chunks are followed by IEND
+        }
+
+        private void flushChunk() throws IOException {
+            if (count > 0) {
+                writeChunk(out, "IDAT", buffer, count);
+                count = 0;
+            }
+        }
+
+    }
+
+}
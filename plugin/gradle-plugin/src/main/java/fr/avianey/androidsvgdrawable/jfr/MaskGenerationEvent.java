@@ -0,0 +1,48 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Generation of the masked svg files of a svgmask file.
+ *
+ * @author antoine vianey
+ */
+@Name("fr.avianey.androidsvgdrawable.MaskGeneration")
+@Label("Mask Generation")
+@Category({"Android SVG Drawable"})
+@Description("Generation of the masked svg files of a svgmask file")
+@StackTrace(false)
+public class MaskGenerationEvent extends Event {
+
+    @Label("Mask")
+    public String mask;
+
+    @Label("Candidates")
+    @Description("Number of svg files that could be masked")
+    public int candidates;
+
+    @Label("Generated")
+    @Description("Number of masked svg files generated")
+    public int generated;
+
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Drawing of the nine-patch borders around a rendered image.
+ *
+ * @author antoine vianey
+ */
+@Name("fr.avianey.androidsvgdrawable.NinePatch")
+@Label("Nine-Patch")
+@Category({"Android SVG Drawable"})
+@Description("Nine-patch borders drawn around a rendered image")
+@StackTrace(false)
+public class NinePatchEvent extends Event {
+
+    @Label("File")
+    public String file;
+
+    @Label("Density")
+    public String density;
+
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Rendering and encoding of a svg file to a density, from the parsed document to the encoded image.
+ * <p>
+ * Reading the svg file and writing the encoded image happen on I/O threads and are recorded by the
+ * {@code jdk.FileRead} and {@code jdk.FileWrite} events of the JDK. Their durations are reported by the
+ * read and write times, the event is committed once the image is written.
+ * </p>
+ *
+ * @author antoine vianey
+ */
+@Name("fr.avianey.androidsvgdrawable.Render")
+@Label("Render")
+@Category({"Android SVG Drawable"})
+@Description("Rendering of a svg file to a density")
+@StackTrace(false)
+public class RenderEvent extends Event {
+
+    @Label("File")
+    public String file;
+
+    @Label("Density")
+    public String density;
+
+    @Label("Format")
+    public String format;
+
+    @Label("Width")
+    public int width;
+
+    @Label("Height")
+    public int height;
+
+    @Label("Bytes In")
+    @DataAmount
+    public long bytesIn;
+
+    @Label("Bytes Out")
+    @DataAmount
+    public long bytesOut;
+
+    @Label("Read Time")
+    @Timespan
+    public long readTime;
+
+    @Label("Parse Time")
+    @Timespan
+    public long parseTime;
+
+    @Label("GVT Build Time")
+    @Timespan
+    public long gvtTime;
+
+    @Label("Rasterize Time")
+    @Timespan
+    public long rasterizeTime;
+
+    @Label("Encode Time")
+    @Timespan
+    public long encodeTime;
+
+    @Label("Nine-Patch Time")
+    @Timespan
+    public long ninePatchTime;
+
+    @Label("Write Time")
+    @Description("Writing of the encoded image, zero for images streamed to their file while encoding")
+    @Timespan
+    public long writeTime;
+
+    @Label("Metadata Cached")
+    @Description("The complexity of the file was found in the metadata index, as scanned by a previous task of the build")
+    public boolean metadataCached;
+
+}
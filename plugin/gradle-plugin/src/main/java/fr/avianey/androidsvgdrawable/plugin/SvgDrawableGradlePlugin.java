@@ -15,17 +15,46 @@
  */
 package fr.avianey.androidsvgdrawable.plugin;
 
+import fr.avianey.androidsvgdrawable.OutputType;
+import org.codehaus.groovy.runtime.DefaultGroovyMethods;
+import org.codehaus.groovy.runtime.InvokerHelper;
 import org.gradle.api.*;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.provider.Provider;
+import org.gradle.api.services.BuildServiceSpec;
+import org.gradle.api.specs.Spec;
+import org.gradle.api.tasks.TaskCollection;
+import org.gradle.api.tasks.TaskProvider;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 /**
- * Task that generates drawable from Scalable Vector Graphics (SVG) files.
+ * Plugin that generates drawable from Scalable Vector Graphics (SVG) files with the {@link SvgDrawableTask}s of an Android project.
+ * It registers the {@link SvgDrawableService} shared by the tasks of the build, makes each variant depend on the tasks
+ * of its source sets and adds the default output directories of the tasks to the res or assets directories of their source set.
  *
  * @author antoine vianey
  */
 public class SvgDrawableGradlePlugin implements Plugin<Project> {
 
+    /**
+     * Gradle property overriding the heap, in MB, that renders of the whole build may use
+     */
+    public static final String MEMORY_BUDGET_PROPERTY = "androidsvgdrawable.memoryBudget";
+
+    private static final String PRE_BUILD_TASK = "preBuild";
+
+    private static final String ANDROID_COMPONENTS_EXTENSION = "androidComponents";
+
+    private static final String[] VARIANTS_PROPERTIES = {"applicationVariants", "libraryVariants"};
+
+    private static final String[] VARIANT_SOURCE_SET_PROPERTIES = {"buildType", "flavorName"};
+
     private static final String ANDROID_PLUGIN_CLASS_REGEXP = "com\\.android\\.build\\.gradle\\.(?:AtomPlugin|FeaturePlugin|InstantAppPlugin|AppPlugin|LibraryPlugin)";
 
     @Override
@@ -42,18 +71,187 @@ public class SvgDrawableGradlePlugin implements Plugin<Project> {
             throw new GradleException("AndroidSvgDrawable MUST be used with the Android plugin.");
         }
 
-        // Generate SVG on before Android plugin 'preBuild' task.
-        project.afterEvaluate(new Action<Project>() {
+        // All tasks of the build share the same render pool and caches
+        final Provider<Long> memoryBudget = project.getProviders().gradleProperty(MEMORY_BUDGET_PROPERTY).map(new Transformer<Long, String>() {
+            @Override
+            public Long transform(String megabytes) {
+                return Long.parseLong(megabytes.trim());
+            }
+        });
+        final Provider<SvgDrawableService> service = project.getGradle().getSharedServices().registerIfAbsent(
+                SvgDrawableService.NAME, SvgDrawableService.class, new Action<BuildServiceSpec<SvgDrawableService.Params>>() {
+                    @Override
+                    public void execute(BuildServiceSpec<SvgDrawableService.Params> spec) {
+                        spec.getParameters().getParallelism().convention(Runtime.getRuntime().availableProcessors());
+                        spec.getParameters().getMemoryBudget().set(memoryBudget);
+                    }
+                });
+        project.getTasks().withType(SvgDrawableTask.class).configureEach(new Action<SvgDrawableTask>() {
+            @Override
+            public void execute(SvgDrawableTask task) {
+                task.getSvgDrawableService().set(service);
+                task.usesService(service);
+            }
+        });
+
+        // Generate SVG before the 'preBuild' task of the variants built from the source set of each task
+        final Object androidComponents = project.getExtensions().findByName(ANDROID_COMPONENTS_EXTENSION);
+        final DomainObjectCollection<Object> variants = androidComponents == null ? getVariants(project) : null;
+        if (androidComponents != null) {
+            onVariants(project, androidComponents);
+        } else if (variants != null) {
+            // the Android plugin versions without the variant API only have the legacy variants
+            variants.all(new Action<Object>() {
+                @Override
+                public void execute(Object variant) {
+                    dependOnSourceSetTasks(project, variant);
+                }
+            });
+        } else {
+            // no variant API, every variant depends on every task
+            project.getTasks().configureEach(new Action<Task>() {
+                @Override
+                public void execute(Task task) {
+                    if (PRE_BUILD_TASK.equals(task.getName())) {
+                        task.dependsOn(project.getTasks().withType(SvgDrawableTask.class));
+                    }
+                }
+            });
+        }
+
+        // tasks without 'to' directory generate into a directory of their own
+        addToSourceSets(project);
+    }
+
+    /**
+     * Makes the 'preBuild' task of each variant of the variant API depend on the tasks whose source set is one of the variant's source sets :
+     * main, its flavors, its build type and its own.
+     */
+    private static void onVariants(final Project project, Object androidComponents) {
+        final Object selector = InvokerHelper.invokeMethod(InvokerHelper.invokeMethod(androidComponents, "selector", null), "all", null);
+        InvokerHelper.invokeMethod(androidComponents, "onVariants", new Object[] {selector, new Action<Object>() {
             @Override
-            public void execute(Project project) {
-                Set<Task> preBuildTasks = project.getTasksByName("preBuild", false);
-                if (preBuildTasks.isEmpty()) {
-                    project.getLogger().error("The Android plugin 'preBuild' task could not be found. Skipping SVG generation...");
-                } else {
-                    preBuildTasks.iterator().next().dependsOn(project.getTasks().withType(SvgDrawableTask.class));
+            public void execute(Object variant) {
+                final String name = (String) InvokerHelper.getProperty(variant, "name");
+                final Set<String> sourceSets = new HashSet<>();
+                sourceSets.add(SvgDrawableTask.DEFAULT_SOURCE_SET);
+                sourceSets.add(name);
+                for (String property : VARIANT_SOURCE_SET_PROPERTIES) {
+                    final String sourceSet = (String) InvokerHelper.getProperty(variant, property);
+                    if (sourceSet != null && !sourceSet.isEmpty()) {
+                        sourceSets.add(sourceSet);
+                    }
                 }
+                for (Object flavor : (Iterable<?>) InvokerHelper.getProperty(variant, "productFlavors")) {
+                    // pairs of dimension and flavor
+                    sourceSets.add((String) InvokerHelper.getProperty(flavor, "second"));
+                }
+                // the tasks of the variant are registered after the callbacks
+                final String preBuildName = "pre" + Character.toUpperCase(name.charAt(0)) + name.substring(1) + "Build";
+                final TaskCollection<SvgDrawableTask> tasks = getSourceSetTasks(project, sourceSets);
+                project.getTasks().configureEach(new Action<Task>() {
+                    @Override
+                    public void execute(Task task) {
+                        if (preBuildName.equals(task.getName())) {
+                            task.dependsOn(tasks);
+                        }
+                    }
+                });
+            }
+        }});
+    }
+
+    /**
+     * Returns the variants of the Android application or library extension, or null if none is found.
+     */
+    @SuppressWarnings("unchecked")
+    private static DomainObjectCollection<Object> getVariants(Project project) {
+        final Object android = project.getExtensions().findByName("android");
+        if (android != null) {
+            for (String property : VARIANTS_PROPERTIES) {
+                if (DefaultGroovyMethods.hasProperty(android, property) != null) {
+                    return (DomainObjectCollection<Object>) InvokerHelper.getProperty(android, property);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Makes the 'preBuild' task of the variant depend on the tasks whose source set is one of the variant's source sets :
+     * main, its flavors, its build type and its own.
+     */
+    private static void dependOnSourceSetTasks(Project project, Object variant) {
+        final Set<String> sourceSets = new HashSet<>();
+        for (Object sourceSet : (Iterable<?>) InvokerHelper.getProperty(variant, "sourceSets")) {
+            sourceSets.add((String) InvokerHelper.getProperty(sourceSet, "name"));
+        }
+        final TaskCollection<SvgDrawableTask> tasks = getSourceSetTasks(project, sourceSets);
+        ((TaskProvider<?>) InvokerHelper.getProperty(variant, "preBuildProvider")).configure(new Action<Task>() {
+            @Override
+            public void execute(Task preBuild) {
+                preBuild.dependsOn(tasks);
+            }
+        });
+    }
+
+    /**
+     * @return the tasks whose source set is one of the given source sets
+     */
+    private static TaskCollection<SvgDrawableTask> getSourceSetTasks(Project project, final Set<String> sourceSets) {
+        return project.getTasks().withType(SvgDrawableTask.class).matching(new Spec<SvgDrawableTask>() {
+            @Override
+            public boolean isSatisfiedBy(SvgDrawableTask task) {
+                return sourceSets.contains(task.getSourceSet().get());
+            }
+        });
+    }
+
+    /**
+     * Adds the default output directories of the tasks to the res directories of their Android source set,
+     * or to the assets directories for the 'raw' output type.
+     * The Android plugin API is not a dependency of this plugin, the source sets are looked up by name.
+     */
+    private static void addToSourceSets(final Project project) {
+        final Object android = project.getExtensions().findByName("android");
+        if (android == null) {
+            project.getLogger().info("The Android extension could not be found, generated files are only written to the 'to' directories");
+            return;
+        }
+        ((NamedDomainObjectContainer<?>) InvokerHelper.getProperty(android, "sourceSets")).all(new Action<Object>() {
+            @Override
+            public void execute(Object sourceSet) {
+                final String name = (String) InvokerHelper.getProperty(sourceSet, "name");
+                InvokerHelper.invokeMethod(InvokerHelper.getProperty(sourceSet, "res"), "srcDir", getDefaultOutputDirectories(project, name, false));
+                InvokerHelper.invokeMethod(InvokerHelper.getProperty(sourceSet, "assets"), "srcDir", getDefaultOutputDirectories(project, name, true));
+            }
+        });
+    }
+
+    /**
+     * Lists the default output directories of the tasks of a source set, built by these tasks.
+     * The tasks are matched, and realised, when the Android plugin resolves the directories or their dependencies,
+     * not when the source set is created.
+     */
+    private static FileCollection getDefaultOutputDirectories(final Project project, final String sourceSet, final boolean assets) {
+        final TaskCollection<SvgDrawableTask> tasks = project.getTasks().withType(SvgDrawableTask.class).matching(new Spec<SvgDrawableTask>() {
+            @Override
+            public boolean isSatisfiedBy(SvgDrawableTask task) {
+                return !task.getTo().isPresent()
+                        && sourceSet.equals(task.getSourceSet().get())
+                        && (task.getOutputType().get() == OutputType.raw) == assets;
             }
         });
+        return project.files(new Callable<List<Provider<Directory>>>() {
+            @Override
+            public List<Provider<Directory>> call() {
+                final List<Provider<Directory>> directories = new ArrayList<>();
+                for (SvgDrawableTask task : tasks) {
+                    directories.add(task.getDefaultOutputDirectory());
+                }
+                return directories;
+            }
+        }).builtBy(tasks);
     }
 
 }
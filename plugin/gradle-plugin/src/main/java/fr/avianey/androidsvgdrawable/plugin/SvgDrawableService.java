@@ -0,0 +1,128 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.plugin;
+
+import fr.avianey.androidsvgdrawable.MemoryBudget;
+import fr.avianey.androidsvgdrawable.SvgDrawablePlugin;
+import fr.avianey.androidsvgdrawable.SvgMetadataIndex;
+import fr.avianey.androidsvgdrawable.batik.ExternalResourceCache;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.api.provider.Property;
+import org.gradle.api.services.BuildService;
+import org.gradle.api.services.BuildServiceParameters;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/**
+ * Resources shared by every {@link SvgDrawableTask} of the build, whatever the project they belong to.
+ * <p>
+ * Tasks running in parallel render on the same bounded pool and admit renders against the same
+ * {@link MemoryBudget} instead of creating their own, and reuse the bounds already extracted by
+ * the other tasks. Parsed external documents are shared through the process wide
+ * {@link ExternalResourceCache}.
+ * </p>
+ * <p>
+ * Closing the service at the end of the build waits for the running renders, and releases the
+ * metadata and the memory budget with it.
+ * </p>
+ *
+ * @author antoine vianey
+ */
+public abstract class SvgDrawableService implements BuildService<SvgDrawableService.Params>, AutoCloseable {
+
+    public static final String NAME = "androidSvgDrawable";
+
+    // running renders are given this time to finish when the build ends
+    private static final long CLOSE_TIMEOUT_SECONDS = 10;
+
+    private static final Logger LOGGER = Logging.getLogger(SvgDrawableService.class);
+
+    public interface Params extends BuildServiceParameters {
+
+        /**
+         * @return the number of threads rendering SVG files for the whole build
+         */
+        Property<Integer> getParallelism();
+
+        /**
+         * @return the heap, in MB, that concurrent renders of the whole build may use
+         */
+        Property<Long> getMemoryBudget();
+
+    }
+
+    private final SvgMetadataIndex metadataIndex = new SvgMetadataIndex();
+    private volatile ForkJoinPool pool;
+    private volatile MemoryBudget memoryBudget;
+
+    public ForkJoinPool getPool() {
+        ForkJoinPool p = pool;
+        if (p == null) {
+            synchronized (this) {
+                p = pool;
+                if (p == null) {
+                    p = SvgDrawablePlugin.newForkJoinPool(getParameters().getParallelism().get());
+                    pool = p;
+                }
+            }
+        }
+        return p;
+    }
+
+    public MemoryBudget getMemoryBudget() {
+        MemoryBudget budget = memoryBudget;
+        if (budget == null) {
+            synchronized (this) {
+                budget = memoryBudget;
+                if (budget == null) {
+                    budget = getParameters().getMemoryBudget().isPresent() ?
+                            new MemoryBudget(getParameters().getMemoryBudget().get() << 20) :
+                            MemoryBudget.ofHeap();
+                    memoryBudget = budget;
+                }
+            }
+        }
+        return budget;
+    }
+
+    public SvgMetadataIndex getMetadataIndex() {
+        return metadataIndex;
+    }
+
+    @Override
+    public synchronized void close() {
+        final ForkJoinPool p = pool;
+        pool = null;
+        if (p != null) {
+            p.shutdown();
+            try {
+                if (!p.awaitTermination(CLOSE_TIMEOUT_SECONDS, SECONDS)) {
+                    LOGGER.warn("SVG renders still running after " + CLOSE_TIMEOUT_SECONDS + "s, cancelling them");
+                    p.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                p.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        memoryBudget = null;
+        metadataIndex.clear();
+    }
+
+}
@@ -16,164 +16,332 @@
 package fr.avianey.androidsvgdrawable.plugin;
 
 import fr.avianey.androidsvgdrawable.*;
-import groovy.lang.Closure;
 import org.gradle.api.DefaultTask;
-import org.gradle.api.Task;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.Directory;
+import org.gradle.api.file.DirectoryProperty;
 import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.ProjectLayout;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.ListProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.provider.Provider;
 import org.gradle.api.tasks.*;
 
 import javax.annotation.Nullable;
+import javax.inject.Inject;
 import java.io.File;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 
-public class SvgDrawableTask extends DefaultTask implements SvgDrawablePlugin.Parameters {
+/**
+ * Task that generates drawable from Scalable Vector Graphics (SVG) files.
+ * <p>
+ * Every option is a lazy property : the task is only realised when needed and
+ * nothing but its own values is read when it runs, so that it is compatible with the configuration cache.
+ * </p>
+ * <p>
+ * The outputs are cached in the build cache : input files are fingerprinted by their path relative to their root,
+ * so that the outputs are reused from another checkout directory.
+ * </p>
+ *
+ * @author antoine vianey
+ */
+@CacheableTask
+public abstract class SvgDrawableTask extends DefaultTask {
+
+    public static final String DEFAULT_SOURCE_SET = "main";
+
+    // lifecycle events, never stored in the configuration cache : null once restored from it, without listeners
+    @Nullable
+    private transient List<RenderListener> renderListeners = new ArrayList<>();
+
+    public SvgDrawableTask() {
+        DirectoryProperty buildDirectory = getLayout().getBuildDirectory();
+        getSourceSet().convention(DEFAULT_SOURCE_SET);
+        getCreateMissingDirectories().convention(SvgDrawablePlugin.Parameters.DEFAULT_CREATE_MISSING_DIRECTORIES);
+        getSvgMaskedSvgOutputDirectory().convention(buildDirectory.dir("intermediates/svgdrawable/" + getName() + "/masked"));
+        getUseSameSvgOnlyOnceInMask().convention(false);
+        getOutputType().convention(SvgDrawablePlugin.Parameters.DEFAULT_OUTPUT_TYPE);
+        getOutputFormat().convention(SvgDrawablePlugin.Parameters.DEFAULT_OUTPUT_FORMAT);
+        getJpgQuality().convention(SvgDrawablePlugin.Parameters.DEFAULT_JPG_QUALITY);
+        getJpgBackgroundColor().convention(SvgDrawablePlugin.Parameters.DEFAULT_JPG_BACKGROUND_COLOR);
+        getReproducible().convention(SvgDrawablePlugin.Parameters.DEFAULT_REPRODUCIBLE);
+        getParallelTiles().convention(SvgDrawablePlugin.Parameters.DEFAULT_PARALLEL_TILES);
+        getTrace().convention(SvgDrawablePlugin.Parameters.DEFAULT_TRACE);
+        getSvgBoundsType().convention(SvgDrawablePlugin.Parameters.DEFAULT_BOUNDS_TYPE);
+        getRenderGraphFile().convention(buildDirectory.file("intermediates/svgdrawable/" + getName() + "/render-graph.properties"));
+        getReportDirectory().convention(buildDirectory.dir("reports/svgdrawable/" + getName()));
+    }
+
+    @Inject
+    protected abstract ProjectLayout getLayout();
 
     @InputFiles
-    public FileCollection from;
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getFrom();
+
+    /**
+     * @return the given output directory, if any
+     * @see #getOutputDirectory()
+     */
+    @Internal
+    public abstract DirectoryProperty getTo();
+
+    /**
+     * @return the name of the Android source set the task generates resources for
+     */
+    @Internal
+    public abstract Property<String> getSourceSet();
 
-    @OutputDirectory
-    public File to;
     @Input
-    public boolean createMissingDirectories = DEFAULT_CREATE_MISSING_DIRECTORIES;
+    public abstract Property<Boolean> getCreateMissingDirectories();
+
+    /**
+     * @return the densities to generate, all of them when empty
+     */
     @Input
-    public Density.Value[] targetedDensities;
+    public abstract ListProperty<Density.Value> getTargetedDensities();
+
     @Input
     @Optional
-    public Density.Value noDpiDensity;
+    public abstract Property<Density.Value> getNoDpiDensity();
 
     // nine patch
     @InputFile
     @Optional
-    public File ninePatchConfig;
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract RegularFileProperty getNinePatchConfig();
 
-    // masking
+    // masking, the SVG files of 'from' are used when empty
     @InputFiles
-    @Optional
-    public FileCollection svgMaskFiles;
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getSvgMaskFiles();
+
     @InputFiles
-    @Optional
-    public FileCollection svgMaskResourceFiles;
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getSvgMaskResourceFiles();
+
     @OutputDirectory
-    @Optional
-    public File svgMaskedSvgOutputDirectory;
+    public abstract DirectoryProperty getSvgMaskedSvgOutputDirectory();
+
     @Input
-    public boolean useSameSvgOnlyOnceInMask;
+    public abstract Property<Boolean> getUseSameSvgOnlyOnceInMask();
 
     // type
     @Input
-    public OutputType outputType = DEFAULT_OUTPUT_TYPE;
+    public abstract Property<OutputType> getOutputType();
 
     // format
     @Input
-    public OutputFormat outputFormat = DEFAULT_OUTPUT_FORMAT;
+    public abstract Property<OutputFormat> getOutputFormat();
+
+    @Input
+    public abstract Property<Integer> getJpgQuality();
+
     @Input
-    public int jpgQuality = DEFAULT_JPG_QUALITY;
+    public abstract Property<Integer> getJpgBackgroundColor();
+
     @Input
-    public int jpgBackgroundColor = DEFAULT_JPG_BACKGROUND_COLOR;
+    public abstract Property<Boolean> getReproducible();
+
+    /**
+     * @return whether tiles are rendered concurrently, small png being then rendered tile per tile
+     */
+    @Input
+    public abstract Property<Boolean> getParallelTiles();
+
+    // tracing, no effect on the generated files
+    @Internal
+    public abstract Property<Boolean> getTrace();
 
     // deprecated
     @Input
-    @Nullable
-    public BoundsType svgBoundsType = DEFAULT_BOUNDS_TYPE;
-
-    @Override
-    public Task configure(Closure closure) {
-        Task task = super.configure(closure);
-        if (svgMaskedSvgOutputDirectory == null) {
-            svgMaskedSvgOutputDirectory = new File(getProject().getBuildDir(), "generated-svg");
-        }
-        return task;
-    }
+    public abstract Property<BoundsType> getSvgBoundsType();
 
-    @TaskAction
-    public void transcode() {
-        SvgDrawablePlugin plugin = new SvgDrawablePlugin(this, new GradleLogger(getProject().getLogger()));
-        plugin.execute();
-    }
+    /**
+     * @return the manifest of the generated files, cached along with them
+     */
+    @OutputFile
+    public abstract RegularFileProperty getRenderGraphFile();
 
-    @Override
-    @InputFiles
-    public Iterable<File> getFiles() {
-        if (from == null) {
-            return Collections.emptyList();
-        }
-        return from.getFiles();
-    }
+    @Internal
+    public abstract DirectoryProperty getReportDirectory();
 
-    public FileCollection getFrom() {
-        return from;
-    }
+    /**
+     * @return the service sharing the render pool and caches with the other tasks of the build
+     */
+    @Internal
+    public abstract Property<SvgDrawableService> getSvgDrawableService();
 
-    @Override
-    public File getTo() {
-        return to;
+    /**
+     * @return the <code>to</code> directory, or an output directory of this task alone that is added to its Android source set
+     */
+    @OutputDirectory
+    public Provider<Directory> getOutputDirectory() {
+        return getTo().orElse(getDefaultOutputDirectory());
     }
 
-    @Override
-    public boolean isCreateMissingDirectories() {
-        return createMissingDirectories;
+    /**
+     * @return the output directory of this task alone, when no <code>to</code> directory is given
+     */
+    @Internal
+    public Provider<Directory> getDefaultOutputDirectory() {
+        return getLayout().getBuildDirectory().dir("generated/svgdrawable/" + getName());
     }
 
-    @Override
-    public Density.Value[] getTargetedDensities() {
-        return targetedDensities;
+    /**
+     * Registers a listener notified of the lifecycle of the generation.
+     * Listeners are objects of the build script, that the configuration cache can't store :
+     * the build runs without configuration cache when a listener is registered.
+     * @param listener the listener
+     */
+    public void renderListener(RenderListener listener) {
+        renderListeners.add(listener);
+        notCompatibleWithConfigurationCache("Render listeners can't be stored in the configuration cache");
     }
 
-    @Nullable
-    @Override
-    public Density.Value getNoDpiDensity() {
-        return noDpiDensity;
+    @TaskAction
+    public void transcode() {
+        SvgDrawableService service = getSvgDrawableService().get();
+        SvgDrawablePlugin plugin = new SvgDrawablePlugin(parameters(), new GradleLogger(getLogger()),
+                service.getMetadataIndex(), service.getMemoryBudget());
+        plugin.execute(service.getPool());
     }
 
-    @Override
-    public File getNinePatchConfig() {
-        return ninePatchConfig;
-    }
+    /**
+     * @return the values of the properties of this task
+     */
+    private SvgDrawablePlugin.Parameters parameters() {
+        final File to = getOutputDirectory().get().getAsFile();
+        final List<Density.Value> targetedDensities = getTargetedDensities().get();
+        final File ninePatchConfig = getNinePatchConfig().isPresent() ? getNinePatchConfig().get().getAsFile() : null;
+        final File svgMaskedSvgOutputDirectory = getSvgMaskedSvgOutputDirectory().get().getAsFile();
+        final File renderGraphFile = getRenderGraphFile().get().getAsFile();
+        final File reportDirectory = getReportDirectory().get().getAsFile();
+        final File renderHistoryFile = new File(getTemporaryDir(), "render-history.properties");
+        return new SvgDrawablePlugin.Parameters() {
 
-    @Override
-    public Iterable<File> getSvgMaskFiles() {
-        return svgMaskFiles;
-    }
+            @Override
+            public Iterable<File> getFiles() {
+                return getFrom().getFiles();
+            }
 
-    @Override
-    public Iterable<File> getSvgMaskResourceFiles() {
-        return svgMaskResourceFiles;
-    }
+            @Override
+            public File getTo() {
+                return to;
+            }
 
-    @Override
-    public File getSvgMaskedSvgOutputDirectory() {
-        return svgMaskedSvgOutputDirectory;
-    }
+            @Override
+            public boolean isCreateMissingDirectories() {
+                return getCreateMissingDirectories().get();
+            }
 
-    @Override
-    public boolean isUseSameSvgOnlyOnceInMask() {
-        return useSameSvgOnlyOnceInMask;
-    }
+            @Nullable
+            @Override
+            public Density.Value[] getTargetedDensities() {
+                return targetedDensities.isEmpty() ? null : targetedDensities.toArray(new Density.Value[0]);
+            }
 
-    @Override
-    public OutputType getOutputType() {
-        return outputType;
-    }
+            @Nullable
+            @Override
+            public Density.Value getNoDpiDensity() {
+                return SvgDrawableTask.this.getNoDpiDensity().getOrNull();
+            }
 
-    @Override
-    public OutputFormat getOutputFormat() {
-        return outputFormat;
-    }
+            @Nullable
+            @Override
+            public File getNinePatchConfig() {
+                return ninePatchConfig;
+            }
 
-    @Override
-    public int getJpgQuality() {
-        return jpgQuality;
-    }
+            @Override
+            public Iterable<File> getSvgMaskFiles() {
+                return filesOrNull(SvgDrawableTask.this.getSvgMaskFiles());
+            }
+
+            @Override
+            public Iterable<File> getSvgMaskResourceFiles() {
+                return filesOrNull(SvgDrawableTask.this.getSvgMaskResourceFiles());
+            }
 
-    @Override
-    public int getJpgBackgroundColor() {
-        return jpgBackgroundColor;
+            @Override
+            public File getSvgMaskedSvgOutputDirectory() {
+                return svgMaskedSvgOutputDirectory;
+            }
+
+            @Override
+            public boolean isUseSameSvgOnlyOnceInMask() {
+                return getUseSameSvgOnlyOnceInMask().get();
+            }
+
+            @Override
+            public OutputFormat getOutputFormat() {
+                return SvgDrawableTask.this.getOutputFormat().get();
+            }
+
+            @Override
+            public OutputType getOutputType() {
+                return SvgDrawableTask.this.getOutputType().get();
+            }
+
+            @Override
+            public int getJpgQuality() {
+                return SvgDrawableTask.this.getJpgQuality().get();
+            }
+
+            @Override
+            public int getJpgBackgroundColor() {
+                return SvgDrawableTask.this.getJpgBackgroundColor().get();
+            }
+
+            @Override
+            public boolean isReproducible() {
+                return getReproducible().get();
+            }
+
+            @Override
+            public BoundsType getSvgBoundsType() {
+                return SvgDrawableTask.this.getSvgBoundsType().get();
+            }
+
+            @Override
+            public boolean isParallelTiles() {
+                return getParallelTiles().get();
+            }
+
+            @Override
+            public File getRenderHistoryFile() {
+                return renderHistoryFile;
+            }
+
+            @Override
+            public File getRenderGraphFile() {
+                return renderGraphFile;
+            }
+
+            @Override
+            public File getReportDirectory() {
+                return reportDirectory;
+            }
+
+            @Override
+            public boolean isTrace() {
+                return getTrace().get();
+            }
+
+            @Override
+            public Iterable<RenderListener> getRenderListeners() {
+                return renderListeners == null ? Collections.<RenderListener>emptyList() : renderListeners;
+            }
+
+        };
     }
 
-    @Override
-    public BoundsType getSvgBoundsType() {
-        return svgBoundsType;
+    @Nullable
+    private static Iterable<File> filesOrNull(FileCollection files) {
+        return files.isEmpty() ? null : files.getFiles();
     }
 
 }
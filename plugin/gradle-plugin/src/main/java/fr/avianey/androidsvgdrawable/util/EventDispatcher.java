@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Delivers events to listeners without ever blocking the threads that dispatch them.
+ * <p>
+ * Each listener has its own lock-free mailbox, drained by a single task of the executor at a time :
+ * the events of a listener are delivered in order and never concurrently, and a slow listener only
+ * lets its own mailbox grow.
+ * </p>
+ *
+ * @param <L> the type of the listeners
+ * @author antoine vianey
+ */
+public class EventDispatcher<L> {
+
+    private final List<Mailbox> mailboxes = new ArrayList<>();
+
+    /**
+     * @param log logs the exceptions thrown by the listeners
+     * @param listeners the listeners
+     * @param executor runs the tasks delivering the events
+     */
+    public EventDispatcher(Log log, Iterable<? extends L> listeners, Executor executor) {
+        for (L listener : listeners) {
+            mailboxes.add(new Mailbox(log, listener, executor));
+        }
+    }
+
+    public boolean isEmpty() {
+        return mailboxes.isEmpty();
+    }
+
+    /**
+     * @param event the event to deliver to every listener
+     */
+    public void dispatch(Consumer<? super L> event) {
+        for (Mailbox mailbox : mailboxes) {
+            mailbox.post(event);
+        }
+    }
+
+    /**
+     * Waits for the events dispatched so far to be delivered
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void flush() throws InterruptedException {
+        final CountDownLatch delivered = new CountDownLatch(mailboxes.size());
+        dispatch(listener -> delivered.countDown());
+        delivered.await();
+    }
+
+    private final class Mailbox implements Runnable {
+
+        private final Log log;
+        private final L listener;
+        private final Executor executor;
+        private final Queue<Consumer<? super L>> events = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Mailbox(Log log, L listener, Executor executor) {
+            this.log = log;
+            this.listener = listener;
+            this.executor = executor;
+        }
+
+        private void post(Consumer<? super L> event) {
+            events.add(event);
+            if (scheduled.compareAndSet(false, true)) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            do {
+                Consumer<? super L> event;
+                while ((event = events.poll()) != null) {
+                    try {
+                        event.accept(listener);
+                    } catch (RuntimeException e) {
+                        log.warn("Listener " + listener + " failed", e);
+                    }
+                }
+                scheduled.set(false);
+                // an event posted after the last poll but before the reset must not be left behind
+            } while (!events.isEmpty() && scheduled.compareAndSet(false, true));
+        }
+
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.util;
+
+import com.google.common.io.ByteSource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+
+import static com.google.common.io.Files.asByteSource;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Writes output files only when their content changes.
+ * <p>
+ * Outputs are staged next to their final location and compared with the existing file, first by size and then by content.
+ * An unchanged file is left untouched, keeping its last modified time for the tools processing the outputs downstream,
+ * while a changed file is replaced at once by renaming the staged file so that no truncated file is ever visible.
+ * </p>
+ *
+ * @author antoine vianey
+ */
+public final class OutputFiles {
+
+    private OutputFiles() {
+    }
+
+    /**
+     * Writes the given content unless the file already holds it
+     * @param file the output file
+     * @param content the content of the file
+     * @return true if the file was written, false if it was unchanged
+     * @throws IOException
+     */
+    public static boolean write(File file, byte[] content) throws IOException {
+        if (file.isFile() && file.length() == content.length && asByteSource(file).contentEquals(ByteSource.wrap(content))) {
+            return false;
+        }
+        final File staged = stage(file);
+        Files.write(staged.toPath(), content);
+        return replace(staged, file);
+    }
+
+    /**
+     * @param file the output file
+     * @return a new hidden file, in the directory of the output, to write the content of the output to
+     * @throws IOException
+     */
+    public static File stage(File file) throws IOException {
+        return File.createTempFile("." + file.getName() + "-", ".tmp", file.getAbsoluteFile().getParentFile());
+    }
+
+    /**
+     * Moves the staged file to the output file, unless they have the same content.
+     * The staged file is deleted in any case.
+     * @param staged the file returned by {@link #stage(File)}
+     * @param file the output file
+     * @return true if the file was replaced, false if it was unchanged
+     * @throws IOException
+     */
+    public static boolean replace(File staged, File file) throws IOException {
+        try {
+            if (file.isFile() && file.length() == staged.length() && asByteSource(file).contentEquals(asByteSource(staged))) {
+                return false;
+            }
+            try {
+                Files.move(staged.toPath(), file.toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(staged.toPath(), file.toPath(), REPLACE_EXISTING);
+            }
+            return true;
+        } finally {
+            Files.deleteIfExists(staged.toPath());
+        }
+    }
+
+}
@@ -6,22 +6,47 @@ import org.apache.commons.io.filefilter.IOFileFilter;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
 
+import static java.util.Comparator.comparing;
 import static org.apache.commons.io.FilenameUtils.getExtension;
 
+/**
+ * Parses qualified resources from the accepted files.
+ * This filter is thread safe and can be fed concurrently by a {@link QualifiedResourceWalker}.
+ * Resources are either collected or streamed to a consumer as soon as they are parsed.
+ */
 public class QualifiedResourceFilter implements FileFilter, IOFileFilter {
 
     private final Log log;
     private final String extension;
     private final QualifiedSVGResourceFactory qualifiedSVGResourceFactory;
-    private final Collection<QualifiedResource> resources = new ArrayList<>();
+    private final Queue<QualifiedResource> resources = new ConcurrentLinkedQueue<>();
+    private final Consumer<QualifiedResource> consumer;
 
     public QualifiedResourceFilter(Log log, QualifiedSVGResourceFactory qualifiedSVGResourceFactory, String extension) {
         this.log = log;
         this.qualifiedSVGResourceFactory = qualifiedSVGResourceFactory;
         this.extension = extension;
+        this.consumer = resources::add;
+    }
+
+    /**
+     * Streams accepted resources to the given consumer instead of collecting them.
+     * The consumer is called from the thread that found the file.
+     */
+    public QualifiedResourceFilter(Log log, QualifiedSVGResourceFactory qualifiedSVGResourceFactory, String extension, Consumer<QualifiedResource> consumer) {
+        this.log = log;
+        this.qualifiedSVGResourceFactory = qualifiedSVGResourceFactory;
+        this.extension = extension;
+        this.consumer = consumer;
     }
 
     @Override
@@ -31,21 +56,37 @@ public class QualifiedResourceFilter implements FileFilter, IOFileFilter {
 
     @Override
     public boolean accept(File file) {
-        if (file.isFile() && extension.equalsIgnoreCase(getExtension(file.getAbsolutePath()))) {
+        return accept(file, file.isFile());
+    }
+
+    public boolean accept(Path path, BasicFileAttributes attributes) {
+        return accept(path.toFile(), attributes.isRegularFile());
+    }
+
+    private boolean accept(File file, boolean isFile) {
+        final String path = file.getAbsolutePath();
+        if (isFile && extension.equalsIgnoreCase(getExtension(path))) {
+            final QualifiedResource resource;
             try {
-                resources.add(qualifiedSVGResourceFactory.fromSVGFile(file));
+                resource = qualifiedSVGResourceFactory.fromSVGFile(file);
             } catch (Exception e) {
-                log.warn("Invalid " + extension + " file : " + file.getAbsolutePath(), e);
+                log.warn("Invalid " + extension + " file : " + path, e);
                 return false;
             }
+            consumer.accept(resource);
         } else {
-            log.debug("+ skipping " + file.getAbsolutePath());
+            log.debug("+ skipping " + path);
             return false;
         }
         return true;
     }
 
+    /**
+     * @return the collected resources, sorted by path so that results do not depend on the discovery order
+     */
     public Collection<QualifiedResource> filteredResources() {
-        return resources;
+        List<QualifiedResource> sorted = new ArrayList<>(resources);
+        sorted.sort(comparing(File::getAbsolutePath));
+        return sorted;
     }
 }
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Walks input files and directories in parallel and streams each regular file found
+ * to a {@link QualifiedResourceFilter}.
+ * <p>
+ * Every root and every sub-directory is listed by its own fork/join task, so that
+ * independent trees are discovered concurrently. File attributes are read once per
+ * entry and handed over to the filter, which parses the qualified resource as soon
+ * as the file is found.
+ * </p>
+ * <p>
+ * Files of a directory are processed by their own tasks too, but only a bounded window
+ * of them is forked at once so that memory does not grow with the size of the directory.
+ * </p>
+ *
+ * @author antoine vianey
+ */
+public class QualifiedResourceWalker {
+
+    private final Log log;
+    private final ForkJoinPool pool;
+    private final int window;
+
+    public QualifiedResourceWalker(Log log, ForkJoinPool pool) {
+        this.log = log;
+        this.pool = pool;
+        this.window = 4 * pool.getParallelism();
+    }
+
+    /**
+     * Walks the given roots recursively and blocks until every file has been submitted to the filter.
+     * @param roots files or directories to walk
+     * @param filter the filter to which regular files are submitted
+     */
+    public void walk(final Iterable<File> roots, final QualifiedResourceFilter filter) {
+        final List<RecursiveAction> tasks = new ArrayList<>();
+        for (File root : roots) {
+            tasks.add(new PathTask(root.toPath(), filter));
+        }
+        if (!tasks.isEmpty()) {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }
+    }
+
+    private class PathTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path path;
+        private final QualifiedResourceFilter filter;
+
+        private PathTask(Path path, QualifiedResourceFilter filter) {
+            this.path = path;
+            this.filter = filter;
+        }
+
+        @Override
+        protected void compute() {
+            final BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (IOException e) {
+                log.debug("+ skipping " + path.toAbsolutePath());
+                return;
+            }
+            if (attributes.isDirectory()) {
+                walkDirectory();
+            } else {
+                filter.accept(path, attributes);
+            }
+        }
+
+        private void walkDirectory() {
+            final List<DirectoryTask> subDirectories = new ArrayList<>();
+            final Deque<FileTask> files = new ArrayDeque<>(window);
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(path)) {
+                for (Path entry : entries) {
+                    final BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                    } catch (IOException e) {
+                        log.warn("Unable to read " + entry.toAbsolutePath(), e);
+                        continue;
+                    }
+                    if (attributes.isDirectory()) {
+                        DirectoryTask task = new DirectoryTask(entry, filter);
+                        task.fork();
+                        subDirectories.add(task);
+                    } else {
+                        if (files.size() == window) {
+                            files.poll().join();
+                        }
+                        FileTask task = new FileTask(entry, attributes, filter);
+                        task.fork();
+                        files.add(task);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("Unable to list " + path.toAbsolutePath(), e);
+            }
+            for (FileTask task : files) {
+                task.join();
+            }
+            for (DirectoryTask task : subDirectories) {
+                task.join();
+            }
+        }
+
+    }
+
+    private class DirectoryTask extends PathTask {
+
+        private static final long serialVersionUID = 1L;
+
+        private DirectoryTask(Path path, QualifiedResourceFilter filter) {
+            super(path, filter);
+        }
+
+        @Override
+        protected void compute() {
+            // attributes were already read while listing the parent directory
+            super.walkDirectory();
+        }
+
+    }
+
+    private static class FileTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path path;
+        private final BasicFileAttributes attributes;
+        private final QualifiedResourceFilter filter;
+
+        private FileTask(Path path, BasicFileAttributes attributes, QualifiedResourceFilter filter) {
+            this.path = path;
+            this.attributes = attributes;
+            this.filter = filter;
+        }
+
+        @Override
+        protected void compute() {
+            filter.accept(path, attributes);
+        }
+
+    }
+
+}
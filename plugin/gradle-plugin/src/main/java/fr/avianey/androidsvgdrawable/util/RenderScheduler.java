@@ -0,0 +1,129 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Dispatches render units longest-processing-time-first.
+ * <p>
+ * Units are buffered in a priority queue ordered by decreasing predicted cost. {@link #drain()} renders
+ * them with every thread of the pool, the most expensive first : the long running units start early
+ * instead of finishing the build alone. Units are small descriptors of the renders, so that by default
+ * every unit waits for {@link #drain()} and the whole list is ordered.
+ * </p>
+ * <p>
+ * A window bounds the number of waiting units : when it is full, the thread submitting a unit renders the
+ * most expensive one. The longest-processing-time-first order then only applies within the window.
+ * </p>
+ *
+ * @author antoine vianey
+ */
+public class RenderScheduler {
+
+    private final ForkJoinPool pool;
+    private final int window;
+    private final PriorityQueue<Unit> units = new PriorityQueue<>();
+    private long submitted;
+
+    /**
+     * @param pool the pool to drain the units with, every unit waits for {@link #drain()}
+     */
+    public RenderScheduler(ForkJoinPool pool) {
+        this(pool, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param pool the pool to drain the units with
+     * @param window the maximum number of units waiting to be rendered
+     */
+    public RenderScheduler(ForkJoinPool pool, int window) {
+        this.pool = pool;
+        this.window = window;
+    }
+
+    /**
+     * Submits a unit, rendering the most expensive unit waiting if the window is full
+     * @param cost the predicted cost of the unit
+     * @param render renders the unit
+     */
+    public void submit(long cost, Runnable render) {
+        final Unit next;
+        synchronized (units) {
+            units.add(new Unit(cost, submitted++, render));
+            next = units.size() > window ? units.poll() : null;
+        }
+        if (next != null) {
+            next.render.run();
+        }
+    }
+
+    /**
+     * Renders the waiting units in parallel and blocks until every one of them has been rendered
+     */
+    public void drain() {
+        final List<RecursiveAction> workers = new ArrayList<>();
+        for (int i = 0; i < pool.getParallelism(); i++) {
+            workers.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    Unit unit;
+                    while ((unit = poll()) != null) {
+                        unit.render.run();
+                    }
+                }
+            });
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(workers);
+            }
+        });
+    }
+
+    private Unit poll() {
+        synchronized (units) {
+            return units.poll();
+        }
+    }
+
+    private static final class Unit implements Comparable<Unit> {
+
+        private final long cost;
+        private final long order;
+        private final Runnable render;
+
+        private Unit(long cost, long order, Runnable render) {
+            this.cost = cost;
+            this.order = order;
+            this.render = render;
+        }
+
+        @Override
+        public int compareTo(Unit other) {
+            // most expensive first, then in submission order
+            int c = Long.compare(other.cost, cost);
+            return c != 0 ? c : Long.compare(order, other.order);
+        }
+
+    }
+
+}
@@ -0,0 +1,517 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.util;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Items flow through stages connected by bounded queues, each stage being processed by its own workers.
+ * <p>
+ * A stage blocks when the queue of the next stage is full, so that no more than the capacity of the queues
+ * is buffered between stages. Items failing or stopped by a stage leave the pipeline at once.
+ * A worker interrupted cancels the pipeline : the items it holds and every item left in the queues fail,
+ * so that {@link #await()} always returns.
+ * Workers of I/O stages should run on {@link #newIoExecutor(String)}. CPU stages have no threads of their own :
+ * their items are processed by tasks of a {@link ForkJoinPool} shared with other pipelines, see
+ * {@link #pooledStage(String, ForkJoinPool, int, int, Action)}.
+ * </p>
+ *
+ * @param <T> the type of the items
+ * @author antoine vianey
+ */
+public class StagedPipeline<T> implements AutoCloseable {
+
+    private static final Object STOP = new Object();
+
+    /**
+     * Processes an item in a stage.
+     */
+    public interface Action<T> {
+        /**
+         * @param item the item to process
+         * @return true to hand the item over to the next stage, false if it is done
+         * @throws Exception to drop the item
+         */
+        boolean process(T item) throws Exception;
+    }
+
+    /**
+     * Notified when items leave the pipeline, from the threads of the stages.
+     */
+    public interface Listener<T> {
+        void completed(T item);
+        void failed(T item, Exception e);
+    }
+
+    private final Listener<T> listener;
+    private final List<Stage> stages = new ArrayList<>();
+    private final Set<ExecutorService> executors = new LinkedHashSet<>();
+    private final Object lock = new Object();
+    private int inFlight;
+    private volatile boolean cancelled;
+    private long start;
+    // statistics frozen when the pipeline is closed
+    private volatile List<StageStats> closedStats;
+
+    public StagedPipeline(Listener<T> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Appends a stage, before the pipeline is started
+     * @param name the name of the stage
+     * @param executor runs the workers of the stage, shut down when the pipeline is closed
+     * @param workers the number of workers
+     * @param capacity the capacity of the queue of the stage
+     * @param action processes the items
+     * @return this pipeline
+     */
+    public StagedPipeline<T> stage(String name, ExecutorService executor, int workers, int capacity, Action<T> action) {
+        stages.add(new Stage(stages.size(), name, executor, null, workers, capacity, action));
+        executors.add(executor);
+        return this;
+    }
+
+    /**
+     * Appends a stage which items are processed by tasks of a shared pool, before the pipeline is started.
+     * The stage holds no thread when its queue is empty and the pool bounds the threads of every pipeline.
+     * @param name the name of the stage
+     * @param pool runs the tasks of the stage, never shut down by the pipeline
+     * @param workers the maximum number of items of this pipeline processed at once
+     * @param capacity the capacity of the queue of the stage
+     * @param action processes the items
+     * @return this pipeline
+     */
+    public StagedPipeline<T> pooledStage(String name, ForkJoinPool pool, int workers, int capacity, Action<T> action) {
+        stages.add(new Stage(stages.size(), name, null, pool, workers, capacity, action));
+        return this;
+    }
+
+    /**
+     * Starts the workers of every stage
+     * @return this pipeline
+     */
+    public StagedPipeline<T> start() {
+        start = System.nanoTime();
+        for (final Stage stage : stages) {
+            if (stage.pool != null) {
+                continue;
+            }
+            for (int i = 0; i < stage.workers; i++) {
+                stage.executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        stage.work();
+                    }
+                });
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Submits an item to the first stage, blocking while its queue is full
+     * @param item the item to process
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void submit(T item) throws InterruptedException {
+        synchronized (lock) {
+            inFlight++;
+        }
+        try {
+            stages.get(0).put(item);
+        } catch (InterruptedException e) {
+            fail(item, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for every submitted item to leave the pipeline
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void await() throws InterruptedException {
+        synchronized (lock) {
+            while (inFlight > 0) {
+                lock.wait();
+            }
+        }
+    }
+
+    /**
+     * @return the statistics of each stage, as of now or as of the closing of the pipeline
+     */
+    public List<StageStats> getStats() {
+        final List<StageStats> closed = closedStats;
+        if (closed != null) {
+            return closed;
+        }
+        final long elapsed = System.nanoTime() - start;
+        final List<StageStats> stats = new ArrayList<>(stages.size());
+        for (Stage stage : stages) {
+            stats.add(new StageStats(stage.name, stage.workers, stage.capacity, stage.queue.size(), stage.maxDepth.get(),
+                    stage.processed.get(), stage.busy.get(), elapsed));
+        }
+        return Collections.unmodifiableList(stats);
+    }
+
+    /**
+     * Stops the workers once the items submitted so far left the pipeline, and shuts the executors down.
+     * The executors are shut down even if interrupted while waiting, their workers being interrupted then.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        boolean stopped = false;
+        try {
+            await();
+            closedStats = getStats();
+            for (Stage stage : stages) {
+                if (stage.pool != null) {
+                    continue;
+                }
+                for (int i = 0; i < stage.workers; i++) {
+                    stage.queue.put(STOP);
+                }
+            }
+            stopped = true;
+        } finally {
+            if (closedStats == null) {
+                closedStats = getStats();
+            }
+            for (ExecutorService executor : executors) {
+                if (stopped) {
+                    executor.shutdown();
+                } else {
+                    executor.shutdownNow();
+                }
+            }
+        }
+    }
+
+    /**
+     * Fails every queued item and the items handed over from now on
+     */
+    private void cancel() {
+        cancelled = true;
+        for (Stage stage : stages) {
+            stage.abandon();
+        }
+    }
+
+    /**
+     * The item leaves the pipeline without completing
+     */
+    private void fail(T item, Exception e) {
+        listener.failed(item, e);
+        done();
+    }
+
+    private void done() {
+        synchronized (lock) {
+            if (--inFlight == 0) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @param name the prefix of the thread names
+     * @return virtual threads when the JVM supports them (JDK 21+), platform threads otherwise
+     */
+    public static ExecutorService newIoExecutor(String name) {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(threadFactory(name));
+        }
+    }
+
+    private static ThreadFactory threadFactory(final String name) {
+        // workers inherit the class loader of the plugin, as the fork/join workers do
+        final ClassLoader classLoader = StagedPipeline.class.getClassLoader();
+        final AtomicInteger count = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, name + "-" + count.incrementAndGet());
+                thread.setContextClassLoader(classLoader);
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    private final class Stage {
+
+        private final int index;
+        private final String name;
+        private final ExecutorService executor;
+        private final ForkJoinPool pool;
+        private final int workers;
+        private final int capacity;
+        private final Action<T> action;
+        private final BlockingQueue<Object> queue;
+        private final AtomicInteger maxDepth = new AtomicInteger();
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong busy = new AtomicLong();
+        // tasks of a pooled stage
+        private final AtomicInteger running = new AtomicInteger();
+
+        private Stage(int index, String name, ExecutorService executor, ForkJoinPool pool, int workers, int capacity, Action<T> action) {
+            this.index = index;
+            this.name = name;
+            this.executor = executor;
+            this.pool = pool;
+            this.workers = workers;
+            this.capacity = capacity;
+            this.action = action;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void put(final Object item) throws InterruptedException {
+            if (cancelled && item != STOP) {
+                fail((T) item, new CancellationException("Pipeline cancelled"));
+                return;
+            }
+            // fork/join workers submitting items are compensated while blocked, other threads simply block
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                private boolean put;
+                @Override
+                public boolean block() throws InterruptedException {
+                    if (!put) {
+                        queue.put(item);
+                        put = true;
+                    }
+                    return true;
+                }
+                @Override
+                public boolean isReleasable() {
+                    return put || (put = queue.offer(item));
+                }
+            });
+            maxDepth.accumulateAndGet(queue.size(), Math::max);
+            if (cancelled) {
+                // cancelled while blocked, the queue may have been abandoned already
+                abandon();
+                return;
+            }
+            if (pool != null && tryStart()) {
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        drain();
+                    }
+                });
+            }
+        }
+
+        private boolean tryStart() {
+            int n;
+            while ((n = running.get()) < workers) {
+                if (running.compareAndSet(n, n + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Processes the items of a pooled stage until its queue is empty
+         */
+        @SuppressWarnings("unchecked")
+        private void drain() {
+            try {
+                while (true) {
+                    final Object next = queue.poll();
+                    if (next == null) {
+                        running.decrementAndGet();
+                        // an item queued before the decrement may have found every task running
+                        if (queue.isEmpty() || !tryStart()) {
+                            return;
+                        }
+                        continue;
+                    }
+                    process((T) next);
+                }
+            } catch (InterruptedException e) {
+                running.decrementAndGet();
+                cancel();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private void work() {
+            try {
+                Object next;
+                while ((next = queue.take()) != STOP) {
+                    process((T) next);
+                }
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * Processes an item and hands it over to the next stage, the item leaves the pipeline otherwise
+         * @throws InterruptedException if interrupted, once the item failed
+         */
+        private void process(T item) throws InterruptedException {
+            if (cancelled) {
+                fail(item, new CancellationException("Pipeline cancelled"));
+                return;
+            }
+            final long begin = System.nanoTime();
+            boolean forward;
+            try {
+                forward = action.process(item);
+            } catch (Exception e) {
+                fail(item, e);
+                if (e instanceof InterruptedException) {
+                    throw (InterruptedException) e;
+                }
+                return;
+            } finally {
+                busy.addAndGet(System.nanoTime() - begin);
+                processed.incrementAndGet();
+            }
+            if (forward && index + 1 < stages.size()) {
+                boolean handedOver = false;
+                try {
+                    stages.get(index + 1).put(item);
+                    handedOver = true;
+                } finally {
+                    if (!handedOver) {
+                        fail(item, new CancellationException("Interrupted while handing over to the next stage"));
+                    }
+                }
+            } else {
+                listener.completed(item);
+                done();
+            }
+        }
+
+        /**
+         * Fails the queued items, the workers waiting for items keep the stop signals
+         */
+        @SuppressWarnings("unchecked")
+        private void abandon() {
+            int stops = 0;
+            Object next;
+            while ((next = queue.poll()) != null) {
+                if (next == STOP) {
+                    stops++;
+                } else {
+                    fail((T) next, new CancellationException("Pipeline cancelled"));
+                }
+            }
+            for (int i = 0; i < stops; i++) {
+                queue.offer(STOP);
+            }
+        }
+
+    }
+
+    /**
+     * Statistics of a stage.
+     */
+    public static final class StageStats {
+
+        private final String name;
+        private final int workers;
+        private final int capacity;
+        private final int depth;
+        private final int maxDepth;
+        private final long processed;
+        private final long busyNanos;
+        private final long elapsedNanos;
+
+        private StageStats(String name, int workers, int capacity, int depth, int maxDepth,
+                           long processed, long busyNanos, long elapsedNanos) {
+            this.name = name;
+            this.workers = workers;
+            this.capacity = capacity;
+            this.depth = depth;
+            this.maxDepth = maxDepth;
+            this.processed = processed;
+            this.busyNanos = busyNanos;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public int getCapacity() {
+            return capacity;
+        }
+
+        /**
+         * @return the number of items waiting in the queue of the stage
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        public int getMaxDepth() {
+            return maxDepth;
+        }
+
+        public long getProcessed() {
+            return processed;
+        }
+
+        public long getBusyNanos() {
+            return busyNanos;
+        }
+
+        /**
+         * @return the share of time the workers of the stage spent processing items, between 0 and 1
+         */
+        public double getUtilisation() {
+            return elapsedNanos <= 0 ? 0 : Math.min(1, (double) busyNanos / ((double) elapsedNanos * workers));
+        }
+
+        @Override
+        public String toString() {
+            return name + " : " + processed + " items, " + workers + " workers, utilisation "
+                    + Math.round(getUtilisation() * 100) + "%, queue depth " + maxDepth + "/" + capacity + " max";
+        }
+
+    }
+
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.util;
+
+import com.google.common.io.ByteStreams;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves external entities without any network access.
+ * <p>
+ * SVG DTDs are served from the copies bundled with Batik, as listed in the <code>svg-catalog.properties</code>
+ * catalog, and kept in memory once read. Any other external entity resolves to an empty document.
+ * </p>
+ *
+ * @author antoine vianey
+ */
+public final class SvgEntityResolver implements EntityResolver {
+
+    public static final SvgEntityResolver INSTANCE = new SvgEntityResolver();
+
+    /**
+     * Maximum number of entity expansions allowed in a single document.
+     */
+    public static final int ENTITY_EXPANSION_LIMIT = 10_000;
+
+    private static final String ENTITY_EXPANSION_LIMIT_PROPERTY = "http://www.oracle.com/xml/jaxp/properties/entityExpansionLimit";
+    private static final byte[] EMPTY = new byte[0];
+
+    private final Properties catalog = new Properties();
+    private final ConcurrentMap<String, byte[]> entities = new ConcurrentHashMap<>();
+
+    private SvgEntityResolver() {
+        try (InputStream is = SvgEntityResolver.class.getResourceAsStream("svg-catalog.properties")) {
+            catalog.load(is);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates a namespace aware {@link DocumentBuilder} that resolves entities with this resolver
+     * and limits entity expansion.
+     * @return a new document builder
+     * @throws ParserConfigurationException if the builder cannot be configured
+     */
+    public static DocumentBuilder newDocumentBuilder() throws ParserConfigurationException {
+        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        try {
+            factory.setAttribute(ENTITY_EXPANSION_LIMIT_PROPERTY, String.valueOf(ENTITY_EXPANSION_LIMIT));
+        } catch (IllegalArgumentException e) {
+            // not a JDK parser : rely on its secure processing defaults
+        }
+        DocumentBuilder builder = factory.newDocumentBuilder();
+        builder.setEntityResolver(INSTANCE);
+        return builder;
+    }
+
+    @Override
+    public InputSource resolveEntity(String publicId, String systemId) throws IOException {
+        String resource = null;
+        if (publicId != null) {
+            resource = catalog.getProperty(publicId);
+        }
+        if (resource == null && systemId != null) {
+            resource = catalog.getProperty(systemId);
+        }
+        InputSource source = new InputSource(new ByteArrayInputStream(resource == null ? EMPTY : load(resource)));
+        source.setPublicId(publicId);
+        source.setSystemId(systemId);
+        return source;
+    }
+
+    private byte[] load(final String resource) throws IOException {
+        try {
+            return entities.computeIfAbsent(resource, r -> {
+                try (InputStream is = SvgEntityResolver.class.getResourceAsStream(r)) {
+                    if (is == null) {
+                        throw new IOException("Missing bundled entity " + r);
+                    }
+                    return ByteStreams.toByteArray(is);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.util;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Records spans of work and writes them as a Trace Event Format file, to be opened in chrome://tracing or Perfetto.
+ * <p>
+ * Complete spans are drawn on the track of the thread that recorded them, asynchronous spans (a unit waiting in a queue)
+ * on a track of their own. Timestamps are {@link System#nanoTime()} values, written relatively to the creation of the recorder.
+ * The {@link #DISABLED} recorder ignores every span, so that tracing costs nothing when it is not enabled.
+ * </p>
+ *
+ * @author antoine vianey
+ */
+public class TraceRecorder {
+
+    /**
+     * Ignores every span.
+     */
+    public static final TraceRecorder DISABLED = new TraceRecorder() {
+
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void complete(String name, String category, long startNanos, long endNanos) {
+        }
+
+        @Override
+        public void async(String name, String category, long id, long startNanos, long endNanos) {
+        }
+
+    };
+
+    private static final int PID = 1;
+
+    private final long origin = System.nanoTime();
+    private final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+    private final Map<Long, String> threads = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * Records a span of work done by the current thread
+     * @param name the name of the span
+     * @param category the category of the span
+     * @param startNanos the start of the span
+     * @param endNanos the end of the span
+     */
+    public void complete(String name, String category, long startNanos, long endNanos) {
+        final Thread thread = Thread.currentThread();
+        final long tid = thread.getId();
+        if (!threads.containsKey(tid)) {
+            threads.put(tid, thread.getName());
+        }
+        spans.add(new Span(name, category, tid, -1, startNanos, endNanos));
+    }
+
+    /**
+     * Records a span that is not bound to a thread, such as the time spent by a unit in a queue
+     * @param name the name of the span
+     * @param category the category of the span
+     * @param id identifies the unit, spans of the same unit are drawn on the same track
+     * @param startNanos the start of the span
+     * @param endNanos the end of the span
+     */
+    public void async(String name, String category, long id, long startNanos, long endNanos) {
+        spans.add(new Span(name, category, 0, id, startNanos, endNanos));
+    }
+
+    /**
+     * Writes the recorded spans
+     * @param file the trace file
+     * @throws IOException
+     */
+    public void write(File file) throws IOException {
+        Files.createDirectories(file.getAbsoluteFile().getParentFile().toPath());
+        try (JsonWriter json = new JsonWriter(Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8))) {
+            json.beginObject();
+            json.name("displayTimeUnit").value("ms");
+            json.name("traceEvents").beginArray();
+            for (Map.Entry<Long, String> thread : threads.entrySet()) {
+                json.beginObject()
+                        .name("name").value("thread_name")
+                        .name("ph").value("M")
+                        .name("pid").value(PID)
+                        .name("tid").value(thread.getKey())
+                        .name("args").beginObject().name("name").value(thread.getValue()).endObject()
+                        .endObject();
+            }
+            for (Span span : spans) {
+                if (span.id < 0) {
+                    json.beginObject()
+                            .name("name").value(span.name)
+                            .name("cat").value(span.category)
+                            .name("ph").value("X")
+                            .name("ts").value(micros(span.start))
+                            .name("dur").value(micros(span.end) - micros(span.start))
+                            .name("pid").value(PID)
+                            .name("tid").value(span.tid)
+                            .endObject();
+                } else {
+                    writeAsync(json, span, "b", span.start);
+                    writeAsync(json, span, "e", span.end);
+                }
+            }
+            json.endArray();
+            json.endObject();
+        }
+    }
+
+    private void writeAsync(JsonWriter json, Span span, String phase, long nanos) throws IOException {
+        json.beginObject()
+                .name("name").value(span.name)
+                .name("cat").value(span.category)
+                .name("ph").value(phase)
+                .name("id").value(span.id)
+                .name("ts").value(micros(nanos))
+                .name("pid").value(PID)
+                .name("tid").value(span.tid)
+                .endObject();
+    }
+
+    private long micros(long nanos) {
+        return (nanos - origin) / 1_000;
+    }
+
+    private static final class Span {
+
+        private final String name;
+        private final String category;
+        private final long tid;
+        private final long id;
+        private final long start;
+        private final long end;
+
+        private Span(String name, String category, long tid, long id, long start, long end) {
+            this.name = name;
+            this.category = category;
+            this.tid = tid;
+            this.id = id;
+            this.start = start;
+            this.end = end;
+        }
+
+    }
+
+}
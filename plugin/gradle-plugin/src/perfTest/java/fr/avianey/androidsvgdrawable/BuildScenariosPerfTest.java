@@ -0,0 +1,311 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import fr.avianey.androidsvgdrawable.corpus.SvgCorpusGenerator;
+import fr.avianey.androidsvgdrawable.util.TestKit;
+import org.apache.commons.io.FileUtils;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.BuildTask;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.AfterClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Measures whole Gradle builds of the plugin on generated corpora : configuration, up-to-date checks,
+ * snapshotting of the inputs and outputs and rendering.
+ * <p>
+ * Each corpus goes through the following scenarios, in order :
+ * clean build, no-op build, single svg edit, density list change, nine-patch config edit and mask edit.
+ * The wall time, the heap of the daemon and the number of renders of each scenario are written to
+ * <code>build/reports/perfTest/results.json</code>. Scenarios fail when they regress by more than
+ * <code>perf.tolerance</code> percent compared to the baseline, if any.
+ * </p>
+ * <pre>
+ * gradle :gradle-plugin:perfTest -Pperf.sizes=100,1000,10000
+ * gradle :gradle-plugin:perfTest -Pperf.record=true   # stores the results as the baseline
+ * </pre>
+ */
+@RunWith(Parameterized.class)
+public class BuildScenariosPerfTest {
+
+    private static final String TASK = "svgDrawable";
+    private static final String DEFAULT_DENSITIES = "mdpi,hdpi,xhdpi";
+    // wall time variations below this are noise, whatever the tolerance
+    private static final long NOISE_MILLIS = 250;
+
+    private static final File WORK_DIR = new File(System.getProperty("perf.workDir", "build/perfTest"));
+    private static final File RESULTS = new File(System.getProperty("perf.results", "build/reports/perfTest/results.json"));
+    private static final File BASELINE = new File(System.getProperty("perf.baseline", "src/perfTest/baseline.json"));
+    private static final double TOLERANCE = Double.parseDouble(System.getProperty("perf.tolerance", "20"));
+    private static final boolean RECORD = Boolean.parseBoolean(System.getProperty("perf.record", "false"));
+
+    private static final List<Result> MEASURES = Collections.synchronizedList(new ArrayList<Result>());
+
+    private final int size;
+
+    public BuildScenariosPerfTest(int size) {
+        this.size = size;
+    }
+
+    @Parameters(name = "{0} svg")
+    public static Collection<Object[]> data() {
+        List<Object[]> sizes = new ArrayList<>();
+        for (String size : Splitter.on(',').trimResults().omitEmptyStrings().split(System.getProperty("perf.sizes", "100"))) {
+            sizes.add(new Object[] {Integer.parseInt(size)});
+        }
+        return sizes;
+    }
+
+    @AfterClass
+    public static void writeResults() throws IOException {
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        RESULTS.getParentFile().mkdirs();
+        try (Writer writer = Files.newBufferedWriter(RESULTS.toPath(), StandardCharsets.UTF_8)) {
+            gson.toJson(MEASURES, writer);
+        }
+        if (RECORD) {
+            // keeps the baseline of the sizes that did not run
+            List<Result> baseline = new ArrayList<>(MEASURES);
+            for (Result result : readBaseline()) {
+                if (find(MEASURES, result.size, result.scenario) == null) {
+                    baseline.add(result);
+                }
+            }
+            BASELINE.getParentFile().mkdirs();
+            try (Writer writer = Files.newBufferedWriter(BASELINE.toPath(), StandardCharsets.UTF_8)) {
+                gson.toJson(baseline, writer);
+            }
+        }
+    }
+
+    @Test
+    public void scenarios() throws Exception {
+        final File project = new File(WORK_DIR, "corpus-" + size);
+        FileUtils.deleteDirectory(project);
+        SvgCorpusGenerator.Corpus corpus = new SvgCorpusGenerator(size)
+                .icons(size)
+                .masks(Math.max(1, size / 200))
+                .generate(new File(project, "corpus"));
+        write(new File(project, "settings.gradle"), "rootProject.name = 'corpus-" + size + "'\n");
+        write(new File(project, "gradle.properties"), "org.gradle.jvmargs=-Xmx2g\n");
+        write(new File(project, "build.gradle"), buildScript());
+
+        final GradleRunner runner = GradleRunner.create()
+                .withProjectDir(project)
+                .withTestKitDir(new File(WORK_DIR, "testkit"))
+                .withPluginClasspath(TestKit.pluginClasspath());
+
+        // starts and warms the daemon up
+        runner.withArguments("help").build();
+        runner.withArguments("clean").build();
+
+        final List<Result> scenarios = new ArrayList<>();
+        String densities = DEFAULT_DENSITIES;
+
+        Result clean = measure(runner, "clean build", densities);
+        assertEquals(TaskOutcome.SUCCESS, clean.outcome);
+        assertTrue(clean.renders >= size);
+        scenarios.add(clean);
+
+        Result noop = measure(runner, "no-op build", densities);
+        assertEquals(TaskOutcome.UP_TO_DATE, noop.outcome);
+        assertEquals(0, noop.renders);
+        scenarios.add(noop);
+
+        edit(corpus.getSvgFiles().get(0));
+        scenarios.add(measure(runner, "single svg edit", densities));
+
+        densities = DEFAULT_DENSITIES + ",xxhdpi";
+        scenarios.add(measure(runner, "density list change", densities));
+
+        edit(corpus.getNinePatchConfig());
+        scenarios.add(measure(runner, "nine-patch config edit", densities));
+
+        edit(corpus.getMaskFiles().get(0));
+        scenarios.add(measure(runner, "mask edit", densities));
+
+        for (Result scenario : scenarios) {
+            if (scenario != noop) {
+                assertEquals(scenario.scenario, TaskOutcome.SUCCESS, scenario.outcome);
+            }
+        }
+        MEASURES.addAll(scenarios);
+        if (!RECORD) {
+            compareWithBaseline(scenarios);
+        }
+    }
+
+    private Result measure(GradleRunner runner, String scenario, String densities) throws IOException {
+        final File projectDir = runner.getProjectDir();
+        final File metrics = new File(projectDir, "build/reports/svgdrawable/" + TASK + "/" + RenderMetrics.JSON_REPORT);
+        Files.deleteIfExists(metrics.toPath());
+
+        final long start = System.nanoTime();
+        final BuildResult build = runner.withArguments(TASK, "heap", "-Pdensities=" + densities, "--stacktrace").build();
+        final long wall = System.nanoTime() - start;
+
+        final Result result = new Result();
+        result.size = size;
+        result.scenario = scenario;
+        result.wallMillis = wall / 1_000_000;
+        final BuildTask task = build.task(":" + TASK);
+        result.outcome = task == null ? null : task.getOutcome();
+        result.renders = metrics.isFile() ? renders(metrics) : 0;
+        final Properties heap = new Properties();
+        try (Reader reader = Files.newBufferedReader(new File(projectDir, "build/perf/heap.properties").toPath(), StandardCharsets.ISO_8859_1)) {
+            heap.load(reader);
+        }
+        result.usedHeapMb = Long.parseLong(heap.getProperty("used")) >> 20;
+        result.peakHeapMb = Long.parseLong(heap.getProperty("peak")) >> 20;
+        System.out.println(String.format(Locale.ROOT, "%6d svg | %-22s | %8d ms | %5d renders | heap %5d MB, peak %5d MB | %s",
+                size, scenario, result.wallMillis, result.renders, result.usedHeapMb, result.peakHeapMb, result.outcome));
+        return result;
+    }
+
+    private void compareWithBaseline(List<Result> scenarios) throws IOException {
+        final List<Result> baseline = readBaseline();
+        final List<String> regressions = new ArrayList<>();
+        for (Result current : scenarios) {
+            Result reference = find(baseline, current.size, current.scenario);
+            if (reference == null) {
+                continue;
+            }
+            if (current.wallMillis > reference.wallMillis * (1 + TOLERANCE / 100) + NOISE_MILLIS) {
+                regressions.add(String.format(Locale.ROOT, "%s : %d ms instead of %d ms", current.scenario, current.wallMillis, reference.wallMillis));
+            }
+            if (current.peakHeapMb > reference.peakHeapMb * (1 + TOLERANCE / 100)) {
+                regressions.add(String.format(Locale.ROOT, "%s : peak heap of %d MB instead of %d MB", current.scenario, current.peakHeapMb, reference.peakHeapMb));
+            }
+        }
+        if (!regressions.isEmpty()) {
+            fail(size + " svg, regressions beyond " + TOLERANCE + "% :\n" + Joiner.on('\n').join(regressions));
+        }
+    }
+
+    private static List<Result> readBaseline() throws IOException {
+        if (!BASELINE.isFile()) {
+            return Collections.emptyList();
+        }
+        try (Reader reader = Files.newBufferedReader(BASELINE.toPath(), StandardCharsets.UTF_8)) {
+            List<Result> baseline = new Gson().fromJson(reader, new TypeToken<List<Result>>() {}.getType());
+            return baseline == null ? Collections.<Result>emptyList() : baseline;
+        }
+    }
+
+    private static Result find(List<Result> results, int size, String scenario) {
+        for (Result result : results) {
+            if (result.size == size && result.scenario.equals(scenario)) {
+                return result;
+            }
+        }
+        return null;
+    }
+
+    private static int renders(File metrics) throws IOException {
+        try (Reader reader = Files.newBufferedReader(metrics.toPath(), StandardCharsets.UTF_8)) {
+            return JsonParser.parseReader(reader).getAsJsonObject().getAsJsonArray("renders").size();
+        }
+    }
+
+    private static String buildScript() {
+        return "plugins {\n"
+                + "    id 'com.android.application'\n"
+                + "    id 'fr.avianey.androidsvgdrawable'\n"
+                + "}\n"
+                + "\n"
+                + "// peaks are measured from the configuration of the build on\n"
+                + "java.lang.management.ManagementFactory.memoryPoolMXBeans.each { it.resetPeakUsage() }\n"
+                + "\n"
+                + "tasks.register('clean', Delete) {\n"
+                + "    delete layout.buildDirectory\n"
+                + "}\n"
+                + "\n"
+                + "tasks.register('" + TASK + "', fr.avianey.androidsvgdrawable.plugin.SvgDrawableTask) {\n"
+                + "    from = files('corpus/" + SvgCorpusGenerator.SVG_DIRECTORY + "')\n"
+                + "    to = file('build/generated/res')\n"
+                + "    targetedDensities = (findProperty('densities') ?: '" + DEFAULT_DENSITIES + "').split(',') as List\n"
+                + "    ninePatchConfig = file('corpus/" + SvgCorpusGenerator.NINE_PATCH_CONFIG + "')\n"
+                + "    svgMaskFiles = files('corpus/" + SvgCorpusGenerator.MASK_DIRECTORY + "')\n"
+                + "    svgMaskResourceFiles = files('corpus/" + SvgCorpusGenerator.SVG_DIRECTORY + "')\n"
+                + "    svgMaskedSvgOutputDirectory = file('build/generated/masked')\n"
+                + "}\n"
+                + "\n"
+                + "tasks.register('heap') {\n"
+                + "    mustRunAfter '" + TASK + "'\n"
+                + "    doLast {\n"
+                + "        def peak = java.lang.management.ManagementFactory.memoryPoolMXBeans\n"
+                + "                .findAll { it.type == java.lang.management.MemoryType.HEAP }\n"
+                + "                .sum { it.peakUsage.used }\n"
+                + "        System.gc()\n"
+                + "        def runtime = Runtime.runtime\n"
+                + "        def heap = file('build/perf/heap.properties')\n"
+                + "        heap.parentFile.mkdirs()\n"
+                + "        heap.text = \"used=${runtime.totalMemory() - runtime.freeMemory()}\\npeak=${peak}\\n\"\n"
+                + "    }\n"
+                + "}\n";
+    }
+
+    private static void edit(File file) throws IOException {
+        String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        write(file, file.getName().endsWith(".json") ? content.replaceFirst("\\[", "[ ") : content.replace("</svg>", "<!-- edited --></svg>"));
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Measures of a scenario
+     */
+    static class Result {
+        int size;
+        String scenario;
+        long wallMillis;
+        long usedHeapMb;
+        long peakHeapMb;
+        int renders;
+        TaskOutcome outcome;
+    }
+
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import fr.avianey.androidsvgdrawable.batik.BandedPNGTranscoder;
+import fr.avianey.androidsvgdrawable.batik.CachingPNGTranscoder;
+import fr.avianey.androidsvgdrawable.batik.RendererContext;
+import org.apache.batik.bridge.BridgeContext;
+import org.apache.batik.bridge.GVTBuilder;
+import org.apache.batik.gvt.GraphicsNode;
+import org.apache.batik.transcoder.TranscoderInput;
+import org.apache.batik.transcoder.TranscoderOutput;
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.w3c.dom.svg.SVGDocument;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.apache.batik.transcoder.SVGAbstractTranscoder.KEY_HEIGHT;
+import static org.apache.batik.transcoder.SVGAbstractTranscoder.KEY_WIDTH;
+import static org.junit.Assert.*;
+
+public class BandedPNGTranscoderTest {
+
+    private static final String PATH_IN  = "./target/test-classes/" + BandedPNGTranscoderTest.class.getSimpleName() + "/";
+    private static final String PATH_OUT = "./target/generated/" + BandedPNGTranscoderTest.class.getSimpleName() + "/";
+
+    private static final int WIDTH = 333;
+    private static final int HEIGHT = 555;
+
+    @BeforeClass
+    public static void setup() {
+        new File(PATH_OUT).mkdirs();
+    }
+
+    @Test
+    public void bandsOnlyLargeOutputs() {
+        BandedPNGTranscoder transcoder = new BandedPNGTranscoder();
+        assertFalse(transcoder.isBanded(2048, 2048));
+        assertTrue(transcoder.isBanded(2048, 2049));
+        transcoder.addTranscodingHint(BandedPNGTranscoder.KEY_INDEXED, 8);
+        assertFalse(transcoder.isBanded(4096, 4096));
+        assertEquals(256, new BandedPNGTranscoder().getBandHeight(4096));
+    }
+
+    @Test
+    public void rendersSmallOutputsWithTheStockRenderer() throws Exception {
+        CachingPNGTranscoder transcoder = new CachingPNGTranscoder();
+        transcoder.addTranscodingHint(KEY_WIDTH, (float) WIDTH);
+        transcoder.addTranscodingHint(KEY_HEIGHT, (float) HEIGHT);
+        File stock = new File(PATH_OUT, "stock.png");
+        try (OutputStream os = new FileOutputStream(stock)) {
+            transcoder.transcode(new TranscoderInput(new File(PATH_IN, "splash.svg").toURI().toString()), new TranscoderOutput(os));
+        }
+        transcode("full.png", false, null);
+        assertArrayEquals(FileUtils.readFileToByteArray(stock), FileUtils.readFileToByteArray(new File(PATH_OUT, "full.png")));
+    }
+
+    @Test
+    public void rendersSamePixels() throws Exception {
+        BufferedImage full = transcode("full.png", false, null);
+        BufferedImage banded = transcode("banded.png", true, null);
+        // the stock renderer does not render tile per tile, antialiased pixels along the tiles differ
+        assertPixelsMostlyEqual(full, banded, 0.02);
+    }
+
+    @Test
+    public void rendersSamePixelsWithParallelTiles() throws Exception {
+        BufferedImage expected = transcode("banded.png", true, null);
+        assertPixelsEquals(expected, transcode("parallel.png", false, null, true));
+        assertPixelsEquals(expected, transcode("banded-parallel.png", true, null, true));
+    }
+
+    @Test
+    public void rendersSamePixelsWithParallelTilesAndEffects() throws Exception {
+        for (String svg : new String[] {"effects.svg", "shapes.svg"}) {
+            BufferedImage expected = transcode(svg, "banded-" + svg + ".png", true, null, false);
+            // concurrent tiles would only differ from time to time
+            for (int i = 0; i < 5; i++) {
+                assertPixelsEquals(expected, transcode(svg, "parallel-" + svg + ".png", false, null, true));
+                assertPixelsEquals(expected, transcode(svg, "banded-parallel-" + svg + ".png", true, null, true));
+            }
+        }
+    }
+
+    @Test
+    public void paintsTilesConcurrentlyWithoutEffects() throws Exception {
+        assertTrue(BandedPNGTranscoder.isConcurrentlyPaintable(gvt(new File(PATH_IN, "shapes.svg"))));
+        assertFalse(BandedPNGTranscoder.isConcurrentlyPaintable(gvt(new File(PATH_IN, "effects.svg"))));
+        assertFalse(BandedPNGTranscoder.isConcurrentlyPaintable(gvt(new File(PATH_IN, "splash.svg"))));
+        assertTrue(isConcurrentlyPaintable("<rect width='10' height='10' fill='#000' stroke='#fff'/>"));
+        assertFalse(isConcurrentlyPaintable("<filter id='f'><feGaussianBlur stdDeviation='1'/></filter>"
+                + "<g><rect width='10' height='10' filter='url(#f)'/></g>"));
+        assertFalse(isConcurrentlyPaintable("<mask id='m'><rect width='5' height='5' fill='#fff'/></mask>"
+                + "<rect width='10' height='10' mask='url(#m)'/>"));
+        assertFalse(isConcurrentlyPaintable("<pattern id='p' width='2' height='2' patternUnits='userSpaceOnUse'><rect width='1' height='1'/></pattern>"
+                + "<rect width='10' height='10' fill='url(#p)'/>"));
+        assertFalse(isConcurrentlyPaintable("<pattern id='p' width='2' height='2' patternUnits='userSpaceOnUse'><rect width='1' height='1'/></pattern>"
+                + "<rect width='10' height='10' fill='none' stroke='url(#p)'/>"));
+        assertFalse(isConcurrentlyPaintable("<marker id='m'><circle r='1'/></marker>"
+                + "<polyline points='0,0 5,5 10,0' fill='none' stroke='#000' marker-mid='url(#m)'/>"));
+    }
+
+    @Test
+    public void drawsNinePatchPerBand() throws Exception {
+        NinePatchBorders borders = new NinePatchBorders(WIDTH, HEIGHT);
+        borders.stretchX(10, 100);
+        borders.stretchY(0, HEIGHT);
+        borders.contentX(20, 50);
+        borders.contentY(40, 300);
+
+        // rendered tile per tile, as bands are
+        BufferedImage image = transcode("full.9.png", false, null, true);
+        BufferedImage expected = new BufferedImage(WIDTH + 2, HEIGHT + 2, TYPE_INT_ARGB);
+        Graphics g = expected.getGraphics();
+        g.drawImage(image, 1, 1, null);
+        borders.draw(g);
+        g.dispose();
+
+        assertPixelsEquals(expected, transcode("banded.9.png", true, borders));
+    }
+
+    private BufferedImage transcode(String name, boolean banded, NinePatchBorders borders) throws Exception {
+        return transcode(name, banded, borders, false);
+    }
+
+    private BufferedImage transcode(String name, boolean banded, NinePatchBorders borders, boolean parallel) throws Exception {
+        return transcode("splash.svg", name, banded, borders, parallel);
+    }
+
+    private BufferedImage transcode(String svg, String name, boolean banded, NinePatchBorders borders, boolean parallel) throws Exception {
+        BandedPNGTranscoder transcoder = new BandedPNGTranscoder();
+        transcoder.addTranscodingHint(BandedPNGTranscoder.KEY_PARALLEL_TILES, parallel);
+        transcoder.addTranscodingHint(KEY_WIDTH, (float) WIDTH);
+        transcoder.addTranscodingHint(KEY_HEIGHT, (float) HEIGHT);
+        transcoder.addTranscodingHint(BandedPNGTranscoder.KEY_BAND_THRESHOLD, banded ? 0 : Integer.MAX_VALUE);
+        transcoder.addTranscodingHint(BandedPNGTranscoder.KEY_BAND_HEIGHT, 50);
+        if (borders != null) {
+            transcoder.addTranscodingHint(BandedPNGTranscoder.KEY_NINE_PATCH_BORDERS, borders);
+        }
+        File output = new File(PATH_OUT, name);
+        try (OutputStream os = new FileOutputStream(output)) {
+            transcoder.transcode(new TranscoderInput(new File(PATH_IN, svg).toURI().toString()), new TranscoderOutput(os));
+        }
+        return read(output);
+    }
+
+    private static boolean isConcurrentlyPaintable(String content) throws IOException {
+        File svg = new File(PATH_OUT, "content.svg");
+        FileUtils.write(svg, "<svg xmlns='http://www.w3.org/2000/svg' width='10' height='10'>" + content + "</svg>", StandardCharsets.UTF_8);
+        return BandedPNGTranscoder.isConcurrentlyPaintable(gvt(svg));
+    }
+
+    private static GraphicsNode gvt(File svg) throws IOException {
+        RendererContext context = RendererContext.get();
+        SVGDocument document = context.createDocument(svg.toURI().toString());
+        BridgeContext ctx = context.createBridgeContext(160);
+        try {
+            return new GVTBuilder().build(ctx, document);
+        } finally {
+            context.release(ctx);
+        }
+    }
+
+    private static BufferedImage read(File file) throws IOException {
+        BufferedImage image = ImageIO.read(file);
+        assertNotNull(image);
+        return image;
+    }
+
+    private static void assertPixelsMostlyEqual(BufferedImage expected, BufferedImage actual, double maxShare) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        int different = 0;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if (expected.getRGB(x, y) != actual.getRGB(x, y)) {
+                    different++;
+                }
+            }
+        }
+        assertTrue(different + " different pixels", different <= maxShare * expected.getWidth() * expected.getHeight());
+    }
+
+    private static void assertPixelsEquals(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals("pixel (" + x + ", " + y + ")", expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import fr.avianey.androidsvgdrawable.util.TestKit;
+import org.apache.commons.io.FileUtils;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class BuildCacheTest {
+
+    private static final String PATH_IN = "./target/test-classes/" + BuildCacheTest.class.getSimpleName() + "/";
+    private static final String PATH_OUT = "./target/generated/" + BuildCacheTest.class.getSimpleName() + "/";
+
+    private File cache;
+
+    @Before
+    public void setup() throws IOException {
+        File out = new File(PATH_OUT).getCanonicalFile();
+        FileUtils.deleteDirectory(out);
+        cache = new File(out, "cache");
+    }
+
+    @Test
+    public void reusesOutputsFromAnotherDirectory() throws Exception {
+        File first = project("first");
+        BuildResult stored = build(first);
+        assertEquals(TaskOutcome.SUCCESS, stored.task(":svgToDrawablePng").getOutcome());
+
+        // same sources, checked out elsewhere
+        File second = project("second");
+        BuildResult restored = build(second);
+        assertEquals(TaskOutcome.FROM_CACHE, restored.task(":svgToDrawablePng").getOutcome());
+        File generated = new File(second, "build/generated/svgdrawable/svgToDrawablePng");
+        assertTrue(new File(generated, "drawable-mdpi/square.9.png").isFile());
+        assertTrue(new File(generated, "drawable-hdpi/square.9.png").isFile());
+        assertTrue(new File(second, "build/intermediates/svgdrawable/svgToDrawablePng/render-graph.properties").isFile());
+    }
+
+    private File project(String name) throws IOException {
+        File project = new File(PATH_OUT, name).getCanonicalFile();
+        FileUtils.copyFileToDirectory(new File(PATH_IN, "square-mdpi.svg"), new File(project, "svg"));
+        FileUtils.copyFileToDirectory(new File(PATH_IN, "9patch.json"), project);
+        FileUtils.write(new File(project, "settings.gradle"), "rootProject.name = 'build-cache'\n"
+                + "\n"
+                + "buildCache {\n"
+                + "    local {\n"
+                + "        directory = file('" + cache.getAbsolutePath().replace('\\', '/') + "')\n"
+                + "    }\n"
+                + "}\n", StandardCharsets.UTF_8);
+        FileUtils.write(new File(project, "build.gradle"), "plugins {\n"
+                + "    id 'com.android.application'\n"
+                + "    id 'fr.avianey.androidsvgdrawable'\n"
+                + "}\n"
+                + "\n"
+                + "tasks.register('svgToDrawablePng', fr.avianey.androidsvgdrawable.plugin.SvgDrawableTask) {\n"
+                + "    from = files('svg')\n"
+                + "    targetedDensities = ['mdpi', 'hdpi']\n"
+                + "    outputFormat = 'PNG'\n"
+                + "    ninePatchConfig = file('9patch.json')\n"
+                + "}\n", StandardCharsets.UTF_8);
+        return project;
+    }
+
+    private static BuildResult build(File project) throws Exception {
+        return GradleRunner.create()
+                .withProjectDir(project)
+                .withPluginClasspath(TestKit.pluginClasspath())
+                .withArguments("svgToDrawablePng", "--build-cache")
+                .build();
+    }
+
+}
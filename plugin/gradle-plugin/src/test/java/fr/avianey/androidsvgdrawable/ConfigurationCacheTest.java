@@ -0,0 +1,99 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import fr.avianey.androidsvgdrawable.util.TestKit;
+import org.apache.commons.io.FileUtils;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class ConfigurationCacheTest {
+
+    private static final String PATH_IN = "./target/test-classes/" + ConfigurationCacheTest.class.getSimpleName() + "/";
+    private static final String PATH_OUT = "./target/generated/" + ConfigurationCacheTest.class.getSimpleName() + "/";
+
+    private File project;
+    private GradleRunner runner;
+
+    @Before
+    public void setup() throws IOException, URISyntaxException {
+        project = new File(PATH_OUT).getCanonicalFile();
+        FileUtils.deleteDirectory(project);
+        FileUtils.copyFileToDirectory(new File(PATH_IN, "square-mdpi.svg"), new File(project, "svg"));
+        FileUtils.write(new File(project, "settings.gradle"), "rootProject.name = 'configuration-cache'\n", StandardCharsets.UTF_8);
+        FileUtils.write(new File(project, "build.gradle"), "plugins {\n"
+                + "    id 'com.android.application'\n"
+                + "    id 'fr.avianey.androidsvgdrawable'\n"
+                + "}\n"
+                + "\n"
+                + "tasks.register('svgToDrawablePng', fr.avianey.androidsvgdrawable.plugin.SvgDrawableTask) {\n"
+                + "    from = files('svg')\n"
+                + "    targetedDensities = ['mdpi', 'hdpi']\n"
+                + "    outputFormat = 'PNG'\n"
+                + "    reproducible = true\n"
+                + "}\n", StandardCharsets.UTF_8);
+        runner = GradleRunner.create()
+                .withProjectDir(project)
+                .withPluginClasspath(TestKit.pluginClasspath());
+    }
+
+    @Test
+    public void reusesConfigurationCache() {
+        BuildResult stored = runner.withArguments("svgToDrawablePng", "--configuration-cache").build();
+        assertEquals(TaskOutcome.SUCCESS, stored.task(":svgToDrawablePng").getOutcome());
+        assertTrue(stored.getOutput().contains("Configuration cache entry stored"));
+        File generated = new File(project, "build/generated/svgdrawable/svgToDrawablePng");
+        assertTrue(new File(generated, "drawable-mdpi/square.png").isFile());
+        assertTrue(new File(generated, "drawable-hdpi/square.png").isFile());
+        assertFalse(new File(generated, "drawable-xhdpi").exists());
+
+        BuildResult reused = runner.withArguments("svgToDrawablePng", "--configuration-cache").build();
+        assertTrue(reused.getOutput().contains("Reusing configuration cache"));
+        assertEquals(TaskOutcome.UP_TO_DATE, reused.task(":svgToDrawablePng").getOutcome());
+    }
+
+    @Test
+    public void runsWithoutConfigurationCacheForRenderListeners() throws IOException {
+        // the listener refers to the script, it can't be stored
+        FileUtils.write(new File(project, "build.gradle"), "\n"
+                + "def events = file('build/events.txt')\n"
+                + "\n"
+                + "tasks.named('svgToDrawablePng') {\n"
+                + "    renderListener(new fr.avianey.androidsvgdrawable.RenderListener() {\n"
+                + "        void generationFinished() {\n"
+                + "            events << 'finished\\n'\n"
+                + "        }\n"
+                + "    })\n"
+                + "}\n", StandardCharsets.UTF_8, true);
+        for (int run = 1; run <= 2; run++) {
+            BuildResult result = runner.withArguments("svgToDrawablePng", "--configuration-cache", "--rerun-tasks").build();
+            assertEquals(TaskOutcome.SUCCESS, result.task(":svgToDrawablePng").getOutcome());
+            assertFalse(result.getOutput().contains("Reusing configuration cache"));
+            assertEquals(run, FileUtils.readLines(new File(project, "build/events.txt"), StandardCharsets.UTF_8).size());
+        }
+    }
+
+}
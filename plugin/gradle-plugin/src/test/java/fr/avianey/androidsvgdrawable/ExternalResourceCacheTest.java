@@ -0,0 +1,88 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import fr.avianey.androidsvgdrawable.batik.CachingDocumentLoader;
+import fr.avianey.androidsvgdrawable.batik.DensityAwareUserAgent;
+import fr.avianey.androidsvgdrawable.batik.ExternalResourceCache;
+import fr.avianey.androidsvgdrawable.util.TestLogger;
+import fr.avianey.androidsvgdrawable.util.TestParameters;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+
+import static fr.avianey.androidsvgdrawable.Density.Value.hdpi;
+import static fr.avianey.androidsvgdrawable.Density.Value.mdpi;
+import static org.junit.Assert.*;
+
+public class ExternalResourceCacheTest {
+
+    private static final String PATH_IN  = "./target/test-classes/" + ExternalResourceCacheTest.class.getSimpleName() + "/";
+    private static final String PATH_OUT = "./target/generated/" + ExternalResourceCacheTest.class.getSimpleName() + "/";
+
+    @Before
+    public void setup() {
+        ExternalResourceCache.get().invalidateAll();
+    }
+
+    @Test
+    public void copiesCachedDocuments() throws Exception {
+        String uri = new File(PATH_IN, "common.svg").toURI().toString();
+        CachingDocumentLoader loader = new CachingDocumentLoader(new DensityAwareUserAgent(160));
+        assertNull(ExternalResourceCache.get().checkCache(uri));
+        Document document = loader.loadDocument(uri + "#shape");
+        assertSame(document, loader.loadDocument(uri));
+        assertNotNull(ExternalResourceCache.get().checkCache(uri));
+
+        Document copy = new CachingDocumentLoader(new DensityAwareUserAgent(160)).loadDocument(uri);
+        assertNotSame(document, copy);
+        assertNotNull(copy.getElementById("shape"));
+    }
+
+    @Test
+    public void reloadsModifiedDocuments() throws Exception {
+        File common = new File(PATH_OUT, "common.svg");
+        FileUtils.copyFile(new File(PATH_IN, "common.svg"), common);
+        String uri = common.toURI().toString();
+        new CachingDocumentLoader(new DensityAwareUserAgent(160)).loadDocument(uri);
+        assertNotNull(ExternalResourceCache.get().checkCache(uri));
+        assertTrue(common.setLastModified(common.lastModified() + 2000));
+        assertNull(ExternalResourceCache.get().checkCache(uri));
+    }
+
+    @Test
+    public void rendersExternalReferences() throws Exception {
+        SvgDrawablePlugin plugin = new SvgDrawablePlugin(new TestParameters(), new TestLogger());
+        QualifiedResource svg = plugin.getQualifiedSVGResourceFactory().fromSVGFile(new File(PATH_IN, "use-mdpi.svg"));
+        for (Density.Value density : new Density.Value[] {mdpi, hdpi}) {
+            File output = new File(PATH_OUT, density.name());
+            output.mkdirs();
+            plugin.transcode(svg, density, output, null);
+            File png = new File(output, "use.png");
+            BufferedImage image = ImageIO.read(png);
+            assertEquals(0xff00ff00, image.getRGB(0, 0));
+            assertEquals(0xff00ff00, image.getRGB(image.getWidth() - 1, image.getHeight() - 1));
+            assertEquals(0, image.getRGB(image.getWidth() - 1, 0) >>> 24);
+        }
+        assertNotNull(ExternalResourceCache.get().checkCache(new File(PATH_IN, "common.svg").toURI().toString()));
+    }
+
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import fr.avianey.androidsvgdrawable.util.TestLogger;
+import fr.avianey.androidsvgdrawable.util.TestParameters;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static fr.avianey.androidsvgdrawable.Density.Value.mdpi;
+import static org.junit.Assert.*;
+
+public class JfrEventsTest {
+
+    private static final String PATH_IN  = "./target/test-classes/" + JfrEventsTest.class.getSimpleName() + "/";
+    private static final String PATH_OUT = "./target/generated/" + JfrEventsTest.class.getSimpleName() + "/";
+
+    private static final String RENDER = "fr.avianey.androidsvgdrawable.Render";
+    private static final String NINE_PATCH = "fr.avianey.androidsvgdrawable.NinePatch";
+    private static final String MASK_GENERATION = "fr.avianey.androidsvgdrawable.MaskGeneration";
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        FileUtils.deleteDirectory(new File(PATH_OUT));
+        new File(PATH_OUT).mkdirs();
+    }
+
+    @Test
+    public void recordsEvents() throws Exception {
+        TestParameters parameters = new TestParameters();
+        parameters.from = Collections.singletonList(new File(PATH_IN));
+        parameters.to = new File(PATH_OUT, "res");
+        parameters.targetedDensities = new Density.Value[] {mdpi};
+        parameters.ninePatchConfig = new File(PATH_IN, "simple_square.json");
+        parameters.svgMaskedSvgOutputDirectory = new File(PATH_OUT, "masked");
+
+        final Path dump = new File(PATH_OUT, "recording.jfr").toPath();
+        try (Recording recording = new Recording()) {
+            for (String event : new String[] {RENDER, NINE_PATCH, MASK_GENERATION}) {
+                recording.enable(event).withThreshold(Duration.ZERO);
+            }
+            recording.start();
+            new SvgDrawablePlugin(parameters, new TestLogger()).execute();
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> renders = new ArrayList<>();
+        List<RecordedEvent> ninePatches = new ArrayList<>();
+        List<RecordedEvent> masks = new ArrayList<>();
+        for (RecordedEvent event : RecordingFile.readAllEvents(dump)) {
+            switch (event.getEventType().getName()) {
+                case RENDER:
+                    renders.add(event);
+                    break;
+                case NINE_PATCH:
+                    ninePatches.add(event);
+                    break;
+                case MASK_GENERATION:
+                    masks.add(event);
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        // simple_square, square_yellow and the masked square_yellow
+        assertEquals(3, renders.size());
+        for (RecordedEvent render : renders) {
+            assertEquals("mdpi", render.getString("density"));
+            assertEquals("PNG", render.getString("format"));
+            assertTrue(render.getLong("bytesIn") > 0);
+            assertTrue(render.getLong("bytesOut") > 0);
+            assertTrue(render.getInt("width") > 0);
+            assertTrue(render.getDuration("rasterizeTime").toNanos() > 0);
+            assertTrue(render.getDuration("writeTime").toNanos() > 0);
+            assertFalse(render.getBoolean("metadataCached"));
+        }
+
+        assertEquals(1, ninePatches.size());
+        assertTrue(ninePatches.get(0).getString("file").endsWith("simple_square-mdpi.svg"));
+
+        assertEquals(1, masks.size());
+        assertTrue(masks.get(0).getString("mask").endsWith("squaremask-mdpi.svgmask"));
+        assertEquals(1, masks.get(0).getInt("generated"));
+    }
+
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MemoryBudgetTest {
+
+    @Test
+    public void estimatesRasters() {
+        Rectangle bounds = new Rectangle(0, 0, 100, 10);
+        assertEquals(100 * 10 * 4 * 2, MemoryBudget.estimate(bounds, OutputFormat.PNG, 0, false));
+        assertEquals(100 * 10 * 4 * 5, MemoryBudget.estimate(bounds, OutputFormat.PNG, 0, true));
+    }
+
+    @Test
+    public void estimatesJpgWithoutAlpha() {
+        Rectangle bounds = new Rectangle(0, 0, 100, 10);
+        assertEquals(100 * 10 * (4 + 3), MemoryBudget.estimate(bounds, OutputFormat.JPG, 0, false));
+        // no nine-patch for JPG outputs
+        assertEquals(100 * 10 * (4 + 3), MemoryBudget.estimate(bounds, OutputFormat.JPG, 0, true));
+    }
+
+    @Test
+    public void estimatesOneBand() {
+        Rectangle bounds = new Rectangle(0, 0, 1000, 5000);
+        assertEquals(1000 * 64 * 4 * 2, MemoryBudget.estimate(bounds, OutputFormat.PNG, 64, false));
+        assertEquals(1002 * 64 * 4 * 2, MemoryBudget.estimate(bounds, OutputFormat.PNG, 64, true));
+        // a single band
+        assertEquals(1000 * 5000 * 4 * 2, MemoryBudget.estimate(bounds, OutputFormat.PNG, 10000, false));
+    }
+
+    @Test
+    public void admitsWithinBudget() throws InterruptedException {
+        final MemoryBudget budget = new MemoryBudget(10 * 1024);
+        MemoryBudget.Reservation first = budget.acquire(6 * 1024);
+        final CountDownLatch admitted = new CountDownLatch(1);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try (MemoryBudget.Reservation second = budget.acquire(6 * 1024)) {
+                    admitted.countDown();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        thread.start();
+        assertFalse(admitted.await(200, TimeUnit.MILLISECONDS));
+        first.close();
+        assertTrue(admitted.await(5, TimeUnit.SECONDS));
+        thread.join();
+    }
+
+    @Test
+    public void serializesOversizedRenders() throws InterruptedException {
+        final MemoryBudget budget = new MemoryBudget(10 * 1024);
+        assertTrue(budget.exceeds(1L << 30));
+        MemoryBudget.Reservation oversized = budget.acquire(1L << 30);
+        final CountDownLatch admitted = new CountDownLatch(1);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try (MemoryBudget.Reservation small = budget.acquire(1)) {
+                    admitted.countDown();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        thread.start();
+        assertFalse(admitted.await(200, TimeUnit.MILLISECONDS));
+        oversized.close();
+        oversized.close();
+        assertTrue(admitted.await(5, TimeUnit.SECONDS));
+        thread.join();
+        // released once only
+        try (MemoryBudget.Reservation all = budget.acquire(10 * 1024)) {
+            assertFalse(budget.exceeds(10 * 1024));
+        }
+    }
+
+    @Test
+    public void compensatesWaitingWorkers() throws Exception {
+        final MemoryBudget budget = new MemoryBudget(10 * 1024);
+        final ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            MemoryBudget.Reservation all = budget.acquire(10 * 1024);
+            ForkJoinTask<?> waiting = pool.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws InterruptedException {
+                    budget.acquire(1024).close();
+                    return null;
+                }
+            });
+            // the only worker waits for the budget, another one runs the next task
+            assertEquals("rendered", pool.submit(new Callable<String>() {
+                @Override
+                public String call() {
+                    return "rendered";
+                }
+            }).get(5, TimeUnit.SECONDS));
+            all.close();
+            waiting.get(5, TimeUnit.SECONDS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void interruptsWaitingRenders() throws Exception {
+        final MemoryBudget budget = new MemoryBudget(10 * 1024);
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        try (MemoryBudget.Reservation all = budget.acquire(10 * 1024)) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try (MemoryBudget.Reservation small = budget.acquire(1)) {
+                        fail();
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                }
+            });
+            thread.start();
+            thread.interrupt();
+            assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+            thread.join();
+        }
+    }
+
+}
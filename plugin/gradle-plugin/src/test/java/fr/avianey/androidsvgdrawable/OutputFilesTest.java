@@ -0,0 +1,115 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import fr.avianey.androidsvgdrawable.util.OutputFiles;
+import fr.avianey.androidsvgdrawable.util.TestLogger;
+import fr.avianey.androidsvgdrawable.util.TestParameters;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static fr.avianey.androidsvgdrawable.Density.Value.mdpi;
+import static fr.avianey.androidsvgdrawable.Density.Value.xxxhdpi;
+import static org.junit.Assert.*;
+
+public class OutputFilesTest {
+
+    private static final String PATH_IN  = "./target/test-classes/" + OutputFilesTest.class.getSimpleName() + "/";
+    private static final String PATH_OUT = "./target/generated/" + OutputFilesTest.class.getSimpleName() + "/";
+
+    // far enough in the past to notice any rewrite
+    private static final long LAST_MODIFIED = 1_000_000_000_000L;
+
+    @Before
+    public void setup() throws Exception {
+        FileUtils.deleteDirectory(new File(PATH_OUT));
+        new File(PATH_OUT).mkdirs();
+    }
+
+    @Test
+    public void writesChangedContentOnly() throws Exception {
+        File file = new File(PATH_OUT, "file.png");
+        assertTrue(OutputFiles.write(file, bytes("content")));
+        assertTrue(file.setLastModified(LAST_MODIFIED));
+
+        assertFalse(OutputFiles.write(file, bytes("content")));
+        assertEquals(LAST_MODIFIED, file.lastModified());
+
+        // same size, other content
+        assertTrue(OutputFiles.write(file, bytes("CONTENT")));
+        assertEquals("CONTENT", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        assertTrue(OutputFiles.write(file, bytes("longer content")));
+        assertEquals("longer content", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+
+        // no staged file left behind
+        assertArrayEquals(new String[] {"file.png"}, new File(PATH_OUT).list());
+    }
+
+    @Test
+    public void replacesWithStagedFile() throws Exception {
+        File file = new File(PATH_OUT, "file.png");
+        File staged = OutputFiles.stage(file);
+        assertEquals(file.getAbsoluteFile().getParentFile(), staged.getParentFile());
+        assertTrue(staged.getName().startsWith("."));
+        Files.write(staged.toPath(), bytes("content"));
+        assertTrue(OutputFiles.replace(staged, file));
+        assertFalse(staged.exists());
+        assertTrue(file.setLastModified(LAST_MODIFIED));
+
+        staged = OutputFiles.stage(file);
+        Files.write(staged.toPath(), bytes("content"));
+        assertFalse(OutputFiles.replace(staged, file));
+        assertFalse(staged.exists());
+        assertEquals(LAST_MODIFIED, file.lastModified());
+    }
+
+    @Test
+    public void keepsUnchangedOutputs() throws Exception {
+        TestParameters parameters = new TestParameters();
+        parameters.from = Collections.singletonList(new File(PATH_IN));
+        parameters.to = new File(PATH_OUT, "res");
+        // large is streamed to its file at xxxhdpi
+        parameters.targetedDensities = new Density.Value[] {mdpi, xxxhdpi};
+        parameters.svgMaskFiles = Collections.emptyList();
+        new SvgDrawablePlugin(parameters, new TestLogger()).execute();
+        File[] outputs = {
+                new File(parameters.to, "drawable-mdpi/square.png"),
+                new File(parameters.to, "drawable-xxxhdpi/square.png"),
+                new File(parameters.to, "drawable-mdpi/large.png"),
+                new File(parameters.to, "drawable-xxxhdpi/large.png")
+        };
+        for (File output : outputs) {
+            assertTrue(output.setLastModified(LAST_MODIFIED));
+        }
+
+        new SvgDrawablePlugin(parameters, new TestLogger()).execute();
+        for (File output : outputs) {
+            assertEquals(output.getName(), LAST_MODIFIED, output.lastModified());
+            assertEquals(2, output.getParentFile().list().length);
+        }
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import com.google.common.collect.ImmutableList;
+import fr.avianey.androidsvgdrawable.util.QualifiedResourceFilter;
+import fr.avianey.androidsvgdrawable.util.QualifiedResourceWalker;
+import fr.avianey.androidsvgdrawable.util.TestLogger;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class QualifiedResourceWalkerTest {
+
+    private static final String PATH_IN  = "./target/test-classes/" + QualifiedResourceWalkerTest.class.getSimpleName() + "/";
+
+    private static ForkJoinPool pool;
+    private static QualifiedSVGResourceFactory qualifiedSVGResourceFactory;
+
+    @BeforeClass
+    public static void setup() {
+        pool = new ForkJoinPool(4);
+        qualifiedSVGResourceFactory = new QualifiedSVGResourceFactory(new TestLogger(), BoundsType.sensitive);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void walksDirectoriesAndFiles() {
+        QualifiedResourceFilter filter = new QualifiedResourceFilter(new TestLogger(), qualifiedSVGResourceFactory, "svg");
+        new QualifiedResourceWalker(new TestLogger(), pool).walk(ImmutableList.of(
+                new File(PATH_IN, "tree"),
+                new File(PATH_IN, "single/icon_e-xhdpi.svg"),
+                new File(PATH_IN, "missing")
+        ), filter);
+        List<String> names = new ArrayList<>();
+        for (QualifiedResource resource : filter.filteredResources()) {
+            names.add(resource.getName());
+        }
+        assertEquals(ImmutableList.of("icon_e", "icon_c", "icon_a", "icon_d"), names);
+    }
+
+    @Test
+    public void streamsResources() {
+        final AtomicInteger count = new AtomicInteger();
+        QualifiedResourceFilter filter = new QualifiedResourceFilter(new TestLogger(), qualifiedSVGResourceFactory, "svg",
+                new Consumer<QualifiedResource>() {
+                    @Override
+                    public void accept(QualifiedResource resource) {
+                        count.incrementAndGet();
+                    }
+                });
+        new QualifiedResourceWalker(new TestLogger(), pool).walk(ImmutableList.of(new File(PATH_IN, "tree")), filter);
+        assertEquals(3, count.get());
+        assertEquals(0, filter.filteredResources().size());
+    }
+
+    @Test
+    public void sharesQualifiers() throws Exception {
+        QualifiedResource a = qualifiedSVGResourceFactory.fromSVGFile(new File(PATH_IN, "tree/a/icon_a-mdpi.svg"));
+        QualifiedResource e = qualifiedSVGResourceFactory.fromSVGFile(new File(PATH_IN, "single/icon_e-xhdpi.svg"));
+        QualifiedResource same = qualifiedSVGResourceFactory.fromSVGFile(new File(PATH_IN, "tree/a/icon_a-mdpi.svg"));
+        assertSame(a.getTypedQualifiers(), same.getTypedQualifiers());
+        assertSame(a.getDensity(), same.getDensity());
+        assertSame(a.getName(), same.getName());
+        assertEquals(a.getBounds(), e.getBounds());
+    }
+
+    @Test
+    public void emptyRoots() {
+        QualifiedResourceFilter filter = new QualifiedResourceFilter(new TestLogger(), qualifiedSVGResourceFactory, "svg");
+        new QualifiedResourceWalker(new TestLogger(), pool).walk(ImmutableList.<File>of(), filter);
+        assertEquals(0, filter.filteredResources().size());
+    }
+
+}
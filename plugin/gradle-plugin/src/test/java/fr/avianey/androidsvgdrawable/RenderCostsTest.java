@@ -0,0 +1,91 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import fr.avianey.androidsvgdrawable.util.TestLogger;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.io.File;
+
+import static fr.avianey.androidsvgdrawable.Density.Value.mdpi;
+import static fr.avianey.androidsvgdrawable.Density.Value.xxxhdpi;
+import static org.junit.Assert.*;
+
+public class RenderCostsTest {
+
+    private static final String PATH_IN  = "./target/test-classes/" + RenderCostsTest.class.getSimpleName() + "/";
+    private static final String PATH_OUT = "./target/generated/" + RenderCostsTest.class.getSimpleName() + "/";
+
+    @BeforeClass
+    public static void setup() {
+        new File(PATH_OUT).mkdirs();
+    }
+
+    @Test
+    public void scansComplexity() throws Exception {
+        SvgComplexity complexity = SvgComplexity.scan(new File(PATH_IN, "complex-mdpi.svg"));
+        assertEquals(13, complexity.getNodes());
+        assertEquals(1, complexity.getFilters());
+        assertEquals(1, complexity.getMasks());
+        assertEquals(2, complexity.getGradients());
+        assertEquals(1, complexity.getTexts());
+        assertTrue(complexity.getWeight() > SvgComplexity.EMPTY.getWeight());
+    }
+
+    @Test
+    public void largerAndMoreComplexCostsMore() {
+        SvgComplexity plain = new SvgComplexity(2, 0, 0, 0, 0);
+        SvgComplexity filtered = new SvgComplexity(2, 1, 0, 0, 0);
+        Rectangle small = new Rectangle(48, 48);
+        Rectangle large = new Rectangle(192, 192);
+        RenderCosts costs = RenderCosts.load(new TestLogger(), null);
+        assertTrue(costs.predict("a", RenderCosts.weight(large, plain)) > costs.predict("a", RenderCosts.weight(small, plain)));
+        assertTrue(RenderCosts.weight(small, filtered) > RenderCosts.weight(small, plain));
+    }
+
+    @Test
+    public void refinesPredictionsWithHistory() throws Exception {
+        File svg = new File(PATH_IN, "complex-mdpi.svg");
+        File history = new File(PATH_OUT, "history.properties");
+        history.delete();
+        String key = RenderCosts.key(svg, xxxhdpi);
+        String unknown = RenderCosts.key(svg, mdpi);
+
+        RenderCosts first = RenderCosts.load(new TestLogger(), history);
+        first.record(key, "complex (xxxhdpi)", 2.0, first.predict(key, 2.0), 500);
+        first.record(RenderCosts.key(new File(PATH_IN, "deleted-mdpi.svg"), mdpi), "deleted (mdpi)", 1.0, 1, 700);
+        first.report();
+        first.save();
+        assertTrue(history.isFile());
+
+        RenderCosts second = RenderCosts.load(new TestLogger(), history);
+        // known unit, scaled by its weight
+        assertEquals(500, second.predict(key, 2.0));
+        assertEquals(1000, second.predict(key, 4.0));
+        // unknown unit, calibrated on the history : 1200 ms for 3 weighted megapixels
+        assertEquals(400, second.predict(unknown, 1.0));
+        second.record(key, "complex (xxxhdpi)", 2.0, 500, 400);
+        second.save();
+
+        RenderCosts third = RenderCosts.load(new TestLogger(), history);
+        assertEquals(400, third.predict(key, 2.0));
+        // deleted files are forgotten : 400 ms for 2 weighted megapixels
+        assertEquals(200, third.predict(unknown, 1.0));
+    }
+
+}
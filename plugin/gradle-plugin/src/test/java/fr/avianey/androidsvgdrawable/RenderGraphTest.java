@@ -0,0 +1,210 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import fr.avianey.androidsvgdrawable.util.TestLogger;
+import fr.avianey.androidsvgdrawable.util.TestParameters;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import static fr.avianey.androidsvgdrawable.Density.Value.hdpi;
+import static fr.avianey.androidsvgdrawable.Density.Value.mdpi;
+import static fr.avianey.androidsvgdrawable.Density.Value.xhdpi;
+import static org.junit.Assert.*;
+
+public class RenderGraphTest {
+
+    private static final String PATH_IN  = "./target/test-classes/" + RenderGraphTest.class.getSimpleName() + "/";
+    private static final String PATH_OUT = "./target/generated/" + RenderGraphTest.class.getSimpleName() + "/";
+
+    private final File svg = new File(PATH_OUT, "svg");
+    private final File res = new File(PATH_OUT, "res");
+    private final File images = new File(PATH_OUT, "images");
+    private TestParameters parameters;
+
+    @Before
+    public void setup() throws Exception {
+        FileUtils.deleteDirectory(new File(PATH_OUT));
+        FileUtils.copyFileToDirectory(new File(PATH_IN, "square-mdpi.svg"), svg);
+        FileUtils.copyFileToDirectory(new File(PATH_IN, "framed-mdpi.svg"), svg);
+        FileUtils.copyDirectory(new File(PATH_IN, "images"), images);
+        parameters = new TestParameters();
+        parameters.from = Collections.singletonList(svg);
+        parameters.to = res;
+        parameters.targetedDensities = new Density.Value[] {mdpi, hdpi};
+        parameters.svgMaskFiles = Collections.emptyList();
+        parameters.renderGraphFile = new File(PATH_OUT, "render-graph.properties");
+    }
+
+    @Test
+    public void rendersOnlyChangedOutputs() throws Exception {
+        assertEquals(ImmutableSet.of("framed@mdpi", "framed@hdpi", "square@mdpi", "square@hdpi"), run().rendered);
+
+        Recorder noop = run();
+        assertTrue(noop.rendered.isEmpty());
+        assertEquals(4, noop.upToDate.size());
+
+        // edited svg
+        edit(new File(svg, "square-mdpi.svg"), "#ff0000", "#00ffff");
+        assertEquals(ImmutableSet.of("square@mdpi", "square@hdpi"), run().rendered);
+
+        // edited file referenced by a svg
+        edit(new File(images, "frame.svg"), "#0000ff", "#ff00ff");
+        assertEquals(ImmutableSet.of("framed@mdpi", "framed@hdpi"), run().rendered);
+
+        // output deleted by hand
+        assertTrue(new File(res, "drawable-hdpi/framed.png").delete());
+        assertEquals(ImmutableSet.of("framed@hdpi"), run().rendered);
+
+        // added density
+        parameters.targetedDensities = new Density.Value[] {mdpi, hdpi, xhdpi};
+        assertEquals(ImmutableSet.of("framed@xhdpi", "square@xhdpi"), run().rendered);
+    }
+
+    @Test
+    public void rendersRenamedDensities() throws Exception {
+        run();
+
+        // same content, rendered from another density
+        assertTrue(new File(svg, "square-mdpi.svg").renameTo(new File(svg, "square-hdpi.svg")));
+        assertEquals(ImmutableSet.of("square@mdpi", "square@hdpi"), run().rendered);
+        assertTrue(run().rendered.isEmpty());
+    }
+
+    @Test
+    public void deletesStaleOutputs() throws Exception {
+        parameters.targetedDensities = new Density.Value[] {mdpi, hdpi, xhdpi};
+        run();
+        assertTrue(new File(res, "drawable-xhdpi/square.png").isFile());
+
+        // removed density
+        parameters.targetedDensities = new Density.Value[] {mdpi, hdpi};
+        assertTrue(run().rendered.isEmpty());
+        assertFalse(new File(res, "drawable-xhdpi/square.png").exists());
+        assertFalse(new File(res, "drawable-xhdpi/framed.png").exists());
+
+        // removed svg
+        assertTrue(new File(svg, "framed-mdpi.svg").delete());
+        assertTrue(run().rendered.isEmpty());
+        assertFalse(new File(res, "drawable-mdpi/framed.png").exists());
+        assertTrue(new File(res, "drawable-mdpi/square.png").isFile());
+
+        // changed format parameters
+        parameters.outputFormat = OutputFormat.JPG;
+        assertEquals(ImmutableSet.of("square@mdpi", "square@hdpi"), run().rendered);
+        parameters.jpgQuality = 50;
+        assertEquals(ImmutableSet.of("square@mdpi", "square@hdpi"), run().rendered);
+        assertFalse(new File(res, "drawable-mdpi/square.png").exists());
+        assertTrue(new File(res, "drawable-mdpi/square.jpg").isFile());
+    }
+
+    @Test
+    public void verifiesOutputsFromManifest() throws Exception {
+        run();
+        Properties manifest = new Properties();
+        try (InputStream is = new FileInputStream(parameters.renderGraphFile)) {
+            manifest.load(is);
+        }
+        assertEquals(ImmutableSet.of("drawable-mdpi/framed.png", "drawable-hdpi/framed.png",
+                "drawable-mdpi/square.png", "drawable-hdpi/square.png"), manifest.stringPropertyNames());
+
+        // restored elsewhere with other timestamps, as from a build cache
+        File relocated = new File(PATH_OUT, "relocated");
+        for (String path : new String[] {"svg", "images", "res"}) {
+            FileUtils.copyDirectory(new File(PATH_OUT, path), new File(relocated, path), false);
+        }
+        FileUtils.copyFileToDirectory(parameters.renderGraphFile, relocated);
+        parameters.from = Collections.singletonList(new File(relocated, "svg"));
+        parameters.to = new File(relocated, "res");
+        parameters.renderGraphFile = new File(relocated, parameters.renderGraphFile.getName());
+        Recorder restored = run();
+        assertTrue(restored.rendered.isEmpty());
+        assertEquals(4, restored.upToDate.size());
+
+        // output edited by hand, with the same size
+        File square = new File(parameters.to, "drawable-mdpi/square.png");
+        byte[] bytes = FileUtils.readFileToByteArray(square);
+        bytes[bytes.length / 2]++;
+        FileUtils.writeByteArrayToFile(square, bytes);
+        assertEquals(ImmutableSet.of("square@mdpi"), run().rendered);
+    }
+
+    @Test
+    public void keepsChangedStaleOutputs() throws Exception {
+        run();
+        File framed = new File(res, "drawable-mdpi/framed.png");
+        FileUtils.writeByteArrayToFile(framed, new byte[] {1, 2, 3});
+        assertTrue(new File(svg, "framed-mdpi.svg").delete());
+        run();
+        assertTrue(framed.isFile());
+        assertFalse(new File(res, "drawable-hdpi/framed.png").exists());
+    }
+
+    @Test
+    public void rendersEverythingWithoutGraph() throws Exception {
+        parameters.renderGraphFile = null;
+        run();
+        assertEquals(4, run().rendered.size());
+    }
+
+    private Recorder run() {
+        final Recorder recorder = new Recorder();
+        parameters.renderListeners = Collections.singletonList(recorder);
+        new SvgDrawablePlugin(parameters, new TestLogger()).execute();
+        return recorder;
+    }
+
+    private static void edit(File file, String from, String to) throws Exception {
+        final String content = Files.asCharSource(file, StandardCharsets.UTF_8).read();
+        assertTrue(content.contains(from));
+        Files.asCharSink(file, StandardCharsets.UTF_8).write(content.replace(from, to));
+    }
+
+    /**
+     * Not thread safe : events are delivered one at a time.
+     */
+    private static final class Recorder implements RenderListener {
+
+        private final Set<String> rendered = new HashSet<>();
+        private final Set<String> upToDate = new HashSet<>();
+
+        @Override
+        public void renderFinished(RenderMetrics.Render render) {
+            rendered.add(render.getName() + "@" + render.getDensity());
+        }
+
+        @Override
+        public void renderSkipped(QualifiedResource svg, Density.Value density, String reason) {
+            if ("up-to-date".equals(reason)) {
+                upToDate.add(svg.getName() + "@" + density);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import com.google.common.collect.ImmutableList;
+import fr.avianey.androidsvgdrawable.util.EventDispatcher;
+import fr.avianey.androidsvgdrawable.util.TestKit;
+import fr.avianey.androidsvgdrawable.util.TestLogger;
+import fr.avianey.androidsvgdrawable.util.TestParameters;
+import org.apache.commons.io.FileUtils;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static fr.avianey.androidsvgdrawable.Density.Value.mdpi;
+import static org.junit.Assert.*;
+
+public class RenderListenerTest {
+
+    private static final String PATH_IN  = "./target/test-classes/" + RenderListenerTest.class.getSimpleName() + "/";
+    private static final String PATH_OUT = "./target/generated/" + RenderListenerTest.class.getSimpleName() + "/";
+
+    private static ExecutorService executor;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        FileUtils.deleteDirectory(new File(PATH_OUT));
+        new File(PATH_OUT).mkdirs();
+        executor = Executors.newFixedThreadPool(2);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void deliversInOrderWithoutBlocking() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<Integer> slow = Collections.synchronizedList(new ArrayList<>());
+        final List<Integer> fast = Collections.synchronizedList(new ArrayList<>());
+        EventDispatcher<List<Integer>> dispatcher = new EventDispatcher<>(new TestLogger(), ImmutableList.of(slow, fast), executor);
+        dispatcher.dispatch(new Consumer<List<Integer>>() {
+            @Override
+            public void accept(List<Integer> listener) {
+                if (listener == slow) {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                listener.add(0);
+            }
+        });
+        for (int i = 1; i < 100; i++) {
+            final int event = i;
+            dispatcher.dispatch(new Consumer<List<Integer>>() {
+                @Override
+                public void accept(List<Integer> listener) {
+                    if (event == 50) {
+                        throw new IllegalStateException();
+                    }
+                    listener.add(event);
+                }
+            });
+        }
+        // the slow listener holds its own events only
+        long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (fast.size() < 99 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertEquals(99, fast.size());
+        assertTrue(slow.isEmpty());
+        release.countDown();
+        dispatcher.flush();
+        assertEquals(99, slow.size());
+        for (int i = 0; i < 98; i++) {
+            assertTrue(slow.get(i) < slow.get(i + 1));
+        }
+        assertEquals(slow, fast);
+    }
+
+    @Test
+    public void notifiesLifecycle() {
+        final Recorder recorder = new Recorder();
+        TestParameters parameters = new TestParameters();
+        parameters.from = Collections.singletonList(new File(PATH_IN));
+        parameters.to = new File(PATH_OUT, "res");
+        parameters.targetedDensities = new Density.Value[] {mdpi};
+        parameters.svgMaskedSvgOutputDirectory = new File(PATH_OUT, "masked");
+        parameters.renderListeners.add(recorder);
+        new SvgDrawablePlugin(parameters, new TestLogger()).execute();
+
+        assertEquals(ImmutableList.of("square_yellow", "squaremask"), sorted(recorder.discovered));
+        assertEquals(1, recorder.generated.size());
+        assertEquals(2, recorder.started.size());
+        assertEquals(2, recorder.finished.size());
+        for (RenderMetrics.Render render : recorder.finished) {
+            assertTrue(render.getBytesOut() > 0);
+            assertTrue(render.getPixels() > 0);
+            assertTrue(render.getRasterizeNanos() > 0);
+        }
+        assertTrue(recorder.skipped.isEmpty());
+        assertTrue(recorder.finishedLast);
+    }
+
+    @Test
+    public void notifiesSkippedRenders() {
+        final Recorder recorder = new Recorder();
+        TestParameters parameters = new TestParameters();
+        parameters.from = Collections.singletonList(new File(PATH_IN, "square_yellow-mdpi.svg"));
+        parameters.to = new File(PATH_OUT, "missing");
+        parameters.createMissingDirectories = false;
+        parameters.targetedDensities = new Density.Value[] {mdpi};
+        parameters.svgMaskFiles = Collections.emptyList();
+        parameters.renderListeners.add(recorder);
+        new SvgDrawablePlugin(parameters, new TestLogger()).execute();
+
+        assertEquals(1, recorder.started.size());
+        assertEquals(ImmutableList.of("square_yellow"), recorder.skipped);
+        assertTrue(recorder.finished.isEmpty());
+    }
+
+    @Test
+    public void notifiesListenersOfTheTask() throws Exception {
+        File project = new File(PATH_OUT, "project").getCanonicalFile();
+        FileUtils.copyFileToDirectory(new File(PATH_IN, "square_yellow-mdpi.svg"), new File(project, "svg"));
+        FileUtils.write(new File(project, "settings.gradle"), "rootProject.name = 'render-listener'\n", StandardCharsets.UTF_8);
+        FileUtils.write(new File(project, "build.gradle"), "import fr.avianey.androidsvgdrawable.*\n"
+                + "\n"
+                + "plugins {\n"
+                + "    id 'com.android.application'\n"
+                + "    id 'fr.avianey.androidsvgdrawable'\n"
+                + "}\n"
+                + "\n"
+                + "def events = file('build/events.txt')\n"
+                + "\n"
+                + "tasks.register('svgToDrawablePng', fr.avianey.androidsvgdrawable.plugin.SvgDrawableTask) {\n"
+                + "    from = files('svg')\n"
+                + "    targetedDensities = ['mdpi', 'hdpi']\n"
+                + "    outputFormat = 'PNG'\n"
+                + "    renderListener(new RenderListener() {\n"
+                + "        void renderStarted(QualifiedResource svg, Density.Value density) {\n"
+                + "            events << \"started ${svg.name} ${density}\\n\"\n"
+                + "        }\n"
+                + "        void generationFinished() {\n"
+                + "            events << 'finished\\n'\n"
+                + "        }\n"
+                + "    })\n"
+                + "}\n", StandardCharsets.UTF_8);
+        BuildResult result = GradleRunner.create()
+                .withProjectDir(project)
+                .withPluginClasspath(TestKit.pluginClasspath())
+                .withArguments("svgToDrawablePng")
+                .build();
+        assertEquals(TaskOutcome.SUCCESS, result.task(":svgToDrawablePng").getOutcome());
+
+        List<String> events = FileUtils.readLines(new File(project, "build/events.txt"), StandardCharsets.UTF_8);
+        assertEquals(3, events.size());
+        assertEquals(ImmutableList.of("started square_yellow hdpi", "started square_yellow mdpi"), sorted(events.subList(0, 2)));
+        assertEquals("finished", events.get(2));
+    }
+
+    private static List<String> sorted(List<String> names) {
+        List<String> sorted = new ArrayList<>(names);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    /**
+     * Not thread safe : events are delivered one at a time.
+     */
+    private static final class Recorder implements RenderListener {
+
+        private final List<String> discovered = new ArrayList<>();
+        private final List<QualifiedResource> generated = new ArrayList<>();
+        private final List<String> started = new ArrayList<>();
+        private final List<RenderMetrics.Render> finished = new ArrayList<>();
+        private final List<String> skipped = new ArrayList<>();
+        private boolean finishedLast;
+
+        @Override
+        public void resourceDiscovered(QualifiedResource svg) {
+            discovered.add(svg.getName());
+        }
+
+        @Override
+        public void maskedResourceGenerated(QualifiedResource mask, QualifiedResource generated) {
+            this.generated.add(generated);
+        }
+
+        @Override
+        public void renderStarted(QualifiedResource svg, Density.Value density) {
+            started.add(svg.getName());
+        }
+
+        @Override
+        public void renderFinished(RenderMetrics.Render render) {
+            finished.add(render);
+        }
+
+        @Override
+        public void renderSkipped(QualifiedResource svg, Density.Value density, String reason) {
+            skipped.add(svg.getName());
+        }
+
+        @Override
+        public void generationFinished() {
+            finishedLast = started.size() == finished.size() + skipped.size();
+        }
+
+    }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import com.google.common.io.Files;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import fr.avianey.androidsvgdrawable.util.TestLogger;
+import fr.avianey.androidsvgdrawable.util.TestParameters;
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+
+import static fr.avianey.androidsvgdrawable.Density.Value.hdpi;
+import static fr.avianey.androidsvgdrawable.Density.Value.mdpi;
+import static org.junit.Assert.*;
+
+public class RenderMetricsTest {
+
+    private static final String PATH_IN  = "./target/test-classes/" + RenderMetricsTest.class.getSimpleName() + "/";
+    private static final String PATH_OUT = "./target/generated/" + RenderMetricsTest.class.getSimpleName() + "/";
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        FileUtils.deleteDirectory(new File(PATH_OUT));
+        new File(PATH_OUT).mkdirs();
+    }
+
+    @Test
+    public void writesReports() throws Exception {
+        TestParameters parameters = new TestParameters();
+        parameters.from = Collections.singletonList(new File(PATH_IN));
+        parameters.to = new File(PATH_OUT, "res");
+        parameters.targetedDensities = new Density.Value[] {mdpi, hdpi};
+        parameters.svgMaskFiles = Collections.emptyList();
+        parameters.reportDirectory = new File(PATH_OUT, "reports");
+        new SvgDrawablePlugin(parameters, new TestLogger()).execute();
+
+        List<String> csv = Files.readLines(new File(parameters.reportDirectory, RenderMetrics.CSV_REPORT), StandardCharsets.UTF_8);
+        assertEquals(5, csv.size());
+        assertTrue(csv.get(0).startsWith("file,name,density,width,height,pixels,bytesIn,bytesOut,"));
+
+        JsonObject json = JsonParser.parseString(Files.asCharSource(
+                new File(parameters.reportDirectory, RenderMetrics.JSON_REPORT), StandardCharsets.UTF_8).read()).getAsJsonObject();
+        assertTrue(json.getAsJsonObject("phases").has("discoveryMs"));
+        assertEquals(4, json.getAsJsonArray("stages").size());
+        JsonArray renders = json.getAsJsonArray("renders");
+        assertEquals(4, renders.size());
+        JsonObject complex = null;
+        for (int i = 0; i < renders.size(); i++) {
+            JsonObject render = renders.get(i).getAsJsonObject();
+            if ("complex".equals(render.get("name").getAsString()) && "mdpi".equals(render.get("density").getAsString())) {
+                complex = render;
+            }
+        }
+        assertNotNull(complex);
+        assertEquals(new File(PATH_IN, "complex-mdpi.svg").length(), complex.get("bytesIn").getAsLong());
+        assertEquals(new File(parameters.to, "drawable-mdpi/complex.png").length(), complex.get("bytesOut").getAsLong());
+        assertEquals(complex.get("width").getAsLong() * complex.get("height").getAsLong(), complex.get("pixels").getAsLong());
+        assertTrue(complex.get("rasterizeMs").getAsDouble() > 0);
+        assertTrue(complex.get("totalMs").getAsDouble() >= complex.get("rasterizeMs").getAsDouble());
+    }
+
+}
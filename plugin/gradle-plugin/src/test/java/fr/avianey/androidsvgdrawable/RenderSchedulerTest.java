@@ -0,0 +1,92 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import com.google.common.collect.ImmutableList;
+import fr.avianey.androidsvgdrawable.util.RenderScheduler;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+public class RenderSchedulerTest {
+
+    private static ForkJoinPool pool;
+
+    @BeforeClass
+    public static void setup() {
+        pool = new ForkJoinPool(1);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void rendersMostExpensiveFirst() {
+        List<Long> rendered = new CopyOnWriteArrayList<>();
+        RenderScheduler scheduler = new RenderScheduler(pool, 16);
+        for (long cost : new long[] {3, 40, 1, 12, 40, 7}) {
+            scheduler.submit(cost, render(rendered, cost));
+        }
+        assertEquals(0, rendered.size());
+        scheduler.drain();
+        assertEquals(ImmutableList.of(40L, 40L, 12L, 7L, 3L, 1L), rendered);
+    }
+
+    @Test
+    public void ordersEveryUnitWithoutWindow() {
+        List<Long> rendered = new CopyOnWriteArrayList<>();
+        RenderScheduler scheduler = new RenderScheduler(pool);
+        for (long cost = 1; cost <= 5000; cost++) {
+            scheduler.submit(cost, render(rendered, cost));
+        }
+        assertEquals(0, rendered.size());
+        scheduler.drain();
+        assertEquals(5000, rendered.size());
+        for (int i = 0; i < rendered.size(); i++) {
+            assertEquals(5000L - i, (long) rendered.get(i));
+        }
+    }
+
+    @Test
+    public void rendersWhenWindowIsFull() {
+        List<Long> rendered = new CopyOnWriteArrayList<>();
+        RenderScheduler scheduler = new RenderScheduler(pool, 2);
+        for (long cost : new long[] {3, 40, 1, 12}) {
+            scheduler.submit(cost, render(rendered, cost));
+        }
+        assertEquals(ImmutableList.of(40L, 12L), rendered);
+        scheduler.drain();
+        assertEquals(ImmutableList.of(40L, 12L, 3L, 1L), rendered);
+    }
+
+    private static Runnable render(final List<Long> rendered, final long cost) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                rendered.add(cost);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import fr.avianey.androidsvgdrawable.batik.RendererContext;
+import org.apache.batik.transcoder.TranscodingHints;
+import org.apache.batik.transcoder.image.ImageTranscoder;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.apache.batik.transcoder.SVGAbstractTranscoder.KEY_WIDTH;
+import static org.junit.Assert.*;
+
+public class RendererContextTest {
+
+    @Test
+    public void reusesTranscoders() {
+        RendererContext context = RendererContext.get();
+        ImageTranscoder png = context.getTranscoder(OutputFormat.PNG);
+        TranscodingHints defaults = png.getTranscodingHints();
+        png.addTranscodingHint(KEY_WIDTH, 12f);
+        assertSame(png, context.getTranscoder(OutputFormat.PNG));
+        assertFalse(png.getTranscodingHints().containsKey(KEY_WIDTH));
+        assertEquals(defaults, png.getTranscodingHints());
+        assertNotSame(png, context.getTranscoder(OutputFormat.JPG));
+    }
+
+    @Test
+    public void reusesUserAgentsByDpi() {
+        RendererContext context = RendererContext.get();
+        assertSame(context.getUserAgent(160), context.getUserAgent(160));
+        assertNotSame(context.getUserAgent(160), context.getUserAgent(240));
+        assertEquals(25.4f / 240, context.getUserAgent(240).getPixelUnitToMillimeter(), 0.0001f);
+    }
+
+    @Test
+    public void confinedToThread() throws InterruptedException {
+        final AtomicReference<RendererContext> other = new AtomicReference<>();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                other.set(RendererContext.get());
+            }
+        });
+        thread.start();
+        thread.join();
+        assertNotNull(other.get());
+        assertNotSame(RendererContext.get(), other.get());
+        assertSame(RendererContext.get(), RendererContext.get());
+    }
+
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import com.google.common.collect.ImmutableList;
+import fr.avianey.androidsvgdrawable.batik.ReproducibleOutput;
+import fr.avianey.androidsvgdrawable.corpus.SvgCorpusGenerator;
+import fr.avianey.androidsvgdrawable.util.TestLogger;
+import fr.avianey.androidsvgdrawable.util.TestParameters;
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static fr.avianey.androidsvgdrawable.Density.Value.mdpi;
+import static fr.avianey.androidsvgdrawable.Density.Value.xxxhdpi;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static org.junit.Assert.*;
+
+public class ReproducibleOutputTest {
+
+    private static final String PATH_IN  = "./target/test-classes/" + ReproducibleOutputTest.class.getSimpleName() + "/";
+    private static final String PATH_OUT = "./target/generated/" + ReproducibleOutputTest.class.getSimpleName() + "/";
+
+    private static SvgCorpusGenerator.Corpus corpus;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        FileUtils.deleteDirectory(new File(PATH_OUT));
+        corpus = new SvgCorpusGenerator(11)
+                .icons(30)
+                .paths(1, 4)
+                .gradients(0.5)
+                .filters(0.3)
+                .text(0.3)
+                .images(0.3)
+                .ninePatches(0.3)
+                .masks(2)
+                .densities(mdpi)
+                .generate(new File(PATH_OUT, "corpus"));
+    }
+
+    @Test
+    public void writesValidPNG() throws Exception {
+        Random random = new Random(3);
+        BufferedImage image = new BufferedImage(37, 23, TYPE_INT_ARGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                // smooth areas, noise and transparency for every filter type to be chosen
+                image.setRGB(x, y, y < 8 ? 0xff000000 | x * 0x050403 : y < 16 ? random.nextInt() : (x << 27) | 0x00336699);
+            }
+        }
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ReproducibleOutput.writePNG(image, os);
+
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(os.toByteArray()));
+        assertEquals(image.getWidth(), decoded.getWidth());
+        assertEquals(image.getHeight(), decoded.getHeight());
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                assertEquals(image.getRGB(x, y), decoded.getRGB(x, y));
+            }
+        }
+        assertEquals(ImmutableList.of("IHDR", "sRGB", "IDAT", "IEND"), chunks(os.toByteArray()));
+    }
+
+    @Test
+    public void repeatedAndParallelRunsAreIdentical() throws Exception {
+        final File reference = render("reference", false);
+        // nine-patches and outputs streamed in bands are written by the same encoder
+        Collection<File> ninePatches = FileUtils.listFiles(reference, new String[] {"9.png"}, true);
+        assertFalse(ninePatches.isEmpty());
+        List<String> expected = ImmutableList.of("IHDR", "sRGB", "IDAT", "IEND");
+        assertEquals(expected, chunks(FileUtils.readFileToByteArray(ninePatches.iterator().next())));
+        assertEquals(expected, chunks(FileUtils.readFileToByteArray(new File(reference, "drawable-xxxhdpi/large.png"))));
+        assertSameFiles(reference, render("repeated", false));
+        // small png are rendered tile per tile with parallel tiles
+        final File tiled = render("tiled", true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<File>> runs = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                final String name = "parallel" + i;
+                final boolean parallelTiles = i % 2 == 0;
+                runs.add(executor.submit(new Callable<File>() {
+                    @Override
+                    public File call() {
+                        return render(name, parallelTiles);
+                    }
+                }));
+            }
+            for (int i = 0; i < runs.size(); i++) {
+                assertSameFiles(i % 2 == 0 ? tiled : reference, runs.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static File render(String name, boolean parallelTiles) {
+        TestParameters parameters = new TestParameters();
+        parameters.from = ImmutableList.of(corpus.getSvgDirectory(), new File(PATH_IN));
+        parameters.to = new File(PATH_OUT, name + "/res");
+        parameters.targetedDensities = new Density.Value[] {mdpi, xxxhdpi};
+        parameters.ninePatchConfig = corpus.getNinePatchConfig();
+        parameters.svgMaskFiles = ImmutableList.of(corpus.getMaskDirectory());
+        parameters.svgMaskResourceFiles = ImmutableList.of(corpus.getSvgDirectory());
+        parameters.svgMaskedSvgOutputDirectory = new File(PATH_OUT, name + "/masked");
+        parameters.parallelTiles = parallelTiles;
+        parameters.reproducible = true;
+        new SvgDrawablePlugin(parameters, new TestLogger()).execute();
+        return parameters.to;
+    }
+
+    private static void assertSameFiles(File expected, File actual) throws Exception {
+        Collection<File> files = FileUtils.listFiles(expected, null, true);
+        assertFalse(files.isEmpty());
+        assertEquals(files.size(), FileUtils.listFiles(actual, null, true).size());
+        for (File file : files) {
+            String path = expected.toPath().relativize(file.toPath()).toString();
+            assertTrue(path, FileUtils.contentEquals(file, new File(actual, path)));
+        }
+    }
+
+    private static List<String> chunks(byte[] png) throws Exception {
+        List<String> chunks = new ArrayList<>();
+        try (DataInputStream is = new DataInputStream(new ByteArrayInputStream(png))) {
+            is.skipBytes(8);
+            while (is.available() > 0) {
+                int length = is.readInt();
+                byte[] type = new byte[4];
+                is.readFully(type);
+                is.skipBytes(length + 4);
+                String name = new String(type, StandardCharsets.US_ASCII);
+                if (chunks.isEmpty() || !chunks.get(chunks.size() - 1).equals(name)) {
+                    chunks.add(name);
+                }
+            }
+        }
+        return chunks;
+    }
+
+}
@@ -0,0 +1,271 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import com.google.common.collect.ImmutableSet;
+import fr.avianey.androidsvgdrawable.util.StagedPipeline;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StagedPipelineTest {
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void processesItemsThroughEachStage() throws InterruptedException {
+        final Map<Integer, String> completed = new ConcurrentHashMap<>();
+        final Queue<Integer> failed = new ConcurrentLinkedQueue<>();
+        StagedPipeline<StringBuilder> pipeline = new StagedPipeline<>(new StagedPipeline.Listener<StringBuilder>() {
+            @Override
+            public void completed(StringBuilder item) {
+                completed.put(Integer.valueOf(item.substring(0, item.indexOf(":"))), item.toString());
+            }
+            @Override
+            public void failed(StringBuilder item, Exception e) {
+                failed.add(Integer.valueOf(item.substring(0, item.indexOf(":"))));
+            }
+        });
+        pipeline.stage("read", StagedPipeline.newIoExecutor("test-io"), 2, 2, append("r"))
+                .pooledStage("parse", pool, 2, 2, new StagedPipeline.Action<StringBuilder>() {
+                    @Override
+                    public boolean process(StringBuilder item) throws IOException {
+                        if (item.charAt(0) == '3') {
+                            throw new IOException();
+                        }
+                        item.append("p");
+                        // stops odd items
+                        return (item.charAt(0) - '0') % 2 == 0;
+                    }
+                })
+                .stage("write", StagedPipeline.newIoExecutor("test-io"), 1, 1, append("w"))
+                .start();
+        for (int i = 0; i < 10; i++) {
+            pipeline.submit(new StringBuilder().append(i).append(":"));
+        }
+        pipeline.close();
+        assertEquals(9, completed.size());
+        assertEquals("0:rpw", completed.get(0));
+        assertEquals("1:rp", completed.get(1));
+        assertEquals("8:rpw", completed.get(8));
+        assertEquals(1, failed.size());
+        assertEquals(3, (int) failed.peek());
+
+        List<StagedPipeline.StageStats> stats = pipeline.getStats();
+        assertEquals(3, stats.size());
+        assertEquals(10, stats.get(0).getProcessed());
+        assertEquals(10, stats.get(1).getProcessed());
+        assertEquals(5, stats.get(2).getProcessed());
+        for (StagedPipeline.StageStats stage : stats) {
+            assertEquals(0, stage.getDepth());
+            assertTrue(stage.getMaxDepth() <= stage.getCapacity());
+            assertTrue(stage.getUtilisation() >= 0 && stage.getUtilisation() <= 1);
+        }
+    }
+
+    @Test
+    public void boundsQueues() throws InterruptedException {
+        final CountDownLatch blocked = new CountDownLatch(1);
+        StagedPipeline<StringBuilder> pipeline = new StagedPipeline<>(new StagedPipeline.Listener<StringBuilder>() {
+            @Override
+            public void completed(StringBuilder item) {
+            }
+            @Override
+            public void failed(StringBuilder item, Exception e) {
+            }
+        });
+        pipeline.pooledStage("slow", pool, 1, 3, new StagedPipeline.Action<StringBuilder>() {
+            @Override
+            public boolean process(StringBuilder item) throws InterruptedException {
+                blocked.await();
+                return true;
+            }
+        }).start();
+        // one item is processed, three are queued and the fifth submission blocks until the stage progresses
+        for (int i = 0; i < 4; i++) {
+            pipeline.submit(new StringBuilder());
+        }
+        Thread release = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                blocked.countDown();
+            }
+        });
+        release.start();
+        pipeline.submit(new StringBuilder());
+        pipeline.close();
+        StagedPipeline.StageStats stats = pipeline.getStats().get(0);
+        assertEquals(5, stats.getProcessed());
+        assertTrue(stats.getMaxDepth() <= 3);
+    }
+
+    @Test
+    public void boundsPooledWorkers() throws InterruptedException {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final AtomicInteger completed = new AtomicInteger();
+        StagedPipeline<StringBuilder> pipeline = new StagedPipeline<>(new StagedPipeline.Listener<StringBuilder>() {
+            @Override
+            public void completed(StringBuilder item) {
+                completed.incrementAndGet();
+            }
+            @Override
+            public void failed(StringBuilder item, Exception e) {
+            }
+        });
+        pipeline.pooledStage("render", pool, 2, 4, new StagedPipeline.Action<StringBuilder>() {
+            @Override
+            public boolean process(StringBuilder item) throws InterruptedException {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(5);
+                running.decrementAndGet();
+                return true;
+            }
+        }).start();
+        for (int i = 0; i < 20; i++) {
+            pipeline.submit(new StringBuilder());
+        }
+        pipeline.close();
+        assertEquals(20, completed.get());
+        assertEquals(20, pipeline.getStats().get(0).getProcessed());
+        // the pool has 4 threads but the stage processes at most 2 items at once
+        assertTrue(maxRunning.get() <= 2);
+        // the pooled stage holds no thread once its queue is empty
+        assertTrue(pool.awaitQuiescence(1, TimeUnit.SECONDS));
+    }
+
+    @Test(timeout = 10000)
+    public void failsItemsOfAnInterruptedStage() throws InterruptedException {
+        final Queue<String> completed = new ConcurrentLinkedQueue<>();
+        final Queue<String> failed = new ConcurrentLinkedQueue<>();
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountDownLatch handingOver = new CountDownLatch(1);
+        final CountDownLatch writing = new CountDownLatch(1);
+        final Thread[] reader = new Thread[1];
+        StagedPipeline<StringBuilder> pipeline = new StagedPipeline<>(new StagedPipeline.Listener<StringBuilder>() {
+            @Override
+            public void completed(StringBuilder item) {
+                completed.add(item.toString());
+            }
+            @Override
+            public void failed(StringBuilder item, Exception e) {
+                failed.add(item.toString());
+            }
+        });
+        pipeline.stage("read", StagedPipeline.newIoExecutor("test-io"), 1, 2, new StagedPipeline.Action<StringBuilder>() {
+            @Override
+            public boolean process(StringBuilder item) {
+                reader[0] = Thread.currentThread();
+                if (item.charAt(0) == 'c') {
+                    handingOver.countDown();
+                }
+                return true;
+            }
+        }).stage("write", StagedPipeline.newIoExecutor("test-io"), 1, 1, new StagedPipeline.Action<StringBuilder>() {
+            @Override
+            public boolean process(StringBuilder item) throws InterruptedException {
+                writing.countDown();
+                release.await();
+                return true;
+            }
+        }).start();
+        // a is written, b is queued for the write stage, c is handed over to a full queue and d waits to be read
+        for (String item : new String[] {"a", "b", "c", "d"}) {
+            pipeline.submit(new StringBuilder(item));
+        }
+        handingOver.await();
+        writing.await();
+        reader[0].interrupt();
+        // c and d fail with the interrupted reader, b with the cancelled pipeline
+        while (failed.size() < 3) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        pipeline.await();
+        assertEquals(ImmutableSet.of("a"), ImmutableSet.copyOf(completed));
+        assertEquals(ImmutableSet.of("b", "c", "d"), ImmutableSet.copyOf(failed));
+        pipeline.close();
+    }
+
+    @Test
+    public void shutsExecutorsDownWhenInterrupted() throws InterruptedException {
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService io = StagedPipeline.newIoExecutor("test-io");
+        StagedPipeline<StringBuilder> pipeline = new StagedPipeline<>(new StagedPipeline.Listener<StringBuilder>() {
+            @Override
+            public void completed(StringBuilder item) {
+            }
+            @Override
+            public void failed(StringBuilder item, Exception e) {
+            }
+        });
+        pipeline.stage("slow", io, 1, 1, new StagedPipeline.Action<StringBuilder>() {
+            @Override
+            public boolean process(StringBuilder item) throws InterruptedException {
+                release.await();
+                return true;
+            }
+        }).start();
+        pipeline.submit(new StringBuilder());
+        Thread.currentThread().interrupt();
+        try {
+            pipeline.close();
+            fail();
+        } catch (InterruptedException e) {
+            // the worker is interrupted and the pipeline cancelled
+        }
+        assertTrue(io.isShutdown());
+        assertTrue(io.awaitTermination(10, TimeUnit.SECONDS));
+        pipeline.await();
+    }
+
+    private static StagedPipeline.Action<StringBuilder> append(final String s) {
+        return new StagedPipeline.Action<StringBuilder>() {
+            @Override
+            public boolean process(StringBuilder item) {
+                item.append(s);
+                return true;
+            }
+        };
+    }
+
+}
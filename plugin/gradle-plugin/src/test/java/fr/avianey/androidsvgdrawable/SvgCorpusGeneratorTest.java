@@ -0,0 +1,140 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import com.google.common.collect.ImmutableList;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import fr.avianey.androidsvgdrawable.corpus.SvgCorpusGenerator;
+import fr.avianey.androidsvgdrawable.util.TestLogger;
+import fr.avianey.androidsvgdrawable.util.TestParameters;
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static fr.avianey.androidsvgdrawable.Density.Value.hdpi;
+import static fr.avianey.androidsvgdrawable.Density.Value.mdpi;
+import static org.junit.Assert.*;
+
+public class SvgCorpusGeneratorTest {
+
+    private static final String PATH_OUT = "./target/generated/" + SvgCorpusGeneratorTest.class.getSimpleName() + "/";
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        FileUtils.deleteDirectory(new File(PATH_OUT));
+        new File(PATH_OUT).mkdirs();
+    }
+
+    @Test
+    public void deterministic() throws Exception {
+        SvgCorpusGenerator.Corpus a = new SvgCorpusGenerator(42).icons(50).masks(3).generate(new File(PATH_OUT, "a"));
+        SvgCorpusGenerator.Corpus b = new SvgCorpusGenerator(42).icons(50).masks(3).generate(new File(PATH_OUT, "b"));
+        assertSameFiles(a.getSvgFiles(), b.getSvgFiles());
+        assertSameFiles(a.getMaskFiles(), b.getMaskFiles());
+        assertArrayEquals(Files.readAllBytes(a.getNinePatchConfig().toPath()), Files.readAllBytes(b.getNinePatchConfig().toPath()));
+
+        // growing the corpus keeps the first icons
+        SvgCorpusGenerator.Corpus larger = new SvgCorpusGenerator(42).icons(80).masks(3).generate(new File(PATH_OUT, "larger"));
+        assertSameFiles(a.getSvgFiles(), larger.getSvgFiles().subList(0, 50));
+
+        SvgCorpusGenerator.Corpus other = new SvgCorpusGenerator(43).icons(50).generate(new File(PATH_OUT, "other"));
+        int same = 0;
+        for (int i = 0; i < 50; i++) {
+            if (a.getSvgFiles().get(i).getName().equals(other.getSvgFiles().get(i).getName())
+                    && FileUtils.contentEquals(a.getSvgFiles().get(i), other.getSvgFiles().get(i))) {
+                same++;
+            }
+        }
+        assertEquals(0, same);
+    }
+
+    @Test
+    public void renders() throws Exception {
+        SvgCorpusGenerator.Corpus corpus = new SvgCorpusGenerator(7)
+                .icons(60)
+                .paths(1, 4)
+                .gradients(0.5)
+                .filters(0.3)
+                .text(0.3)
+                .images(0.3)
+                .missingSize(0.3)
+                .ninePatches(0.3)
+                .masks(4)
+                .densities(mdpi, hdpi)
+                .generate(new File(PATH_OUT, "renders"));
+        assertEquals(60, corpus.getSvgFiles().size());
+        assertEquals(4, corpus.getMaskFiles().size());
+
+        final Set<NinePatch> ninePatches;
+        try (final Reader reader = new InputStreamReader(new FileInputStream(corpus.getNinePatchConfig()))) {
+            ninePatches = new GsonBuilder().create().fromJson(reader, new TypeToken<Set<NinePatch>>() {}.getType());
+        }
+        assertFalse(ninePatches.isEmpty());
+
+        final AtomicInteger rendered = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicInteger masked = new AtomicInteger();
+        TestParameters parameters = new TestParameters();
+        parameters.from = ImmutableList.of(corpus.getSvgDirectory());
+        parameters.to = new File(PATH_OUT, "renders/res");
+        parameters.targetedDensities = new Density.Value[] {mdpi};
+        parameters.ninePatchConfig = corpus.getNinePatchConfig();
+        parameters.svgMaskFiles = ImmutableList.of(corpus.getMaskDirectory());
+        parameters.svgMaskResourceFiles = ImmutableList.of(corpus.getSvgDirectory());
+        parameters.svgMaskedSvgOutputDirectory = new File(PATH_OUT, "renders/masked");
+        parameters.renderListeners.add(new RenderListener() {
+            @Override
+            public void maskedResourceGenerated(QualifiedResource mask, QualifiedResource svg) {
+                masked.incrementAndGet();
+            }
+
+            @Override
+            public void renderFinished(RenderMetrics.Render render) {
+                rendered.incrementAndGet();
+            }
+
+            @Override
+            public void renderFailed(QualifiedResource svg, Density.Value density, Exception e) {
+                failed.incrementAndGet();
+            }
+        });
+        new SvgDrawablePlugin(parameters, new TestLogger()).execute();
+
+        assertEquals(0, failed.get());
+        assertTrue(masked.get() > 0);
+        assertEquals(60 + masked.get(), rendered.get());
+        assertFalse(FileUtils.listFiles(parameters.to, new String[] {"9.png"}, true).isEmpty());
+    }
+
+    private static void assertSameFiles(List<File> expected, List<File> actual) throws Exception {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getName(), actual.get(i).getName());
+            assertTrue(expected.get(i).getName(), FileUtils.contentEquals(expected.get(i), actual.get(i)));
+        }
+    }
+
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import com.android.build.api.variant.AndroidComponentsExtension;
+import com.android.build.api.variant.Variant;
+import com.android.build.gradle.AppExtension;
+import com.android.build.gradle.AppPlugin;
+import com.android.build.gradle.LibraryExtension;
+import com.android.build.gradle.LibraryPlugin;
+import com.android.build.gradle.api.AndroidSourceSet;
+import com.android.build.gradle.api.ApplicationVariant;
+import com.android.build.gradle.api.LibraryVariant;
+import com.google.common.collect.ImmutableSet;
+import fr.avianey.androidsvgdrawable.plugin.SvgDrawableGradlePlugin;
+import fr.avianey.androidsvgdrawable.plugin.SvgDrawableTask;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.internal.project.ProjectInternal;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SvgDrawableGradlePluginTest {
+
+    private static final String PATH_OUT = "./target/generated/" + SvgDrawableGradlePluginTest.class.getSimpleName() + "/";
+
+    private Project project;
+    private AppExtension android;
+    private AndroidComponentsExtension androidComponents;
+
+    @Before
+    public void setup() throws Exception {
+        FileUtils.deleteDirectory(new File(PATH_OUT));
+        project = ProjectBuilder.builder().withProjectDir(new File(PATH_OUT)).build();
+        project.getPluginManager().apply(AppPlugin.class);
+        project.getPluginManager().apply(SvgDrawableGradlePlugin.class);
+        android = project.getExtensions().getByType(AppExtension.class);
+        androidComponents = project.getExtensions().getByType(AndroidComponentsExtension.class);
+        android.getSourceSets().create("flavor1");
+    }
+
+    @Test
+    public void isolatesDefaultOutputDirectories() {
+        SvgDrawableTask png = project.getTasks().register("svgToDrawablePng", SvgDrawableTask.class).get();
+        SvgDrawableTask mipmap = project.getTasks().register("svgToMipmapPng", SvgDrawableTask.class).get();
+        mipmap.getOutputType().set(OutputType.mipmap);
+        SvgDrawableTask flavor = project.getTasks().register("svgToMipmapPngFlavor1", SvgDrawableTask.class).get();
+        flavor.getSourceSet().set("flavor1");
+        SvgDrawableTask raw = project.getTasks().register("svgToAssets", SvgDrawableTask.class).get();
+        raw.getOutputType().set(OutputType.raw);
+        ((ProjectInternal) project).evaluate();
+
+        File generated = new File(project.getBuildDir(), "generated/svgdrawable");
+        assertEquals(new File(generated, "svgToDrawablePng"), png.getOutputDirectory().get().getAsFile());
+        assertEquals(new File(generated, "svgToMipmapPng"), mipmap.getOutputDirectory().get().getAsFile());
+        AndroidSourceSet main = android.getSourceSets().getByName("main");
+        assertEquals(files(png, mipmap), srcDirs(main.getRes()));
+        assertEquals(files(raw), srcDirs(main.getAssets()));
+        AndroidSourceSet flavor1 = android.getSourceSets().getByName("flavor1");
+        assertEquals(files(flavor), srcDirs(flavor1.getRes()));
+        // nothing shared between the tasks
+        assertNotEquals(png.getRenderGraphFile().get(), mipmap.getRenderGraphFile().get());
+        assertNotEquals(png.getSvgMaskedSvgOutputDirectory().get(), mipmap.getSvgMaskedSvgOutputDirectory().get());
+    }
+
+    @Test
+    public void keepsGivenOutputDirectory() {
+        SvgDrawableTask png = project.getTasks().register("svgToDrawablePng", SvgDrawableTask.class).get();
+        png.getTo().set(project.file("build/generated/res/main"));
+        SvgDrawableTask unknown = project.getTasks().register("svgToDrawablePngFlavor2", SvgDrawableTask.class).get();
+        unknown.getSourceSet().set("flavor2");
+        ((ProjectInternal) project).evaluate();
+
+        assertEquals(project.file("build/generated/res/main"), png.getOutputDirectory().get().getAsFile());
+        assertTrue(srcDirs(android.getSourceSets().getByName("main").getRes()).isEmpty());
+        assertNull(android.getSourceSets().findByName("flavor2"));
+    }
+
+    @Test
+    public void registersLazily() {
+        final AtomicInteger realized = new AtomicInteger();
+        project.getTasks().withType(SvgDrawableTask.class).configureEach(new Action<SvgDrawableTask>() {
+            @Override
+            public void execute(SvgDrawableTask task) {
+                realized.incrementAndGet();
+            }
+        });
+        project.getTasks().register("svgToDrawablePng", SvgDrawableTask.class);
+        project.getTasks().register("svgToMipmapPngFlavor1", SvgDrawableTask.class, new Action<SvgDrawableTask>() {
+            @Override
+            public void execute(SvgDrawableTask task) {
+                task.getSourceSet().set("flavor1");
+            }
+        });
+        ((ProjectInternal) project).evaluate();
+        androidComponents.getVariants().add(new Variant(project, "debug", "flavor1"));
+        assertEquals(0, realized.get());
+
+        // realized once the Android plugin reads the resources directories
+        assertEquals(1, srcDirs(android.getSourceSets().getByName("flavor1").getRes()).size());
+        assertEquals(2, realized.get());
+    }
+
+    @Test
+    public void rendersForVariantsOfTheSourceSet() {
+        SvgDrawableTask png = project.getTasks().register("svgToDrawablePng", SvgDrawableTask.class).get();
+        SvgDrawableTask flavor = project.getTasks().register("svgToMipmapPngFlavor1", SvgDrawableTask.class).get();
+        flavor.getSourceSet().set("flavor1");
+        SvgDrawableTask debug = project.getTasks().register("svgToDrawablePngDebug", SvgDrawableTask.class).get();
+        debug.getSourceSet().set("debug");
+        ((ProjectInternal) project).evaluate();
+        // variants are created once the project is evaluated
+        androidComponents.getVariants().add(new Variant(project, "debug", "flavor1"));
+        androidComponents.getVariants().add(new Variant(project, "release", "flavor2"));
+
+        assertEquals(ImmutableSet.of(png, flavor, debug), dependencies("preFlavor1DebugBuild"));
+        assertEquals(ImmutableSet.of(png), dependencies("preFlavor2ReleaseBuild"));
+        assertTrue(dependencies("preBuild").isEmpty());
+    }
+
+    @Test
+    public void rendersForVariantsOfTheFlavorDimensions() {
+        SvgDrawableTask free = project.getTasks().register("svgToDrawablePngFree", SvgDrawableTask.class).get();
+        free.getSourceSet().set("free");
+        SvgDrawableTask freeArm = project.getTasks().register("svgToDrawablePngFreeArm", SvgDrawableTask.class).get();
+        freeArm.getSourceSet().set("freeArm");
+        SvgDrawableTask variant = project.getTasks().register("svgToDrawablePngFreeArmDebug", SvgDrawableTask.class).get();
+        variant.getSourceSet().set("freeArmDebug");
+        SvgDrawableTask paid = project.getTasks().register("svgToDrawablePngPaid", SvgDrawableTask.class).get();
+        paid.getSourceSet().set("paid");
+        ((ProjectInternal) project).evaluate();
+        androidComponents.getVariants().add(new Variant(project, "debug", "free", "arm"));
+
+        assertEquals(ImmutableSet.of(free, freeArm, variant), dependencies("preFreeArmDebugBuild"));
+    }
+
+    @Test
+    public void ignoresLegacyVariantsOfTheVariantApi() {
+        SvgDrawableTask png = project.getTasks().register("svgToDrawablePng", SvgDrawableTask.class).get();
+        ((ProjectInternal) project).evaluate();
+        android.getApplicationVariants().add(new ApplicationVariant(project, "legacyDebug",
+                android.getSourceSets().getByName("main")));
+        androidComponents.getVariants().add(new Variant(project, "debug"));
+
+        assertTrue(dependencies("preLegacyDebugBuild").isEmpty());
+        assertEquals(ImmutableSet.of(png), dependencies("preDebugBuild"));
+    }
+
+    @Test
+    public void rendersForLegacyVariantsWithoutVariantApi() throws Exception {
+        FileUtils.deleteDirectory(new File(PATH_OUT));
+        project = ProjectBuilder.builder().withProjectDir(new File(PATH_OUT)).build();
+        project.getPluginManager().apply(LibraryPlugin.class);
+        project.getPluginManager().apply(SvgDrawableGradlePlugin.class);
+        LibraryExtension library = project.getExtensions().getByType(LibraryExtension.class);
+        library.getSourceSets().create("flavor1");
+        SvgDrawableTask png = project.getTasks().register("svgToDrawablePng", SvgDrawableTask.class).get();
+        SvgDrawableTask flavor = project.getTasks().register("svgToMipmapPngFlavor1", SvgDrawableTask.class).get();
+        flavor.getSourceSet().set("flavor1");
+        ((ProjectInternal) project).evaluate();
+        library.getLibraryVariants().add(new LibraryVariant(project, "flavor1Debug",
+                library.getSourceSets().getByName("main"),
+                library.getSourceSets().getByName("flavor1"),
+                library.getSourceSets().create("debug")));
+        library.getLibraryVariants().add(new LibraryVariant(project, "flavor2Release",
+                library.getSourceSets().getByName("main"),
+                library.getSourceSets().create("flavor2"),
+                library.getSourceSets().create("release")));
+
+        assertEquals(ImmutableSet.of(png, flavor), dependencies("preFlavor1DebugBuild"));
+        assertEquals(ImmutableSet.of(png), dependencies("preFlavor2ReleaseBuild"));
+        assertEquals(files(flavor), srcDirs(library.getSourceSets().getByName("flavor1").getRes()));
+    }
+
+    @Test
+    public void buildsDefaultOutputDirectoriesWithTheirTasks() {
+        SvgDrawableTask png = project.getTasks().register("svgToDrawablePng", SvgDrawableTask.class).get();
+        SvgDrawableTask given = project.getTasks().register("svgToMipmapPng", SvgDrawableTask.class).get();
+        given.getTo().set(project.file("build/generated/res/main"));
+        SvgDrawableTask raw = project.getTasks().register("svgToAssets", SvgDrawableTask.class).get();
+        raw.getOutputType().set(OutputType.raw);
+        ((ProjectInternal) project).evaluate();
+
+        AndroidSourceSet main = android.getSourceSets().getByName("main");
+        assertEquals(ImmutableSet.of(png), builtBy(main.getRes()));
+        assertEquals(ImmutableSet.of(raw), builtBy(main.getAssets()));
+    }
+
+    private Set<File> srcDirs(AndroidSourceSet.AndroidSourceDirectorySet directories) {
+        return project.files(directories.getSrcDirs()).getFiles();
+    }
+
+    private Set<? extends Task> builtBy(AndroidSourceSet.AndroidSourceDirectorySet directories) {
+        Set<Task> tasks = new HashSet<>();
+        for (Object srcDir : directories.getSrcDirs()) {
+            tasks.addAll(((FileCollection) srcDir).getBuildDependencies().getDependencies(null));
+        }
+        return tasks;
+    }
+
+    private static Set<File> files(SvgDrawableTask... tasks) {
+        Set<File> files = new HashSet<>();
+        for (SvgDrawableTask task : tasks) {
+            files.add(task.getOutputDirectory().get().getAsFile());
+        }
+        return files;
+    }
+
+    private Set<? extends Task> dependencies(String task) {
+        return project.getTasks().getByName(task).getTaskDependencies().getDependencies(null);
+    }
+
+}
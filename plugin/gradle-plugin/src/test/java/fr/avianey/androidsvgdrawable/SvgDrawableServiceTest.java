@@ -0,0 +1,95 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import fr.avianey.androidsvgdrawable.plugin.SvgDrawableService;
+import org.apache.commons.io.FileUtils;
+import org.gradle.api.Action;
+import org.gradle.api.Project;
+import org.gradle.api.services.BuildServiceSpec;
+import org.gradle.testfixtures.ProjectBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class SvgDrawableServiceTest {
+
+    private static final String PATH_OUT = "./target/generated/" + SvgDrawableServiceTest.class.getSimpleName() + "/";
+
+    private SvgDrawableService service;
+
+    @Before
+    public void setup() throws Exception {
+        FileUtils.deleteDirectory(new File(PATH_OUT));
+        Project project = ProjectBuilder.builder().withProjectDir(new File(PATH_OUT)).build();
+        service = project.getGradle().getSharedServices().registerIfAbsent(SvgDrawableService.NAME, SvgDrawableService.class,
+                new Action<BuildServiceSpec<SvgDrawableService.Params>>() {
+                    @Override
+                    public void execute(BuildServiceSpec<SvgDrawableService.Params> spec) {
+                        spec.getParameters().getParallelism().set(2);
+                    }
+                }).get();
+    }
+
+    @Test(timeout = 10000)
+    public void waitsForRunningRendersWhenClosed() throws InterruptedException {
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicBoolean rendered = new AtomicBoolean();
+        ForkJoinPool pool = service.getPool();
+        pool.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    Thread.sleep(200);
+                    rendered.set(true);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        started.await();
+        service.close();
+
+        assertTrue(rendered.get());
+        assertTrue(pool.isTerminated());
+    }
+
+    @Test
+    public void releasesCachesWhenClosed() throws IOException {
+        File svg = new File(PATH_OUT, "index.svg");
+        FileUtils.write(svg, "<svg/>", "UTF-8");
+        service.getMetadataIndex().getComplexity(svg, new SvgMetadataIndex.Extractor<SvgComplexity>() {
+            @Override
+            public SvgComplexity extract() {
+                return SvgComplexity.EMPTY;
+            }
+        });
+        MemoryBudget budget = service.getMemoryBudget();
+        service.close();
+
+        assertEquals(0, service.getMetadataIndex().size());
+        assertNotSame(budget, service.getMemoryBudget());
+    }
+
+}
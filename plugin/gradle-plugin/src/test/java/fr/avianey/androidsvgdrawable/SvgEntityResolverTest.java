@@ -0,0 +1,60 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import fr.avianey.androidsvgdrawable.util.SvgEntityResolver;
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXParseException;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class SvgEntityResolverTest {
+
+    private static final String PATH_IN  = "./target/test-classes/" + SvgEntityResolverTest.class.getSimpleName() + "/";
+
+    @Test
+    public void resolvesBundledDtd() throws Exception {
+        InputSource byPublicId = SvgEntityResolver.INSTANCE.resolveEntity("-//W3C//DTD SVG 1.1//EN", null);
+        InputSource bySystemId = SvgEntityResolver.INSTANCE.resolveEntity(null, "http://www.w3.org/Graphics/SVG/1.1/DTD/svg11.dtd");
+        assertTrue(byPublicId.getByteStream().available() > 0);
+        assertEquals(byPublicId.getByteStream().available(), bySystemId.getByteStream().available());
+    }
+
+    @Test
+    public void resolvesUnknownEntityToEmptyDocument() throws Exception {
+        InputSource source = SvgEntityResolver.INSTANCE.resolveEntity(null, "http://unreachable.invalid/custom.dtd");
+        assertEquals(0, source.getByteStream().available());
+    }
+
+    @Test
+    public void parsesDoctypeOffline() throws Exception {
+        Document doctype = SvgEntityResolver.newDocumentBuilder().parse(new File(PATH_IN, "doctype.svg"));
+        assertEquals("svg", doctype.getDocumentElement().getLocalName());
+        Document unknown = SvgEntityResolver.newDocumentBuilder().parse(new File(PATH_IN, "unknown_dtd.svg"));
+        assertEquals("svg", unknown.getDocumentElement().getLocalName());
+    }
+
+    @Test(expected = SAXParseException.class)
+    public void limitsEntityExpansion() throws Exception {
+        SvgEntityResolver.newDocumentBuilder().parse(new File(PATH_IN, "entity_expansion.svg"));
+    }
+
+}
@@ -200,6 +200,12 @@ public class SvgMaskTest {
 										"mask_same_image_twice_square_yellow_circle_pink_triangle_white_square_red-mdpi.svg"
 								),
 								true
+						},
+						{
+								"mask_doctype-mdpi.svgmask",
+								asList("square_red-hdpi.svg"),
+								asList("mask_doctype_square_red-mdpi.svg"),
+								false
 						}
                 });
     }
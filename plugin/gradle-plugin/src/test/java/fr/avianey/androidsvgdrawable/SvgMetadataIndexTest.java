@@ -0,0 +1,64 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import fr.avianey.androidsvgdrawable.util.TestLogger;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+import java.awt.Rectangle;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class SvgMetadataIndexTest {
+
+    private static final String PATH_IN  = "./target/test-classes/" + QualifiedResourceWalkerTest.class.getSimpleName() + "/";
+    private static final String PATH_OUT = "./target/generated/" + SvgMetadataIndexTest.class.getSimpleName() + "/";
+
+    @Test
+    public void sharedBetweenFactories() throws IOException {
+        SvgMetadataIndex index = new SvgMetadataIndex();
+        File svg = new File(PATH_IN, "tree/a/icon_a-mdpi.svg");
+        QualifiedResource first = new QualifiedSVGResourceFactory(new TestLogger(), BoundsType.sensitive, index).fromSVGFile(svg);
+        QualifiedResource second = new QualifiedSVGResourceFactory(new TestLogger(), BoundsType.sensitive, index).fromSVGFile(svg);
+        assertEquals(1, index.size());
+        assertEquals(first.getBounds(), second.getBounds());
+        new QualifiedSVGResourceFactory(new TestLogger(), BoundsType.all, index).fromSVGFile(svg);
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    public void reextractsModifiedFiles() throws IOException {
+        File svg = new File(PATH_OUT, "icon-mdpi.svg");
+        FileUtils.copyFile(new File(PATH_IN, "tree/a/icon_a-mdpi.svg"), svg);
+        final AtomicInteger extractions = new AtomicInteger();
+        SvgMetadataIndex.BoundsExtractor extractor = new SvgMetadataIndex.BoundsExtractor() {
+            @Override
+            public Rectangle extract() {
+                return new Rectangle(0, 0, extractions.incrementAndGet(), 1);
+            }
+        };
+        SvgMetadataIndex index = new SvgMetadataIndex();
+        assertEquals(1, index.getBounds(svg, BoundsType.sensitive, extractor).width);
+        assertEquals(1, index.getBounds(svg, BoundsType.sensitive, extractor).width);
+        svg.setLastModified(svg.lastModified() + 2000);
+        assertEquals(2, index.getBounds(svg, BoundsType.sensitive, extractor).width);
+    }
+
+}
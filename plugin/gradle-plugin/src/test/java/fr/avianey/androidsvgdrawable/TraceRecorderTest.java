@@ -0,0 +1,132 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable;
+
+import com.google.common.io.Files;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import fr.avianey.androidsvgdrawable.util.TestLogger;
+import fr.avianey.androidsvgdrawable.util.TestParameters;
+import fr.avianey.androidsvgdrawable.util.TraceRecorder;
+import org.apache.commons.io.FileUtils;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static fr.avianey.androidsvgdrawable.Density.Value.mdpi;
+import static org.junit.Assert.*;
+
+public class TraceRecorderTest {
+
+    private static final String PATH_IN  = "./target/test-classes/" + TraceRecorderTest.class.getSimpleName() + "/";
+    private static final String PATH_OUT = "./target/generated/" + TraceRecorderTest.class.getSimpleName() + "/";
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        FileUtils.deleteDirectory(new File(PATH_OUT));
+        new File(PATH_OUT).mkdirs();
+    }
+
+    @Test
+    public void writesTraceEvents() throws Exception {
+        TraceRecorder trace = new TraceRecorder();
+        long start = System.nanoTime();
+        trace.complete("render", "render", start, start + 2_000_000);
+        trace.async("wait write", "queue", 7, start + 2_000_000, start + 3_000_000);
+        File file = new File(PATH_OUT, "unit.json");
+        trace.write(file);
+
+        JsonArray events = read(file);
+        assertEquals(4, events.size());
+        JsonObject thread = events.get(0).getAsJsonObject();
+        assertEquals("M", thread.get("ph").getAsString());
+        assertEquals(Thread.currentThread().getName(), thread.getAsJsonObject("args").get("name").getAsString());
+        JsonObject render = events.get(1).getAsJsonObject();
+        assertEquals("X", render.get("ph").getAsString());
+        assertEquals(2000, render.get("dur").getAsLong());
+        assertEquals(Thread.currentThread().getId(), render.get("tid").getAsLong());
+        JsonObject begin = events.get(2).getAsJsonObject();
+        JsonObject end = events.get(3).getAsJsonObject();
+        assertEquals("b", begin.get("ph").getAsString());
+        assertEquals("e", end.get("ph").getAsString());
+        assertEquals(7, end.get("id").getAsLong());
+        assertEquals(1000, end.get("ts").getAsLong() - begin.get("ts").getAsLong());
+    }
+
+    @Test
+    public void disabled() throws Exception {
+        assertFalse(TraceRecorder.DISABLED.isEnabled());
+        TraceRecorder.DISABLED.complete("render", "render", 0, 1);
+        File file = new File(PATH_OUT, "disabled.json");
+        TraceRecorder.DISABLED.write(file);
+        assertEquals(0, read(file).size());
+    }
+
+    @Test
+    public void tracesGeneration() throws Exception {
+        TestParameters parameters = new TestParameters();
+        parameters.from = Collections.singletonList(new File(PATH_IN));
+        parameters.to = new File(PATH_OUT, "res");
+        parameters.targetedDensities = new Density.Value[] {mdpi};
+        parameters.svgMaskFiles = Collections.emptyList();
+        parameters.reportDirectory = new File(PATH_OUT, "reports");
+        parameters.trace = true;
+        new SvgDrawablePlugin(parameters, new TestLogger()).execute();
+
+        Set<String> categories = new HashSet<>();
+        int renders = 0;
+        for (JsonElement element : read(new File(parameters.reportDirectory, "svgdrawable-trace.json"))) {
+            JsonObject event = element.getAsJsonObject();
+            if (event.has("cat")) {
+                categories.add(event.get("cat").getAsString());
+                if (event.get("name").getAsString().startsWith("render ")) {
+                    renders++;
+                }
+            }
+        }
+        assertEquals(2, renders);
+        for (String category : new String[] {"discovery", "read", "parse", "render", "write", "queue"}) {
+            assertTrue(category, categories.contains(category));
+        }
+    }
+
+    @Test
+    public void noTraceByDefault() {
+        TestParameters parameters = new TestParameters();
+        parameters.from = Collections.singletonList(new File(PATH_IN));
+        parameters.to = new File(PATH_OUT, "res-untraced");
+        parameters.targetedDensities = new Density.Value[] {mdpi};
+        parameters.svgMaskFiles = Collections.emptyList();
+        parameters.reportDirectory = new File(PATH_OUT, "reports-untraced");
+        new SvgDrawablePlugin(parameters, new TestLogger()).execute();
+        assertTrue(new File(parameters.reportDirectory, RenderMetrics.JSON_REPORT).isFile());
+        assertFalse(new File(parameters.reportDirectory, "svgdrawable-trace.json").exists());
+    }
+
+    private static JsonArray read(File file) throws IOException {
+        return JsonParser.parseString(Files.asCharSource(file, StandardCharsets.UTF_8).read())
+                .getAsJsonObject().getAsJsonArray("traceEvents");
+    }
+
+}
@@ -4,6 +4,8 @@ import fr.avianey.androidsvgdrawable.*;
 
 import javax.annotation.Nullable;
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 public class TestParameters implements SvgDrawablePlugin.Parameters {
 
@@ -29,6 +31,15 @@ public class TestParameters implements SvgDrawablePlugin.Parameters {
     public OutputFormat outputFormat = DEFAULT_OUTPUT_FORMAT;
     public int jpgQuality = DEFAULT_JPG_QUALITY;
     public int jpgBackgroundColor = DEFAULT_JPG_BACKGROUND_COLOR;
+    public boolean reproducible = DEFAULT_REPRODUCIBLE;
+
+    // rendering
+    public boolean parallelTiles = DEFAULT_PARALLEL_TILES;
+    public File renderHistoryFile;
+    public File renderGraphFile;
+    public File reportDirectory;
+    public boolean trace = DEFAULT_TRACE;
+    public List<RenderListener> renderListeners = new ArrayList<>();
 
     // deprecated
     public BoundsType svgBoundsType = DEFAULT_BOUNDS_TYPE;
@@ -99,6 +110,11 @@ public class TestParameters implements SvgDrawablePlugin.Parameters {
         return jpgBackgroundColor;
     }
 
+    @Override
+    public boolean isReproducible() {
+        return reproducible;
+    }
+
     @Override
     public BoundsType getSvgBoundsType() {
         return svgBoundsType;
@@ -109,4 +125,34 @@ public class TestParameters implements SvgDrawablePlugin.Parameters {
         return outputType;
     }
 
+    @Override
+    public boolean isParallelTiles() {
+        return parallelTiles;
+    }
+
+    @Override
+    public File getRenderHistoryFile() {
+        return renderHistoryFile;
+    }
+
+    @Override
+    public File getRenderGraphFile() {
+        return renderGraphFile;
+    }
+
+    @Override
+    public File getReportDirectory() {
+        return reportDirectory;
+    }
+
+    @Override
+    public boolean isTrace() {
+        return trace;
+    }
+
+    @Override
+    public Iterable<RenderListener> getRenderListeners() {
+        return renderListeners;
+    }
+
 }
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.build.api.variant;
+
+import org.gradle.api.Action;
+import org.gradle.api.DomainObjectSet;
+import org.gradle.api.Project;
+
+/**
+ * Stands for the <code>androidComponents</code> extension : callbacks run for each variant once it is created.
+ *
+ * @author antoine vianey
+ */
+public class AndroidComponentsExtension {
+
+    private final DomainObjectSet<Variant> variants;
+
+    public AndroidComponentsExtension(Project project) {
+        this.variants = project.getObjects().domainObjectSet(Variant.class);
+    }
+
+    public VariantSelector selector() {
+        return new VariantSelector();
+    }
+
+    public void onVariants(VariantSelector selector, Action<? super Variant> callback) {
+        variants.all(callback);
+    }
+
+    /**
+     * @return the variants, to which the tests add the variants the Android plugin would create
+     */
+    public DomainObjectSet<Variant> getVariants() {
+        return variants;
+    }
+
+}
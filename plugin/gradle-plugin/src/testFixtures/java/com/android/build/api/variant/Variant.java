@@ -0,0 +1,73 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.build.api.variant;
+
+import kotlin.Pair;
+import org.gradle.api.Project;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stands for a variant of the <code>androidComponents</code> extension, with its build type and product flavors.
+ * The <code>pre&lt;Variant&gt;Build</code> task of the variant is registered with it.
+ *
+ * @author antoine vianey
+ */
+public class Variant {
+
+    private final String name;
+    private final String buildType;
+    private final String flavorName;
+    private final List<Pair<String, String>> productFlavors = new ArrayList<>();
+
+    /**
+     * @param buildType the build type of the variant
+     * @param flavors the product flavors of the variant, one per dimension
+     */
+    public Variant(Project project, String buildType, String... flavors) {
+        final StringBuilder flavorName = new StringBuilder();
+        for (int i = 0; i < flavors.length; i++) {
+            productFlavors.add(new Pair<>("dimension" + i, flavors[i]));
+            flavorName.append(flavorName.length() == 0 ? flavors[i] : capitalize(flavors[i]));
+        }
+        this.flavorName = flavorName.toString();
+        this.buildType = buildType;
+        this.name = this.flavorName.isEmpty() ? buildType : this.flavorName + capitalize(buildType);
+        project.getTasks().register("pre" + capitalize(name) + "Build");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getBuildType() {
+        return buildType;
+    }
+
+    public String getFlavorName() {
+        return flavorName;
+    }
+
+    public List<Pair<String, String>> getProductFlavors() {
+        return productFlavors;
+    }
+
+    private static String capitalize(String name) {
+        return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.build.gradle;
+
+import com.android.build.api.variant.AndroidComponentsExtension;
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+
+/**
+ * Stands for the Android application plugin in the plugin tests and in the build scenarios :
+ * an <code>android</code> extension with its source sets, an <code>androidComponents</code> extension
+ * and a <code>preBuild</code> task.
+ *
+ * @author antoine vianey
+ */
+public class AppPlugin implements Plugin<Project> {
+
+    @Override
+    public void apply(Project project) {
+        project.getExtensions().add("android", new AppExtension(project));
+        project.getExtensions().add("androidComponents", new AndroidComponentsExtension(project));
+        project.getTasks().register("preBuild");
+    }
+
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.build.gradle;
+
+import com.android.build.gradle.api.AndroidSourceSet;
+import org.gradle.api.NamedDomainObjectContainer;
+import org.gradle.api.NamedDomainObjectFactory;
+import org.gradle.api.Project;
+
+/**
+ * Stands for the <code>android</code> extension, with the <code>main</code> source set only.
+ *
+ * @author antoine vianey
+ */
+public abstract class BaseExtension {
+
+    private final NamedDomainObjectContainer<AndroidSourceSet> sourceSets;
+
+    protected BaseExtension(Project project) {
+        this.sourceSets = project.getObjects().domainObjectContainer(AndroidSourceSet.class, new NamedDomainObjectFactory<AndroidSourceSet>() {
+            @Override
+            public AndroidSourceSet create(String name) {
+                return new AndroidSourceSet(name);
+            }
+        });
+        this.sourceSets.create("main");
+    }
+
+    public NamedDomainObjectContainer<AndroidSourceSet> getSourceSets() {
+        return sourceSets;
+    }
+
+}
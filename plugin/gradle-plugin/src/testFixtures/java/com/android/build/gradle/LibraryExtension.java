@@ -0,0 +1,40 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.build.gradle;
+
+import com.android.build.gradle.api.LibraryVariant;
+import org.gradle.api.DomainObjectSet;
+import org.gradle.api.Project;
+
+/**
+ * Stands for the <code>android</code> extension of a library, with its legacy variants.
+ *
+ * @author antoine vianey
+ */
+public class LibraryExtension extends BaseExtension {
+
+    private final DomainObjectSet<LibraryVariant> libraryVariants;
+
+    public LibraryExtension(Project project) {
+        super(project);
+        this.libraryVariants = project.getObjects().domainObjectSet(LibraryVariant.class);
+    }
+
+    public DomainObjectSet<LibraryVariant> getLibraryVariants() {
+        return libraryVariants;
+    }
+
+}
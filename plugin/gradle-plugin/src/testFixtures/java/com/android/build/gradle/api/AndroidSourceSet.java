@@ -0,0 +1,66 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.build.gradle.api;
+
+import org.gradle.api.Named;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stands for an Android source set, with its res and assets directories.
+ *
+ * @author antoine vianey
+ */
+public class AndroidSourceSet implements Named {
+
+    private final String name;
+    private final AndroidSourceDirectorySet res = new AndroidSourceDirectorySet();
+    private final AndroidSourceDirectorySet assets = new AndroidSourceDirectorySet();
+
+    public AndroidSourceSet(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    public AndroidSourceDirectorySet getRes() {
+        return res;
+    }
+
+    public AndroidSourceDirectorySet getAssets() {
+        return assets;
+    }
+
+    public static class AndroidSourceDirectorySet {
+
+        private final List<Object> srcDirs = new ArrayList<>();
+
+        public AndroidSourceDirectorySet srcDir(Object srcDir) {
+            srcDirs.add(srcDir);
+            return this;
+        }
+
+        public List<Object> getSrcDirs() {
+            return srcDirs;
+        }
+
+    }
+
+}
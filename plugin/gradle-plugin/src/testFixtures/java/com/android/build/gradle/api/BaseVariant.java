@@ -0,0 +1,54 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.build.gradle.api;
+
+import org.gradle.api.Project;
+import org.gradle.api.Task;
+import org.gradle.api.tasks.TaskProvider;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stands for a variant of the legacy variant API, with its source sets and its <code>preBuild</code> task.
+ *
+ * @author antoine vianey
+ */
+public abstract class BaseVariant {
+
+    private final String name;
+    private final List<AndroidSourceSet> sourceSets;
+    private final TaskProvider<Task> preBuildProvider;
+
+    protected BaseVariant(Project project, String name, AndroidSourceSet... sourceSets) {
+        this.name = name;
+        this.sourceSets = Arrays.asList(sourceSets);
+        this.preBuildProvider = project.getTasks().register("pre" + Character.toUpperCase(name.charAt(0)) + name.substring(1) + "Build");
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<AndroidSourceSet> getSourceSets() {
+        return sourceSets;
+    }
+
+    public TaskProvider<Task> getPreBuildProvider() {
+        return preBuildProvider;
+    }
+
+}
@@ -0,0 +1,466 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.corpus;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import fr.avianey.androidsvgdrawable.Density;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Generates a deterministic corpus of qualified svg files for benchmarks and stress tests.
+ * <p>
+ * The same seed and the same settings always produce the same files, byte for byte.
+ * Each icon is generated from its own random sequence, so growing the corpus keeps the first icons unchanged.
+ * </p>
+ * Icons belong to one of the following families :
+ * <ul>
+ * <li><code>ic_{index}</code> : plain icons</li>
+ * <li><code>btn_{index}</code> : icons captured by the generated svg masks</li>
+ * <li><code>bg_{width}x{height}_{index}</code> : nine-patch icons, matched by the generated nine-patch config</li>
+ * </ul>
+ * Svg files are written in the <code>svg</code> directory of the corpus, svg masks in the <code>mask</code> directory
+ * and the nine-patch config in <code>ninepatch.json</code>.
+ *
+ * @author antoine vianey
+ */
+public class SvgCorpusGenerator {
+
+    public static final String SVG_DIRECTORY = "svg";
+    public static final String MASK_DIRECTORY = "mask";
+    public static final String NINE_PATCH_CONFIG = "ninepatch.json";
+
+    private static final int[] ICON_SIZES = {24, 32, 48};
+    private static final int[] BACKGROUND_WIDTHS = {32, 48, 64};
+    private static final int[] BACKGROUND_HEIGHTS = {24, 32, 48};
+    private static final int MASK_SIZE = 48;
+    private static final double BUTTONS = 0.3;
+
+    private final long seed;
+    private int icons = 100;
+    private int minPaths = 1;
+    private int maxPaths = 8;
+    private double gradients = 0.2;
+    private double filters = 0.05;
+    private double text = 0.05;
+    private double images = 0.02;
+    private double missingSize = 0.1;
+    private double ninePatches = 0.1;
+    private int masks = 0;
+    private Density.Value[] densities = {Density.Value.mdpi};
+    private String[] qualifiers = {"", "", "land", "port", "fr", "land-fr", "night", "v21"};
+
+    public SvgCorpusGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param icons the number of svg files to generate
+     */
+    public SvgCorpusGenerator icons(int icons) {
+        checkArgument(icons >= 0);
+        this.icons = icons;
+        return this;
+    }
+
+    /**
+     * @param min the minimum number of paths of an icon
+     * @param max the maximum number of paths of an icon
+     */
+    public SvgCorpusGenerator paths(int min, int max) {
+        checkArgument(min >= 0 && max >= min);
+        this.minPaths = min;
+        this.maxPaths = max;
+        return this;
+    }
+
+    /**
+     * @param ratio the probability for a path to be filled with a gradient
+     */
+    public SvgCorpusGenerator gradients(double ratio) {
+        this.gradients = ratio(ratio);
+        return this;
+    }
+
+    /**
+     * @param ratio the probability for a path to be drawn through a blur and drop shadow filter
+     */
+    public SvgCorpusGenerator filters(double ratio) {
+        this.filters = ratio(ratio);
+        return this;
+    }
+
+    /**
+     * @param ratio the probability for an icon to contain text
+     */
+    public SvgCorpusGenerator text(double ratio) {
+        this.text = ratio(ratio);
+        return this;
+    }
+
+    /**
+     * @param ratio the probability for an icon to embed a png image
+     */
+    public SvgCorpusGenerator images(double ratio) {
+        this.images = ratio(ratio);
+        return this;
+    }
+
+    /**
+     * @param ratio the probability for an icon that is not a nine-patch to have no width and height, forcing the computation of its bounds
+     */
+    public SvgCorpusGenerator missingSize(double ratio) {
+        this.missingSize = ratio(ratio);
+        return this;
+    }
+
+    /**
+     * @param ratio the probability for an icon to be a nine-patch
+     */
+    public SvgCorpusGenerator ninePatches(double ratio) {
+        checkArgument(ratio + BUTTONS <= 1, "At most %s of the icons can be nine-patches", 1 - BUTTONS);
+        this.ninePatches = ratio(ratio);
+        return this;
+    }
+
+    /**
+     * @param masks the number of svg masks to generate
+     */
+    public SvgCorpusGenerator masks(int masks) {
+        checkArgument(masks >= 0);
+        this.masks = masks;
+        return this;
+    }
+
+    /**
+     * @param densities the densities the icons are drawn for
+     */
+    public SvgCorpusGenerator densities(Density.Value... densities) {
+        checkArgument(densities.length > 0);
+        this.densities = densities.clone();
+        return this;
+    }
+
+    /**
+     * @param qualifiers the qualified parts (without density) to pick from, an empty String for no qualifier
+     */
+    public SvgCorpusGenerator qualifiers(String... qualifiers) {
+        checkArgument(qualifiers.length > 0);
+        this.qualifiers = qualifiers.clone();
+        return this;
+    }
+
+    /**
+     * Generates the corpus in the given directory
+     * @param dir the root directory of the corpus
+     * @return the generated corpus
+     * @throws IOException
+     */
+    public Corpus generate(File dir) throws IOException {
+        final File svgDir = new File(dir, SVG_DIRECTORY);
+        final File maskDir = new File(dir, MASK_DIRECTORY);
+        Files.createDirectories(svgDir.toPath());
+        Files.createDirectories(maskDir.toPath());
+
+        final List<File> svgFiles = new ArrayList<>(icons);
+        final Map<String, int[]> backgrounds = new TreeMap<>();
+        final List<Integer> buttonBlocks = new ArrayList<>();
+        for (int i = 0; i < icons; i++) {
+            final Random random = random(i);
+            final double family = random.nextDouble();
+            final String qualifier = qualifiers[random.nextInt(qualifiers.length)];
+            final Density.Value density = densities[random.nextInt(densities.length)];
+            final String name;
+            final int width;
+            final int height;
+            if (family < ninePatches) {
+                width = pick(random, BACKGROUND_WIDTHS);
+                height = pick(random, BACKGROUND_HEIGHTS);
+                name = String.format(Locale.ROOT, "bg_%dx%d_%05d", width, height, i);
+                backgrounds.put(String.format(Locale.ROOT, "bg_%dx%d_.*", width, height), new int[] {width, height});
+            } else {
+                width = height = pick(random, ICON_SIZES);
+                if (family < ninePatches + BUTTONS) {
+                    name = String.format(Locale.ROOT, "btn_%05d", i);
+                    if (qualifier.isEmpty() && (buttonBlocks.isEmpty() || buttonBlocks.get(buttonBlocks.size() - 1) != i / 10)) {
+                        buttonBlocks.add(i / 10);
+                    }
+                } else {
+                    name = String.format(Locale.ROOT, "ic_%05d", i);
+                }
+            }
+            final File file = new File(svgDir, name + (qualifier.isEmpty() ? "" : "-" + qualifier) + "-" + density.name() + ".svg");
+            // nine-patch segments are given in the regular bounding box, nine-patches always have a size
+            write(file, icon(random, width, height, family >= ninePatches && random.nextDouble() < missingSize));
+            svgFiles.add(file);
+        }
+
+        final List<File> maskFiles = new ArrayList<>(masks);
+        for (int i = 0; i < masks; i++) {
+            // masks draw from sequences of their own
+            final Random random = random(-1 - i);
+            // a capturing image that matches nothing is left as is and a mask only captures resources
+            // with a subset of its qualifiers : masks have no other qualifier than their density
+            // and capture existing buttons without qualifiers
+            final File file = new File(maskDir, String.format(Locale.ROOT, "mask_%05d-%s.svgmask", i,
+                    densities[random.nextInt(densities.length)].name()));
+            write(file, mask(random, buttonBlocks.isEmpty() ? Collections.singletonList(0) : buttonBlocks));
+            maskFiles.add(file);
+        }
+
+        final File ninePatchConfig = new File(dir, NINE_PATCH_CONFIG);
+        write(ninePatchConfig, ninePatchConfig(backgrounds));
+
+        return new Corpus(dir, svgFiles, maskFiles, ninePatchConfig);
+    }
+
+    private String icon(Random random, int width, int height, boolean sizeless) throws IOException {
+        final StringBuilder defs = new StringBuilder();
+        final StringBuilder body = new StringBuilder();
+        body.append(String.format(Locale.ROOT, "  <rect x=\"0\" y=\"0\" width=\"%d\" height=\"%d\" fill=\"%s\" fill-opacity=\"0.2\"/>%n",
+                width, height, color(random)));
+        final int paths = minPaths + random.nextInt(maxPaths - minPaths + 1);
+        for (int p = 0; p < paths; p++) {
+            String fill = color(random);
+            if (random.nextDouble() < gradients) {
+                final String id = "g" + p;
+                defs.append(gradient(random, id));
+                fill = "url(#" + id + ")";
+            }
+            String filter = "";
+            if (random.nextDouble() < filters) {
+                final String id = "f" + p;
+                defs.append(String.format(Locale.ROOT,
+                        "    <filter id=\"%s\" x=\"-20%%\" y=\"-20%%\" width=\"140%%\" height=\"140%%\">%n" +
+                        "      <feGaussianBlur in=\"SourceAlpha\" stdDeviation=\"%.2f\"/>%n" +
+                        "      <feOffset dx=\"1\" dy=\"1\" result=\"shadow\"/>%n" +
+                        "      <feMerge><feMergeNode in=\"shadow\"/><feMergeNode in=\"SourceGraphic\"/></feMerge>%n" +
+                        "    </filter>%n", id, 0.5 + random.nextDouble() * 2));
+                filter = " filter=\"url(#" + id + ")\"";
+            }
+            body.append(String.format(Locale.ROOT, "  <path d=\"%s\" fill=\"%s\" stroke=\"%s\" stroke-width=\"%.2f\"%s/>%n",
+                    path(random, width, height), fill, color(random), random.nextDouble() * 2, filter));
+        }
+        if (random.nextDouble() < text) {
+            body.append(String.format(Locale.ROOT, "  <text x=\"%d\" y=\"%d\" font-family=\"sans-serif\" font-size=\"%d\" fill=\"%s\">%s</text>%n",
+                    width / 8, height * 3 / 4, Math.max(6, height / 3), color(random), (char) ('A' + random.nextInt(26)) + "" + (char) ('a' + random.nextInt(26))));
+        }
+        if (random.nextDouble() < images) {
+            body.append(String.format(Locale.ROOT, "  <image x=\"%d\" y=\"%d\" width=\"%d\" height=\"%d\" xlink:href=\"data:image/png;base64,%s\"/>%n",
+                    width / 4, height / 4, width / 2, height / 2, png(random)));
+        }
+        final String size = sizeless ? "" : String.format(Locale.ROOT, " width=\"%d\" height=\"%d\"", width, height);
+        return svg(size + String.format(Locale.ROOT, " viewBox=\"0 0 %d %d\"", width, height), defs, body);
+    }
+
+    private static String mask(Random random, List<Integer> blocks) {
+        final StringBuilder body = new StringBuilder();
+        body.append(String.format(Locale.ROOT, "  <rect x=\"0\" y=\"0\" width=\"%d\" height=\"%d\" rx=\"4\" fill=\"%s\"/>%n",
+                MASK_SIZE, MASK_SIZE, color(random)));
+        // each capturing image matches the buttons of a block of 10 indexes
+        final int images = 1 + random.nextInt(2);
+        for (int i = 0; i < images; i++) {
+            final int offset = i * MASK_SIZE / 4;
+            body.append(String.format(Locale.ROOT, "  <image x=\"%d\" y=\"%d\" width=\"%d\" height=\"%d\" xlink:href=\"#{btn_%04d\\d}\"/>%n",
+                    offset, offset, MASK_SIZE / 2, MASK_SIZE / 2, blocks.get(random.nextInt(blocks.size()))));
+        }
+        return svg(String.format(Locale.ROOT, " width=\"%d\" height=\"%d\"", MASK_SIZE, MASK_SIZE), new StringBuilder(), body);
+    }
+
+    private static String ninePatchConfig(Map<String, int[]> backgrounds) {
+        final JsonArray config = new JsonArray();
+        for (Map.Entry<String, int[]> background : backgrounds.entrySet()) {
+            final int width = background.getValue()[0];
+            final int height = background.getValue()[1];
+            config.add(ninePatch(background.getKey(), null, width / 4, height / 4, width, height));
+            // a more specific config for landscape resources
+            config.add(ninePatch(background.getKey(), "land", width / 3, height / 3, width, height));
+        }
+        return new GsonBuilder().setPrettyPrinting().create().toJson(config);
+    }
+
+    private static JsonObject ninePatch(String name, String qualifier, int inset, int padding, int width, int height) {
+        final JsonObject ninePatch = new JsonObject();
+        ninePatch.addProperty("name", name);
+        if (qualifier != null) {
+            final JsonArray qualifiers = new JsonArray();
+            qualifiers.add(qualifier);
+            ninePatch.add("qualifiers", qualifiers);
+        }
+        ninePatch.add("stretch", zone(inset, width - inset - 1, inset, height - inset - 1));
+        ninePatch.add("content", zone(padding, width - padding - 1, padding, height - padding - 1));
+        return ninePatch;
+    }
+
+    private static JsonObject zone(int x1, int x2, int y1, int y2) {
+        final JsonObject zone = new JsonObject();
+        zone.add("x", segments(x1, x2));
+        zone.add("y", segments(y1, y2));
+        return zone;
+    }
+
+    private static JsonArray segments(int start, int end) {
+        final JsonArray segment = new JsonArray();
+        segment.add(start);
+        segment.add(end);
+        final JsonArray segments = new JsonArray();
+        segments.add(segment);
+        return segments;
+    }
+
+    private static String svg(String attributes, StringBuilder defs, StringBuilder body) {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n"
+                + "<svg xmlns=\"http://www.w3.org/2000/svg\" xmlns:xlink=\"http://www.w3.org/1999/xlink\" version=\"1.1\"" + attributes + ">\n"
+                + (defs.length() > 0 ? "  <defs>\n" + defs + "  </defs>\n" : "")
+                + body
+                + "</svg>\n";
+    }
+
+    private static String path(Random random, int width, int height) {
+        final StringBuilder d = new StringBuilder();
+        d.append(String.format(Locale.ROOT, "M%.2f %.2f", random.nextDouble() * width, random.nextDouble() * height));
+        final int segments = 2 + random.nextInt(5);
+        for (int s = 0; s < segments; s++) {
+            if (random.nextBoolean()) {
+                d.append(String.format(Locale.ROOT, " L%.2f %.2f", random.nextDouble() * width, random.nextDouble() * height));
+            } else {
+                d.append(String.format(Locale.ROOT, " C%.2f %.2f %.2f %.2f %.2f %.2f",
+                        random.nextDouble() * width, random.nextDouble() * height,
+                        random.nextDouble() * width, random.nextDouble() * height,
+                        random.nextDouble() * width, random.nextDouble() * height));
+            }
+        }
+        return d.append(" Z").toString();
+    }
+
+    private static String gradient(Random random, String id) {
+        final String stops = String.format(Locale.ROOT,
+                "      <stop offset=\"0\" stop-color=\"%s\"/>%n      <stop offset=\"1\" stop-color=\"%s\" stop-opacity=\"%.2f\"/>%n",
+                color(random), color(random), random.nextDouble());
+        if (random.nextBoolean()) {
+            return String.format(Locale.ROOT, "    <linearGradient id=\"%s\" x1=\"0\" y1=\"0\" x2=\"1\" y2=\"1\">%n%s    </linearGradient>%n", id, stops);
+        }
+        return String.format(Locale.ROOT, "    <radialGradient id=\"%s\" cx=\"0.5\" cy=\"0.5\" r=\"0.5\">%n%s    </radialGradient>%n", id, stops);
+    }
+
+    private static String png(Random random) throws IOException {
+        final BufferedImage image = new BufferedImage(4, 4, BufferedImage.TYPE_INT_ARGB);
+        for (int x = 0; x < 4; x++) {
+            for (int y = 0; y < 4; y++) {
+                image.setRGB(x, y, 0xFF000000 | random.nextInt(0x1000000));
+            }
+        }
+        final ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", os);
+        return Base64.getEncoder().encodeToString(os.toByteArray());
+    }
+
+    private static String color(Random random) {
+        return String.format(Locale.ROOT, "#%06x", random.nextInt(0x1000000));
+    }
+
+    private static int pick(Random random, int[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private Random random(int index) {
+        // the first values drawn by Random are correlated for close seeds, mix them first
+        return new Random(new SplittableRandom(seed * 0x9E3779B97F4A7C15L + index).nextLong());
+    }
+
+    private static double ratio(double ratio) {
+        checkArgument(ratio >= 0 && ratio <= 1);
+        return ratio;
+    }
+
+    private static void write(File file, String content) throws IOException {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * The files of a generated corpus
+     */
+    public static final class Corpus {
+
+        private final File directory;
+        private final List<File> svgFiles;
+        private final List<File> maskFiles;
+        private final File ninePatchConfig;
+
+        private Corpus(File directory, List<File> svgFiles, List<File> maskFiles, File ninePatchConfig) {
+            this.directory = directory;
+            this.svgFiles = Collections.unmodifiableList(svgFiles);
+            this.maskFiles = Collections.unmodifiableList(maskFiles);
+            this.ninePatchConfig = ninePatchConfig;
+        }
+
+        public File getDirectory() {
+            return directory;
+        }
+
+        public File getSvgDirectory() {
+            return new File(directory, SVG_DIRECTORY);
+        }
+
+        public File getMaskDirectory() {
+            return new File(directory, MASK_DIRECTORY);
+        }
+
+        public List<File> getSvgFiles() {
+            return svgFiles;
+        }
+
+        public List<File> getMaskFiles() {
+            return maskFiles;
+        }
+
+        public File getNinePatchConfig() {
+            return ninePatchConfig;
+        }
+
+    }
+
+    /**
+     * Generates a corpus from the command line : <code>directory icons [seed [masks]]</code>
+     */
+    public static void main(String[] args) throws IOException {
+        checkArgument(args.length >= 2, "Usage : directory icons [seed [masks]]");
+        new SvgCorpusGenerator(args.length > 2 ? Long.parseLong(args[2]) : 0)
+                .icons(Integer.parseInt(args[1]))
+                .masks(args.length > 3 ? Integer.parseInt(args[3]) : 0)
+                .generate(new File(args[0]));
+    }
+
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2013, 2014, 2015 Antoine Vianey
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package fr.avianey.androidsvgdrawable.util;
+
+import com.android.build.gradle.AppPlugin;
+import org.gradle.testkit.runner.GradleRunner;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs builds of the plugin under test with the stub of the Android plugin.
+ *
+ * @author antoine vianey
+ */
+public final class TestKit {
+
+    private TestKit() {
+    }
+
+    /**
+     * @return the classpath of the plugin under test, along with the stub of the Android plugin
+     */
+    public static List<File> pluginClasspath() throws URISyntaxException {
+        List<File> classpath = new ArrayList<>(GradleRunner.create().withPluginClasspath().getPluginClasspath());
+        classpath.add(new File(AppPlugin.class.getProtectionDomain().getCodeSource().getLocation().toURI()));
+        // META-INF/gradle-plugins/com.android.application.properties, packaged along with the stub in the test fixtures jar
+        URL properties = TestKit.class.getResource("/META-INF/gradle-plugins/com.android.application.properties");
+        if ("file".equals(properties.getProtocol())) {
+            classpath.add(new File(properties.toURI()).getParentFile().getParentFile().getParentFile());
+        }
+        return classpath;
+    }
+
+}